@@ -6,6 +6,10 @@ set -x
 
 mvn clean package
 
+#JMH benchmarks (src/bench/java): mvn -Pbench clean package && java -jar target/benchmarks.jar [regex] [-prof gc]
+#end-to-end benchmark over a synthetic corpus: $javaPrefix botg.PipelineBenchmark documents=10000,vocabulary=50000,length=200
+#grid of combinations, sharing subgraphs, codebooks and assignments: $javaPrefix botg.BoTGGrid "dataset=$dataset,foldsDirname=$foldsDirname,graphs=...,assignment=HARD|SOFT,pooling=SUM|AVG|MAX,subgraphDistance=DIST1_FIX|MCS"
+
 dataset='ohsumed'
 foldsDirname='foldDistributions_allSamples'
 
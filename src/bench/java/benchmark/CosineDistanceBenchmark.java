@@ -0,0 +1,56 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.FloatVectorSparse;
+import util.MathUtils;
+
+/**
+ * Cosine distance between sparse vectors, as the BoG and bag-of-words vectors compared by the kNN classifiers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CosineDistanceBenchmark {
+
+    private static final int PAIRS = 64;
+
+    @Param({"10000"})
+    public int length;
+
+    @Param({"16", "128", "1024"})
+    public int nonZeros;
+
+    @Param({"0.0", "0.5", "0.9"})
+    public double overlap;
+
+    private FloatVectorSparse[][] pairs;
+    private int next;
+
+    @Setup
+    public void setup() {
+        SyntheticSubgraphs generator = new SyntheticSubgraphs(42);
+        pairs = new FloatVectorSparse[PAIRS][];
+        for (int i = 0; i < PAIRS; i++)
+            pairs[i] = generator.sparseVectorPair(length, nonZeros, overlap);
+    }
+
+    @Benchmark
+    public float cosineDistance() {
+        FloatVectorSparse[] pair = pairs[next++ & (PAIRS - 1)];
+        return MathUtils.cosineDistance(pair[0], pair[1]);
+    }
+}
@@ -0,0 +1,27 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the parsing and serialization benchmarks with the GC profiler, which reports the allocation rate (gc.alloc.rate.norm: bytes per operation)
+ * besides the throughput, writing the results as JSON to the given file (default jmh-serialization.json).
+ * Optional second argument: regex restricting the benchmarks. Same as java -jar benchmarks.jar [regex] -prof gc -rf json.
+ */
+public class GcProfiledBenchmarks {
+
+    public static void main(String[] args) throws RunnerException {
+        String resultFile = args.length > 0 ? args[0] : "jmh-serialization.json";
+        String include = args.length > 1 ? args[1]
+            : "SubgraphSerializationBenchmark|GraphSampleIOBenchmark|VectorDatasetIOBenchmark|ObjectIOBenchmark|TokenExtractorBenchmark";
+        new Runner(new OptionsBuilder()
+            .include(include)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(resultFile)
+            .build()).run();
+    }
+}
@@ -0,0 +1,60 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import mining.distance.graphDistance.GraphDistanceType;
+import util.graph.DirectedWeightedLabeledGraph;
+
+/**
+ * Distances between whole word graphs (as used by the graph kNN baseline and the graph-based codebook generators).
+ * The creation of their maximum common subgraph, on which these distances are based, is in {@link MaximumCommonSubgraphBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GraphDistanceBenchmark {
+
+    private static final int PAIRS = 32;
+
+    @Param({"MCS", "MCSNOTWEIGHTED", "WGU", "WGUNOTWEIGHTED"})
+    public GraphDistanceType distance;
+
+    @Param({"16", "64", "256"})
+    public int vertices;
+
+    @Param({"0.1", "0.5", "0.9"})
+    public double overlap;
+
+    @Param({"2"})
+    public int outDegree;
+
+    private DirectedWeightedLabeledGraph[][] pairs;
+    private int next;
+
+    @Setup
+    public void setup() {
+        SyntheticSubgraphs generator = new SyntheticSubgraphs(42);
+        pairs = new DirectedWeightedLabeledGraph[PAIRS][];
+        for (int i = 0; i < PAIRS; i++)
+            pairs[i] = generator.graphPair(vertices, outDegree, overlap, true);
+    }
+
+    @Benchmark
+    public float distance() {
+        DirectedWeightedLabeledGraph[] pair = pairs[next++ & (PAIRS - 1)];
+        return distance.calculateDistance(pair[0], pair[1]);
+    }
+}
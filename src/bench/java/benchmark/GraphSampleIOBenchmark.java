@@ -0,0 +1,75 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import mining.textMining.textToGraph.GraphDataset;
+import mining.textMining.textToGraph.model.GraphSample;
+import util.io.FileUtils;
+
+/**
+ * Graph sample files, written by the graph generation and read by every later stage (subgraph extraction, baselines).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GraphSampleIOBenchmark {
+
+    private static final int SAMPLES = 16;
+
+    @Param({"32", "256"})
+    public int vertices;
+
+    @Param({"2"})
+    public int outDegree;
+
+    private File folder;
+    private GraphSample[] samples;
+    private File[] files;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("graphSampleIO").toFile();
+        SyntheticSubgraphs generator = new SyntheticSubgraphs(42);
+        samples = new GraphSample[SAMPLES];
+        files = new File[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            samples[i] = new GraphSample(i, "label" + (i % 4), generator.graphPair(vertices, outDegree, 0, true)[0]);
+            files[i] = GraphDataset.getGraphSampleFile(folder.getPath(), i);
+            GraphDataset.writeSample(samples[i], files[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtils.deleteQuietly(folder);
+    }
+
+    @Benchmark
+    public GraphSample loadSampleFromFile() {
+        return GraphDataset.loadSampleFromFile(files[next++ & (SAMPLES - 1)]);
+    }
+
+    @Benchmark
+    public void writeSample() {
+        int i = next++ & (SAMPLES - 1);
+        GraphDataset.writeSample(samples[i], files[i]);
+    }
+}
@@ -0,0 +1,58 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import mining.bagOfGraphs.sampleSubgraph.linkedElement.LinkedElement;
+import mining.bagOfGraphs.sampleSubgraph.linkedElement.LinkedElementDistances;
+
+/**
+ * Distance between linked elements, as computed for each (subgraph, codeword) pair on the codebook assignment.
+ * Half of the pairs share the central element, so that the distances short-circuited for different elements are also measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LinkedElementDistancesBenchmark {
+
+    private static final int PAIRS = 256;
+
+    @Param({"DIST1_FIX", "DIST1B", "DIST2", "MCS", "WGU"})
+    public LinkedElementDistances distance;
+
+    @Param({"4", "16", "64"})
+    public int neighbors;
+
+    @Param({"0.0", "0.5", "0.9"})
+    public double overlap;
+
+    private LinkedElement[][] pairs;
+    private int next;
+
+    @Setup
+    public void setup() {
+        LinkedElementDistances.initialize(distance);
+        SyntheticSubgraphs generator = new SyntheticSubgraphs(42);
+        pairs = new LinkedElement[PAIRS][];
+        for (int i = 0; i < PAIRS; i++)
+            pairs[i] = generator.linkedElementPair(neighbors, overlap, i % 2 == 0, LinkedElementDistances.isNeighborNodeWeightsRequired());
+    }
+
+    @Benchmark
+    public float distance() {
+        LinkedElement[] pair = pairs[next++ & (PAIRS - 1)];
+        return LinkedElementDistances.calculateDistance(pair[0], pair[1]);
+    }
+}
@@ -0,0 +1,60 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import mining.distance.graphDistance.MaximumCommonSubgraphCreator;
+import util.graph.DirectedWeightedLabeledGraph;
+
+/**
+ * Creation of the maximum common subgraph of two word graphs, on which the MCS and WGU distances (see {@link GraphDistanceBenchmark}) are based,
+ * with the weights (MCS, WGU) or without them (MCSNOTWEIGHTED, WGUNOTWEIGHTED).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MaximumCommonSubgraphBenchmark {
+
+    private static final int PAIRS = 32;
+
+    @Param({"true", "false"})
+    public boolean weighted;
+
+    @Param({"16", "64", "256"})
+    public int vertices;
+
+    @Param({"0.1", "0.5", "0.9"})
+    public double overlap;
+
+    @Param({"2"})
+    public int outDegree;
+
+    private DirectedWeightedLabeledGraph[][] pairs;
+    private int next;
+
+    @Setup
+    public void setup() {
+        SyntheticSubgraphs generator = new SyntheticSubgraphs(42);
+        pairs = new DirectedWeightedLabeledGraph[PAIRS][];
+        for (int i = 0; i < PAIRS; i++)
+            pairs[i] = generator.graphPair(vertices, outDegree, overlap, true);
+    }
+
+    @Benchmark
+    public DirectedWeightedLabeledGraph maximumCommonSubgraph() {
+        DirectedWeightedLabeledGraph[] pair = pairs[next++ & (PAIRS - 1)];
+        return MaximumCommonSubgraphCreator.getMaximumCommonSubgraph(pair[0], pair[1], weighted);
+    }
+}
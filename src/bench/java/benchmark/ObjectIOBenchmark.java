@@ -0,0 +1,65 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import mining.textMining.bagOfWord.VectorSample;
+import util.io.FileUtils;
+import util.io.ObjectIO;
+
+/**
+ * Round-trip (write then read) of an object through ObjectIO, as the vector samples kept one per file.
+ * XStream reflects on JDK internals, which must be opened on Java 9+ (the options are ignored by Java 8).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-XX:+IgnoreUnrecognizedVMOptions", "--add-opens=java.base/java.util=ALL-UNNAMED",
+    "--add-opens=java.base/java.lang=ALL-UNNAMED", "--add-opens=java.base/java.text=ALL-UNNAMED", "--add-opens=java.base/java.io=ALL-UNNAMED",
+    "--add-opens=java.base/java.lang.reflect=ALL-UNNAMED", "--add-opens=java.desktop/java.awt.font=ALL-UNNAMED" })
+@State(Scope.Thread)
+public class ObjectIOBenchmark {
+
+    @Param({"false", "true"})
+    public boolean compress;
+
+    @Param({"16", "256"})
+    public int nonZeros;
+
+    private ObjectIO objectIO;
+    private VectorSample sample;
+    private File folder, file;
+
+    @Setup
+    public void setup() throws IOException {
+        objectIO = new ObjectIO(compress);
+        sample = new VectorSample(1, "label", new SyntheticSubgraphs(42).sparseVectorPair(10000, nonZeros, 0)[0]);
+        folder = Files.createTempDirectory("objectIO").toFile();
+        file = new File(folder, "sample");
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtils.deleteQuietly(folder);
+    }
+
+    @Benchmark
+    public VectorSample roundTrip() {
+        objectIO.saveObjectToFile(sample, file);
+        return objectIO.readObjectFromFile(file);
+    }
+}
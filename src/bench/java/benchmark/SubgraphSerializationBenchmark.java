@@ -0,0 +1,73 @@
+package benchmark;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import mining.bagOfGraphs.sampleSubgraph.SampleSubgraph;
+import mining.bagOfGraphs.sampleSubgraph.linkedElement.LinkedElement;
+import mining.bagOfGraphs.sampleSubgraph.linkedElement.LinkedElementDistances;
+import mining.bagOfGraphs.sampleSubgraph.linkedElement.LinkedElementSubgraphsHandler;
+
+/**
+ * Text lines of the subgraphs files and codebooks: parsing on every load of the subgraphs of a sample, formatting on their extraction.
+ * MCS keeps the neighbor weights in the lines, DIST2 does not.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SubgraphSerializationBenchmark {
+
+    private static final int SUBGRAPHS = 256;
+
+    @Param({"DIST2", "MCS"})
+    public LinkedElementDistances distance;
+
+    @Param({"4", "16", "64"})
+    public int neighbors;
+
+    private final LinkedElementSubgraphsHandler handler = new LinkedElementSubgraphsHandler(false);
+    private LinkedElement[] subgraphs;
+    private String[] lines;
+    private final StringWriter writer = new StringWriter();
+    private int next;
+
+    @Setup
+    public void setup() {
+        LinkedElementDistances.initialize(distance);
+        SyntheticSubgraphs generator = new SyntheticSubgraphs(42);
+        subgraphs = new LinkedElement[SUBGRAPHS];
+        lines = new String[SUBGRAPHS];
+        for (int i = 0; i < SUBGRAPHS; i++) {
+            subgraphs[i] = generator.linkedElementPair(neighbors, 0, false, LinkedElementDistances.isNeighborNodeWeightsRequired())[0];
+            StringWriter line = new StringWriter();
+            handler.append(subgraphs[i], line);
+            lines[i] = line.toString().trim();
+        }
+    }
+
+    @Benchmark
+    public SampleSubgraph getSubgraphFromStringLine() {
+        return handler.getSubgraphFromStringLine(lines[next++ & (SUBGRAPHS - 1)]);
+    }
+
+    /** through append, since getSubgraphAsStringLine is only reached by the writers of the handler */
+    @Benchmark
+    public int getSubgraphAsStringLine() {
+        writer.getBuffer().setLength(0);
+        handler.append(subgraphs[next++ & (SUBGRAPHS - 1)], writer);
+        return writer.getBuffer().length();
+    }
+}
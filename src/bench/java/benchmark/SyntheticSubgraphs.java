@@ -0,0 +1,140 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import com.google.common.base.Preconditions;
+import mining.bagOfGraphs.sampleSubgraph.linkedElement.LinkedElement;
+import util.FloatVectorSparse;
+import util.graph.DirectedWeightedLabeledGraph;
+import util.graph.LabeledWeightedEdge;
+
+/**
+ * Synthetic inputs for the distance benchmarks, as pairs whose second item shares a given fraction (overlap) of the terms of the first one.
+ * Terms are drawn from a vocabulary of "t0".."tN" ten times bigger than the neighborhood, the non-shared ones out of the terms of the first item.
+ * Weights are in (0,1], as the ones of normalized TF-IDF graphs. Deterministic for a given seed.
+ */
+public class SyntheticSubgraphs {
+
+    private final Random random;
+
+    public SyntheticSubgraphs(long seed) {
+        this.random = new Random(seed);
+    }
+
+    private static String term(int i) {
+        return "t" + i;
+    }
+
+    private float weight() {
+        return 1F - random.nextFloat();
+    }
+
+    /**
+     * distinct terms, the first ones being those of the given list up to the overlap, the others drawn from the vocabulary but out of the
+     * whole list, so that exactly the overlap is shared
+     */
+    private List<String> terms(int n, List<String> shared, double overlap, int vocabularySize) {
+        List<String> terms = new ArrayList<>(n);
+        int nShared = shared == null ? 0 : (int) Math.round(overlap * Math.min(n, shared.size()));
+        terms.addAll(shared == null ? new ArrayList<>() : shared.subList(0, nShared));
+        Set<String> excluded = shared == null ? new HashSet<>() : new HashSet<>(shared);
+        while (terms.size() < n) {
+            String t = term(random.nextInt(vocabularySize));
+            if (!terms.contains(t) && !excluded.contains(t))
+                terms.add(t);
+        }
+        return terms;
+    }
+
+    /**
+     * @param neighbors neighborhood size of each linked element
+     * @param overlap fraction of the neighbors of the first element also neighbors of the second one
+     * @param sameElement whether both have the same central element (otherwise only the neighborhoods may overlap)
+     * @param weighted whether the neighbor weights are kept (as required by MCS and WGU)
+     */
+    public LinkedElement[] linkedElementPair(int neighbors, double overlap, boolean sameElement, boolean weighted) {
+        Preconditions.checkArgument(overlap >= 0 && overlap <= 1);
+        int vocabularySize = Math.max(100, 10 * neighbors);
+        List<String> neighborsA = terms(neighbors + 1, null, 0, vocabularySize);
+        String elementA = neighborsA.remove(neighbors);
+        List<String> neighborsB = terms(neighbors, neighborsA, overlap, vocabularySize);
+        String elementB = sameElement ? elementA : term(vocabularySize + random.nextInt(vocabularySize));
+        neighborsB.remove(elementB);
+        return new LinkedElement[] { linkedElement(elementA, neighborsA, weighted), linkedElement(elementB, neighborsB, weighted) };
+    }
+
+    private LinkedElement linkedElement(String element, List<String> neighbors, boolean weighted) {
+        Map<String,Float> edgesWeights = new LinkedHashMap<>(neighbors.size(), 1);
+        Map<String,Float> neighborsWeights = weighted ? new LinkedHashMap<>(neighbors.size(), 1) : null;
+        for (String neighbor : neighbors) {
+            if (neighbor.equals(element))
+                continue;
+            edgesWeights.put(neighbor, weight());
+            if (weighted)
+                neighborsWeights.put(neighbor, weight());
+        }
+        return new LinkedElement(element, weight(), edgesWeights, neighborsWeights);
+    }
+
+    /**
+     * Word-graph pair: each vertex has outgoing edges to up to outDegree of the following vertices, as the reach-based text graphs.
+     * @param overlap fraction of the vertices of the first graph also in the second one, whose edges among them are kept
+     */
+    public DirectedWeightedLabeledGraph[] graphPair(int vertices, int outDegree, double overlap, boolean weighted) {
+        Preconditions.checkArgument(overlap >= 0 && overlap <= 1);
+        int vocabularySize = 10 * vertices;
+        DirectedWeightedLabeledGraph a = graph(terms(vertices, null, 0, vocabularySize), outDegree, weighted);
+        List<String> sharedTerms = new ArrayList<>(a.vertexSet());
+        return new DirectedWeightedLabeledGraph[] { a, graph(terms(vertices, sharedTerms, overlap, vocabularySize), outDegree, weighted) };
+    }
+
+    private DirectedWeightedLabeledGraph graph(List<String> terms, int outDegree, boolean weighted) {
+        DirectedWeightedLabeledGraph graph = new DirectedWeightedLabeledGraph(weighted);
+        for (String term : terms)
+            graph.addVertex(term, weighted ? weight() : 1);
+        for (int i = 0; i < terms.size(); i++) {
+            for (int j = i + 1; j <= i + outDegree && j < terms.size(); j++) {
+                LabeledWeightedEdge edge = graph.addEdge(terms.get(i), terms.get(j));
+                edge.setLabel(null);
+                if (weighted)
+                    graph.setEdgeWeight(edge, weight());
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * @param nonZeros non-zero values of each vector
+     * @param overlap fraction of the non-zero indices of the first vector also non-zero in the second one
+     */
+    public FloatVectorSparse[] sparseVectorPair(int length, int nonZeros, double overlap) {
+        Preconditions.checkArgument(overlap >= 0 && overlap <= 1 && nonZeros <= length);
+        List<Integer> indicesA = indices(length, nonZeros, null, 0);
+        return new FloatVectorSparse[] { sparseVector(length, indicesA), sparseVector(length, indices(length, nonZeros, indicesA, overlap)) };
+    }
+
+    private List<Integer> indices(int length, int n, List<Integer> shared, double overlap) {
+        List<Integer> indices = new ArrayList<>(n);
+        if (shared != null)
+            indices.addAll(shared.subList(0, (int) Math.round(overlap * Math.min(n, shared.size()))));
+        while (indices.size() < n) {
+            Integer i = random.nextInt(length);
+            if (!indices.contains(i) && (shared == null || !shared.contains(i)))
+                indices.add(i);
+        }
+        return indices;
+    }
+
+    private FloatVectorSparse sparseVector(int length, List<Integer> indices) {
+        Map<Integer,Float> values = new HashMap<>(indices.size() * 4 / 3 + 1);
+        for (Integer i : indices)
+            values.put(i, weight());
+        return new FloatVectorSparse(length, values);
+    }
+}
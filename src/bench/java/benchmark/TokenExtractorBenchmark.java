@@ -0,0 +1,99 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import mining.textMining.CachedStemmer;
+import mining.textMining.PorterStemmer;
+import mining.textMining.StopList;
+import mining.textMining.parsing.TokenCollector;
+import mining.textMining.parsing.TokenExtractor;
+
+/**
+ * Tokenization of a document (split, case folding, stop words, stemming), the first step of every text conversion.
+ * The texts have Zipf-distributed words (as natural language), stop words, punctuation and some capitalized words.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenExtractorBenchmark {
+
+    private static final int TEXTS = 16;
+    private static final String[] PUNCTUATION = { " ", " ", " ", " ", ", ", ". ", "; ", " (", ") ", " - " };
+
+    @Param({"none", "porter", "cachedPorter"})
+    public String stemming;
+
+    @Param({"200", "2000"})
+    public int words;
+
+    private TokenExtractor tokenExtractor;
+    private String[] texts;
+    private int next;
+
+    private static class TokenCounter implements TokenCollector {
+        int tokens;
+
+        @Override
+        public void collect(String token) {
+            tokens++;
+        }
+
+        @Override
+        public void subSectionStarted() {
+        }
+    }
+
+    @Setup
+    public void setup() {
+        tokenExtractor = new TokenExtractor("none".equals(stemming) ? null
+            : "porter".equals(stemming) ? new PorterStemmer() : new CachedStemmer(new PorterStemmer(), 100000), StopList.STOP_LIST);
+        Random random = new Random(42);
+        String[] stopWords = StopList.STOP_LIST.toArray(new String[0]);
+        texts = new String[TEXTS];
+        for (int t = 0; t < TEXTS; t++) {
+            StringBuilder text = new StringBuilder();
+            for (int w = 0; w < words; w++) {
+                String word = random.nextInt(3) == 0 ? stopWords[random.nextInt(stopWords.length)] : word(zipfRank(random, 20000));
+                text.append(random.nextInt(20) == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+                text.append(PUNCTUATION[random.nextInt(PUNCTUATION.length)]);
+            }
+            texts[t] = text.toString();
+        }
+    }
+
+    /** rank in [1, vocabularySize], with probability ~ 1/rank */
+    private static int zipfRank(Random random, int vocabularySize) {
+        return (int) Math.min(vocabularySize, Math.floor(Math.exp(random.nextDouble() * Math.log(vocabularySize + 1))));
+    }
+
+    /** a pronounceable word for the rank, with suffixes that the stemmer removes */
+    private static String word(int rank) {
+        String[] syllables = { "ka", "lo", "mi", "re", "tu", "sa", "ne", "po", "di", "ve" };
+        String[] suffixes = { "", "", "s", "ing", "ed", "ation", "ness", "ly" };
+        StringBuilder word = new StringBuilder();
+        for (int r = rank; r > 0; r /= 10)
+            word.append(syllables[r % 10]);
+        return word.append(suffixes[rank % suffixes.length]).toString();
+    }
+
+    @Benchmark
+    public int extract() {
+        TokenCounter counter = new TokenCounter();
+        tokenExtractor.extract(texts[next++ & (TEXTS - 1)], counter);
+        return counter.tokens;
+    }
+}
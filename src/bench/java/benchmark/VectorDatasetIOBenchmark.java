@@ -0,0 +1,89 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import mining.textMining.bagOfWord.VectorDataset;
+import mining.textMining.bagOfWord.VectorSample;
+import util.io.FileUtils;
+
+/**
+ * Vectors files (sparse), as the BoGs written by BoTG for each fold and read by the classifiers.
+ * The file benchmarks handle a whole dataset per operation; parseSampleLine, a single line.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VectorDatasetIOBenchmark {
+
+    private static final int LINES = 256;
+
+    @Param({"1000"})
+    public int samples;
+
+    @Param({"10000"})
+    public int dimensions;
+
+    @Param({"16", "256"})
+    public int nonZeros;
+
+    private File folder, datasetFile, outputFile;
+    private VectorDataset dataset;
+    private String[] lines;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("vectorDatasetIO").toFile();
+        SyntheticSubgraphs generator = new SyntheticSubgraphs(42);
+        ArrayList<VectorSample> vectors = new ArrayList<>(samples);
+        for (int i = 0; i < samples; i++)
+            vectors.add(new VectorSample(i, "label" + (i % 4), generator.sparseVectorPair(dimensions, nonZeros, 0)[0]));
+        dataset = new VectorDataset(vectors);
+        datasetFile = new File(folder, "vectors");
+        outputFile = new File(folder, "output");
+        dataset.writeToFile(datasetFile, true, true);
+        List<String> fileLines = FileUtils.readLines(datasetFile);
+        lines = new String[LINES];
+        for (int i = 0; i < LINES; i++)
+            lines[i] = fileLines.get(1 + i % samples);
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtils.deleteQuietly(folder);
+    }
+
+    @Benchmark
+    public VectorSample parseSampleLine() {
+        return VectorDataset.parseSampleLine(lines[next++ & (LINES - 1)], dimensions);
+    }
+
+    @Benchmark
+    public VectorDataset loadFromFile() {
+        return VectorDataset.loadFromFile(datasetFile);
+    }
+
+    @Benchmark
+    public void writeToFile() {
+        dataset.writeToFile(outputFile, true, true);
+    }
+}
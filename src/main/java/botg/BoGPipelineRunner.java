@@ -0,0 +1,90 @@
+package botg;
+
+import java.io.File;
+import java.util.List;
+import java.util.logging.Level;
+import com.google.common.base.Preconditions;
+import botg.baseline.graph.GraphGeneratorConfigs;
+import botg.config.BoTGConfigs;
+import mining.bagOfGraphs.BoGPipeline;
+import mining.bagOfGraphs.CodebookIndex;
+import mining.bagOfGraphs.sampleSubgraph.SampleSubgraph;
+import mining.bagOfGraphs.sampleSubgraph.linkedElement.LinkedElementCodebookSnapshot;
+import mining.textMining.bagOfWord.VectorDataset;
+import mining.textMining.bagOfWord.VectorSample;
+import mining.textMining.parsing.TokenExtractor;
+import mining.textMining.textToGraph.GraphDataset;
+import mining.textMining.textToGraph.GraphDatasetStats;
+import mining.textMining.textToGraph.GraphTransformer;
+import mining.textMining.textToGraph.TextSampleToGraphSampleConverter;
+import mining.textMining.textToGraph.model.GraphType;
+import util.DataStructureUtils;
+import util.Logs;
+import util.Params;
+import util.io.FileUtils;
+import util.io.MatrixWriter;
+
+/**
+ * Vectorizes the documents of a dataset against an existing codebook, straight from their texts (see {@link BoGPipeline}).
+ * Takes the parameters of GraphGenerator and BoTG used to create the codebook, plus:
+ * codebook (codebook file written by BoTG), output (vectors file) and workers.
+ * The codebook is mapped from its binary snapshot, when given or found beside it and up to date, instead of parsed from the text.
+ * The corpus stats are the ones written by GraphGenerator beside the graphs folder.
+ * Multi-labeled documents are written with their first label, since the vectors file has one label per sample.
+ */
+public class BoGPipelineRunner {
+
+    public static void main(String[] args) {
+        try {
+            Params params = Params.parse(args);
+            GraphGeneratorConfigs graphConfigs = new GraphGeneratorConfigs(params);
+            BoTGConfigs configs = new BoTGConfigs(params);
+            File codebookFile = new File(params.assertParam("codebook"));
+            File outputFile = new File(params.assertParam("output"));
+            int workers = params.getInt("workers", graphConfigs.conversionWorkers);
+
+            FileUtils.mkDirsForFile(outputFile);
+            Logs.init(Level.FINER, new File(outputFile.getPath() + ".log"));
+            Logs.info("Running for configs: " + configs);
+
+            BoGPipeline pipeline = createPipeline(graphConfigs, configs, codebookFile);
+            try (MatrixWriter writer = VectorDataset.initWriter(outputFile, true, pipeline.getCodebook().size(), true)) {
+                pipeline.run(graphConfigs.createDatasetReader(), graphConfigs.textSampleFilter, bog -> {
+                    if (bog.getNumberLabels() > 1)
+                        bog.setLabels(DataStructureUtils.asSetUnit(bog.getFirstLabel()));
+                    VectorDataset.appendSample(writer, true, true, bog);
+                }, workers);
+            }
+        } catch (Throwable t) {
+            Logs.severe(t);
+        }
+    }
+
+    public static BoGPipeline createPipeline(GraphGeneratorConfigs graphConfigs, BoTGConfigs configs, File codebookFile) {
+        Preconditions.checkArgument(graphConfigs.graphTypes.length == 1, "a single graphType is expected");
+        GraphType graphType = graphConfigs.graphTypes[0];
+
+        TokenExtractor tokenExtractor = graphConfigs.createTokenExtractor();
+        TextSampleToGraphSampleConverter converter = new TextSampleToGraphSampleConverter(
+            tokenExtractor, graphType, graphConfigs.FORCE_REACH, graphConfigs.MAX_REACH, null);
+
+        File statsFile = GraphDataset.getStatsFile(graphConfigs.getDatasetRepresentationDestineFolder(graphType));
+        GraphDatasetStats stats = statsFile.exists() ? GraphDatasetStats.loadFromFile(statsFile) : null;
+        GraphTransformer graphTransformer = new GraphTransformer(graphType, stats, graphConfigs.minimumTermDF,
+            graphConfigs.induceEdgesAfterTermPrunning, graphConfigs.useTfIdf, graphConfigs.maxNodesByGraphToRetain);
+
+        return new BoGPipeline(converter, graphTransformer, configs.subgraphsHandler, loadCodebook(configs, codebookFile), configs.assignment, configs.pooling);
+    }
+
+    private static CodebookIndex loadCodebook(BoTGConfigs configs, File codebookFile) {
+        File snapshotFile = LinkedElementCodebookSnapshot.isSnapshot(codebookFile) ? codebookFile : LinkedElementCodebookSnapshot.getSnapshotFile(codebookFile);
+        if (snapshotFile == codebookFile || LinkedElementCodebookSnapshot.isCurrent(snapshotFile, codebookFile)) {
+            CodebookIndex codebook = LinkedElementCodebookSnapshot.load(snapshotFile);
+            Logs.fine("Codebook mapped with " + codebook.size() + " codewords from " + snapshotFile);
+            return codebook;
+        }
+        List<SampleSubgraph> codebook = configs.subgraphsHandler.loadSamplesSubgraphs(codebookFile, -1);
+        Logs.fine("Codebook loaded with " + codebook.size() + " codewords from " + codebookFile);
+        return new CodebookIndex(codebook);
+    }
+}
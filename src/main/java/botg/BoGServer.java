@@ -0,0 +1,241 @@
+package botg;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+import org.apache.commons.io.IOUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import botg.baseline.graph.GraphGeneratorConfigs;
+import botg.config.BoTGConfigs;
+import botg.dataset.JsonLinesReader;
+import mining.bagOfGraphs.BoGPipeline;
+import mining.bagOfGraphs.sampleSubgraph.SampleSubgraph;
+import mining.textMining.TextSample;
+import mining.textMining.bagOfWord.VectorSample;
+import util.ConcurrencyUtils;
+import util.JsonUtils;
+import util.LatencyHistogram;
+import util.Logs;
+import util.Metrics;
+import util.MicroBatcher;
+import util.Pair;
+import util.Params;
+
+/**
+ * Local HTTP server that vectorizes documents against a codebook kept in memory (see {@link BoGPipeline}), to be used as a sidecar.
+ * <ul>
+ * <li>POST /vectorize: a document as a JSON object ({"id": 1, "title": "...", "text": "..."}, as in {@link JsonLinesReader}; id is optional),
+ * an array of them, or {"documents": [...]}. Answers {"dimensions": n, "vectors": [{"id": 1, "indices": [...], "values": [...]}, ...]},
+ * in the order of the documents; documents left with no subgraph get empty vectors.</li>
+ * <li>GET /stats: request latency percentiles, queue depth of the assignment step, batch counts and subgraphs assigned (total and distinct).</li>
+ * </ul>
+ * Each request is tokenized and turned into subgraphs by its own thread; the assignment of the subgraphs to the codebook is done in
+ * micro-batches, grouping the documents of concurrent requests, by a fixed pool of workers. The documents of a batch share the
+ * assignment: a subgraph present in several of them is compared with the codebook once.
+ * A request whose documents are not all assigned within requestTimeoutMillis is answered with 503.
+ * Takes the parameters of BoGPipelineRunner (except output) plus: port, httpThreads, workers (assignment workers), batchSize, batchWaitMillis
+ * and requestTimeoutMillis.
+ */
+public class BoGServer implements AutoCloseable {
+
+    private final BoGPipeline pipeline;
+    private final HttpServer server;
+    private final ExecutorService httpThreads;
+    private final ForkJoinPool assignmentPool;
+    private final MicroBatcher<Pair<TextSample,List<SampleSubgraph>>,VectorSample> assignmentBatcher;
+    private final LatencyHistogram requestLatencies = new LatencyHistogram();
+    private final LatencyHistogram batchLatencies = new LatencyHistogram();
+    private final AtomicLong documents = new AtomicLong(), failures = new AtomicLong();
+    private final long requestTimeoutNanos;
+
+    public BoGServer(BoGPipeline pipeline, int port, int httpThreads, int workers, int batchSize, long batchWaitMillis, long requestTimeoutMillis)
+        throws IOException
+    {
+        this.pipeline = pipeline;
+        this.requestTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(requestTimeoutMillis);
+        this.assignmentPool = new ForkJoinPool(workers);
+        this.assignmentBatcher = new MicroBatcher<>("BoG assignment", this::assign, batchSize, batchWaitMillis);
+        this.httpThreads = Executors.newFixedThreadPool(httpThreads);
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.setExecutor(this.httpThreads);
+        server.createContext("/vectorize", exchange -> handle(exchange, "POST", this::vectorize));
+        server.createContext("/stats", exchange -> handle(exchange, "GET", body -> getStats()));
+        server.start();
+        Logs.info("BoGServer listening on " + server.getAddress());
+    }
+
+    public static void main(String[] args) {
+        try {
+            Params params = Params.parse(args);
+            GraphGeneratorConfigs graphConfigs = new GraphGeneratorConfigs(params);
+            BoTGConfigs configs = new BoTGConfigs(params);
+            File codebookFile = new File(params.assertParam("codebook"));
+            Logs.init(Level.FINE, params.get("logFile"));
+            Logs.info("Running for configs: " + configs);
+
+            BoGPipeline pipeline = BoGPipelineRunner.createPipeline(graphConfigs, configs, codebookFile);
+            int processors = ConcurrencyUtils.getAvailableProcessors();
+            BoGServer server = new BoGServer(pipeline, params.getInt("port", 8090), params.getInt("httpThreads", 2 * processors),
+                params.getInt("workers", processors), params.getInt("batchSize", 64), params.getInt("batchWaitMillis", 2),
+                params.getInt("requestTimeoutMillis", 30000));
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        } catch (Throwable t) {
+            Logs.severe(t);
+        }
+    }
+
+    private interface Handler {
+        Object handle(String body) throws Exception;
+    }
+
+    private void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        long start = System.nanoTime();
+        int status = 200;
+        Object response;
+        try {
+            if (!method.equals(exchange.getRequestMethod())) {
+                status = 405;
+                response = error(method + " expected");
+            } else {
+                String body;
+                try (InputStream in = exchange.getRequestBody()) {
+                    body = IOUtils.toString(in, StandardCharsets.UTF_8);
+                }
+                response = handler.handle(body);
+            }
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            response = error(e.getMessage());
+        } catch (TimeoutException e) {
+            failures.incrementAndGet();
+            String message = "documents not vectorized within " + TimeUnit.NANOSECONDS.toMillis(requestTimeoutNanos) + " ms";
+            Logs.warn(message);
+            status = 503;
+            response = error(message);
+        } catch (Throwable t) {
+            failures.incrementAndGet();
+            Logs.severe(t);
+            status = 500;
+            response = error(String.valueOf(t));
+        }
+        byte[] bytes = JsonUtils.toJson(response).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        if (status == 200 && "POST".equals(method))
+            requestLatencies.recordSince(start);
+    }
+
+    private static Map<String,Object> error(String message) {
+        Map<String,Object> error = new LinkedHashMap<>();
+        error.put("error", message);
+        return error;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object vectorize(String body) throws InterruptedException, ExecutionException, TimeoutException {
+        Object json = JsonUtils.parse(body);
+        if (json instanceof Map && ((Map<String,Object>) json).containsKey("documents"))
+            json = ((Map<String,Object>) json).get("documents");
+        List<Object> objects = json instanceof List ? (List<Object>) json : Arrays.asList(json);
+
+        List<TextSample> samples = new ArrayList<>(objects.size());
+        for (Object object : objects) {
+            if (!(object instanceof Map))
+                throw new IllegalArgumentException("JSON object expected for each document");
+            samples.add(JsonLinesReader.toTextSample((Map<String,Object>) object, (long) samples.size()));
+        }
+        documents.addAndGet(samples.size());
+
+        long deadline = System.nanoTime() + requestTimeoutNanos;
+        List<CompletableFuture<VectorSample>> bogs = new ArrayList<>(samples.size());
+        for (TextSample sample : samples) {
+            List<SampleSubgraph> subgraphs = pipeline.extractSubgraphs(sample);
+            bogs.add(subgraphs != null ? assignmentBatcher.submit(Pair.get(sample, subgraphs)) : null);
+        }
+
+        List<Object> vectors = new ArrayList<>(samples.size());
+        for (int i = 0; i < samples.size(); i++) {
+            Map<String,Object> vector = new LinkedHashMap<>();
+            vector.put("id", samples.get(i).getId());
+            List<Integer> indices = new ArrayList<>();
+            List<Float> values = new ArrayList<>();
+            if (bogs.get(i) != null) {
+                bogs.get(i).get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS).forEachNonZero((index, value) -> {
+                    indices.add(index);
+                    values.add(value);
+                });
+            }
+            vector.put("indices", indices);
+            vector.put("values", values);
+            vectors.add(vector);
+        }
+        Map<String,Object> response = new LinkedHashMap<>();
+        response.put("dimensions", pipeline.getCodebook().size());
+        response.put("vectors", vectors);
+        return response;
+    }
+
+    /** assignment of the subgraphs of a micro-batch of documents, each distinct subgraph of the batch assigned once */
+    private List<VectorSample> assign(List<Pair<TextSample,List<SampleSubgraph>>> batch) {
+        long start = System.nanoTime();
+        List<TextSample> samples = batch.stream().map(Pair::getA).collect(Collectors.toList());
+        List<List<SampleSubgraph>> subgraphs = batch.stream().map(Pair::getB).collect(Collectors.toList());
+        List<VectorSample> bogs;
+        try {
+            bogs = assignmentPool.submit(() -> pipeline.assign(samples, subgraphs)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        batchLatencies.recordSince(start);
+        return bogs;
+    }
+
+    public Map<String,Object> getStats() {
+        Map<String,Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requestLatencies.getCount());
+        stats.put("documents", documents.get());
+        stats.put("failures", failures.get());
+        stats.put("requestLatency", Metrics.toMap(requestLatencies));
+        stats.put("queueDepth", assignmentBatcher.getQueueDepth());
+        stats.put("batches", assignmentBatcher.getBatchCount());
+        stats.put("averageBatchSize", assignmentBatcher.getAverageBatchSize());
+        stats.put("batchLatency", Metrics.toMap(batchLatencies));
+        stats.put("batchSubgraphs", Metrics.counter("bog.batchSubgraphs").get());
+        stats.put("batchDistinctSubgraphs", Metrics.counter("bog.batchDistinctSubgraphs").get());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        httpThreads.shutdown();
+        assignmentBatcher.close();
+        assignmentPool.shutdown();
+        Logs.info("BoGServer stopped. Request latencies: " + requestLatencies);
+    }
+}
@@ -0,0 +1,77 @@
+package botg;
+
+import java.io.File;
+import botg.baseline.graph.GraphGeneratorConfigs;
+import botg.config.BoTGConfigs;
+import mining.Sample;
+import mining.bagOfGraphs.BoGPipeline;
+import mining.textMining.TextSample;
+import mining.textMining.bagOfWord.VectorSample;
+import mining.textMining.textToGraph.model.GraphSample;
+import util.FloatVectorFactory;
+import util.LatencyHistogram;
+import util.Logs;
+import util.TimeWatcher;
+
+/**
+ * Vectorizes documents against a codebook kept in memory, for a long-running JVM: the codebook (with its assignment index) and the
+ * corpus stats are loaded once, then each call only processes its own document (see {@link BoGPipeline}).
+ * Documents left with no subgraph (e.g. having no term of the corpus) get an all-zero vector.
+ * The latency of every call is recorded; it can be called concurrently.
+ */
+public class BoGVectorizer {
+
+    private final BoGPipeline pipeline;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    public BoGVectorizer(BoGPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * @param graphConfigs configs of the graph generation of the corpus, whose stats are used
+     * @param configs configs of the BoG generation of the codebook
+     */
+    public BoGVectorizer(GraphGeneratorConfigs graphConfigs, BoTGConfigs configs, File codebookFile) {
+        TimeWatcher watcher = new TimeWatcher();
+        this.pipeline = BoGPipelineRunner.createPipeline(graphConfigs, configs, codebookFile);
+        Logs.fine("BoGVectorizer ready after " + watcher);
+    }
+
+    public int getDimensions() {
+        return pipeline.getCodebook().size();
+    }
+
+    public VectorSample vectorize(long id, String text) {
+        return vectorize(new TextSample(id, null, null, text, null));
+    }
+
+    public VectorSample vectorize(TextSample sample) {
+        long start = System.nanoTime();
+        VectorSample bog = pipeline.createBoG(sample);
+        return finish(sample, bog, start);
+    }
+
+    /** @param sample graph of raw weights (as created from the text), which is transformed in place */
+    public VectorSample vectorize(GraphSample sample) {
+        long start = System.nanoTime();
+        VectorSample bog = pipeline.createBoG(sample);
+        return finish(sample, bog, start);
+    }
+
+    private VectorSample finish(Sample sample, VectorSample bog, long start) {
+        if (bog == null)
+            bog = new VectorSample(sample.getId(), sample.getLabels(), FloatVectorFactory.create(getDimensions()));
+        latencies.recordSince(start);
+        return bog;
+    }
+
+    /** latencies of the calls made so far */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    public void logLatencies() {
+        Logs.fine("BoGVectorizer latencies: " + latencies);
+    }
+}
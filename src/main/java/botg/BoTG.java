@@ -4,29 +4,52 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+import java.util.function.Supplier;
 import java.util.logging.Level;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.ObjectArrays;
 import botg.config.BoTGConfigs;
 import mining.Dataset;
 import mining.DatasetCrossFold;
 import mining.SamplePathResolver;
 import mining.bagOfGraphs.BoGCreator;
 import mining.bagOfGraphs.CodebookGenerator;
+import mining.bagOfGraphs.CodebookGeneratorClustering;
+import mining.bagOfGraphs.CodebookUpdate;
 import mining.bagOfGraphs.TypeAssignment;
 import mining.bagOfGraphs.TypePooling;
 import mining.bagOfGraphs.sampleSubgraph.SampleSubgraph;
 import mining.bagOfGraphs.sampleSubgraph.SubgraphsHandler;
+import mining.bagOfGraphs.sampleSubgraph.linkedElement.LinkedElement;
+import mining.bagOfGraphs.sampleSubgraph.linkedElement.LinkedElementCodebookSnapshot;
 import mining.textMining.bagOfWord.VectorDataset;
 import mining.textMining.bagOfWord.VectorSample;
 import mining.textMining.textToGraph.GraphDataset;
 import mining.textMining.textToGraph.GraphDatasetStats;
+import util.ConcurrencyUtils;
 import util.DateUtil;
 import util.Logs;
+import util.MemoryBudget;
+import util.Metrics;
 import util.Pair;
 import util.Params;
+import util.StageTimer;
 import util.StringUtils;
+import util.io.FileUtils;
 
 public class BoTG {
 
+    //entrada de um vetor esparso (FloatVectorSparse): entrada do HashMap, chave Integer e valor Float
+    private static final int BYTES_PER_BOG_ENTRY = 64;
+
     public static void main(String[] args) {
     	try {
             Params params = Params.parse(args);
@@ -39,7 +62,15 @@ public class BoTG {
         }
     }
 
-	private static void run(String outputDirname, BoTGConfigs configs) {
+	/** @return the output folder, where the metrics of the run (see {@link Metrics}) are written as metrics.json */
+	static File run(String outputDirname, BoTGConfigs configs) {
+	    return run(outputDirname, configs, true);
+	}
+
+	/** @param resetMetrics false if the caller has already reset the metrics and recorded stages of its own in them (e.g. PipelineBenchmark) */
+	static File run(String outputDirname, BoTGConfigs configs, boolean resetMetrics) {
+	    if(resetMetrics) //apenas as metricas desta rodada
+	        Metrics.reset();
 	    File outputDir;
 	    if(StringUtils.isNotEmpty(outputDirname)){
 	        outputDir = new File(configs.getDatasetResultsFolder(), outputDirname);
@@ -49,40 +80,344 @@ public class BoTG {
 		Logs.init(Level.FINEST, new File(outputDir, BoTG.class.getSimpleName() + "_" + DateUtil.formatDateTimeFull() + ".txt"));
 	    Logs.info("Running for configs: " + configs);
 
+	    //uma rodada interrompida e retomada, na mesma pasta de saida, a partir dos estagios ja completados
+	    StageManifest manifest = new StageManifest(outputDir, "randomSeed=" + configs.randomSeed, "subgraphDistance=" + configs.getSubgraphDistance());
         run(configs.getGraphsFolder(), configs.getFoldDistributionsDir(), configs.subgraphsHandler,
-        	configs.codebookGenerator, configs.assignment, configs.pooling,
-            configs.nFolds, outputDir);
+        	configs.codebookGenerator, configs.baseCodebook, configs.generateGlobalCodebook, configs.assignment, configs.pooling,
+            configs.nFolds, configs.foldWorkers, configs.foldMemoryFraction, outputDir, manifest);
+        Logs.info("Stages:\n" + Metrics.getStages());
+        Metrics.writeReport(new File(outputDir, "metrics.json"));
+        return outputDir;
 	}
 
+	/**
+	 * Runs the stages not completed yet according to the manifest: subgraphs, datasetStats, the codebookSet and codebook (global or of each fold)
+	 * and the train/test vectors of each fold. With foldWorkers > 1, the folds run concurrently (see {@link #runFoldsConcurrently}).
+	 * @param baseCodebookFile if not null, the codebooks are updated from it instead of generated (see {@link #updateCodebook})
+	 */
     private static void run(SamplePathResolver samplesFolder, File foldDistributionsDir, SubgraphsHandler subgraphsHandler,
-        CodebookGenerator codebookGenerator, TypeAssignment assignmentType, TypePooling poolingType, int numFolds, File outputDir)
+        CodebookGenerator codebookGenerator, File baseCodebookFile, boolean generateGlobalCodebook, TypeAssignment assignmentType, TypePooling poolingType, int numFolds,
+        int foldWorkers, double foldMemoryFraction, File outputDir, StageManifest manifest)
     {
         final boolean skipMissingSamples = true; //ignoramos arquivos faltantes pois certos filtros do graph generator podem skipar amostras (ex: prune de termos torna amostras vazias e as ignoramos)
 
         File subgraphsDir = new File(outputDir, "subgraphs");
-        subgraphsHandler.extractAndSaveSampleSubgraphs(samplesFolder, subgraphsDir, false);
+        String subgraphsHash = extractSubgraphs(samplesFolder, subgraphsHandler, subgraphsDir, manifest);
 
-    	GraphDatasetStats datasetStats = null;
-    	if(codebookGenerator.isDatasetStatsRequired())
-    	    datasetStats = GraphDataset.loadFromFolder(samplesFolder).computeStatistics();
+    	Pair<GraphDatasetStats,String> stats = codebookGenerator.isDatasetStatsRequired() ? obtainDatasetStats(samplesFolder, outputDir, manifest) : new Pair<>(null, null);
+    	GraphDatasetStats datasetStats = stats.getA();
+    	String statsHash = stats.getB();
+    	String codebookSetStatsHash = codebookGenerator.isCodebookSetFiltered() ? statsHash : null;
 
-        for (int foldNumber = 0; foldNumber < numFolds; foldNumber++) {
+    	File globalCodebookFile = new File(outputDir, "global_codebook");
+    	String globalCodebookHash = null;
+    	if(generateGlobalCodebook){ //codebook unico para todos os folds, gerado a partir de todas as amostras, inclusive as de teste (transdutivo, por isso opcional)
+    	    Logs.fine("Generating global codebook");
+    	    File trainFoldFile = DatasetCrossFold.getTrainFoldFile(foldDistributionsDir, 0), testFoldFile = DatasetCrossFold.getTestFoldFile(foldDistributionsDir, 0);
+    	    List<Pair<String,String>> allSamples = GraphDataset.loadSubsetDescritor(trainFoldFile);
+    	    allSamples.addAll(GraphDataset.loadSubsetDescritor(testFoldFile));
+    	    globalCodebookHash = generateCodebook(subgraphsHandler, codebookGenerator, baseCodebookFile, datasetStats, statsHash, () -> Dataset.loadSubsetFiles(subgraphsDir, skipMissingSamples, allSamples),
+    	        allSamples.size(), globalCodebookFile, manifest, subgraphsHash, codebookSetStatsHash, trainFoldFile, testFoldFile);
+    	}
+    	String codebookHashOfAllFolds = globalCodebookHash;
+    	//carregado uma unica vez, pelo primeiro fold que precisar
+    	Supplier<List<SampleSubgraph>> globalCodebook = Suppliers.memoize(() -> loadCodebook(subgraphsHandler, globalCodebookFile))::get;
+
+    	IntConsumer runFold = foldNumber -> {
 			Logs.fine("Running for fold=" + foldNumber);
-			List<Pair<String,String>> trainSubset = GraphDataset.loadSubsetDescritor(DatasetCrossFold.getTrainFoldFile(foldDistributionsDir, foldNumber));
-			List<Pair<String,String>> testSubset = GraphDataset.loadSubsetDescritor(DatasetCrossFold.getTestFoldFile(foldDistributionsDir, foldNumber));
+			File trainFoldFile = DatasetCrossFold.getTrainFoldFile(foldDistributionsDir, foldNumber);
+			File testFoldFile = DatasetCrossFold.getTestFoldFile(foldDistributionsDir, foldNumber);
+			List<Pair<String,String>> trainSubset = GraphDataset.loadSubsetDescritor(trainFoldFile);
+			List<Pair<String,String>> testSubset = GraphDataset.loadSubsetDescritor(testFoldFile);
+
+    		File codebookFile = globalCodebookFile;
+    		String codebookHash = codebookHashOfAllFolds;
+    		if(!generateGlobalCodebook){
+    		    codebookFile = new File(outputDir, foldNumber + "_codebook");
+    		    codebookHash = generateCodebook(subgraphsHandler, codebookGenerator, baseCodebookFile, datasetStats, statsHash, () -> Dataset.loadSubsetFiles(subgraphsDir, skipMissingSamples, trainSubset),
+    		        trainSubset.size(), codebookFile, manifest, subgraphsHash, codebookSetStatsHash, trainFoldFile);
+    		}
+
+    		String vectorsStage = foldNumber + "_vectors";
+    		String vectorsKey = manifest.key(vectorsStage, assignmentType, poolingType, codebookHash, subgraphsHash, trainFoldFile, testFoldFile);
+    		if(manifest.isCompleted(vectorsStage, vectorsKey)){
+    		    Logs.fine("Vectors of fold " + foldNumber + " were already created");
+    		    return;
+    		}
 
-    		File codebookFile = new File(outputDir, foldNumber + "_codebook");
-    		codebookGenerator.generate(subgraphsHandler, datasetStats, Dataset.loadSubsetFiles(subgraphsDir, skipMissingSamples, trainSubset), codebookFile);
-    		List<SampleSubgraph> codebook = subgraphsHandler.loadSamplesSubgraphs(codebookFile, -1);
+    		List<SampleSubgraph> codebook = generateGlobalCodebook ? globalCodebook.get() : loadCodebook(subgraphsHandler, codebookFile);
 
     	    ArrayList<VectorSample> trainBoGs, testBoGs;
-	        Pair<ArrayList<VectorSample>,ArrayList<VectorSample>> bogs = obtainBoGs(subgraphsHandler, subgraphsDir, skipMissingSamples, codebook, assignmentType, poolingType,
-                trainSubset, testSubset);
-	        trainBoGs = bogs.getA();
-	        testBoGs = bogs.getB();
-		    VectorDataset.normalizeAttributes(trainBoGs, testBoGs);
-		    new VectorDataset(trainBoGs).writeToFile(new File(outputDir,foldNumber+"_trainVectors"), true, true);
-		    new VectorDataset(testBoGs).writeToFile(new File(outputDir,foldNumber+"_testVectors"), true, true);
+    	    StageTimer.Stage stage = Metrics.stage("bog").addItems(trainSubset.size() + testSubset.size());
+    	    try {
+	            Pair<ArrayList<VectorSample>,ArrayList<VectorSample>> bogs = obtainBoGs(subgraphsHandler, subgraphsDir, skipMissingSamples, codebook, assignmentType, poolingType,
+                    trainSubset, testSubset);
+	            trainBoGs = bogs.getA();
+	            testBoGs = bogs.getB();
+    	    } finally {
+    	        stage.close();
+    	    }
+    	    File trainVectorsFile = new File(outputDir,foldNumber+"_trainVectors"), testVectorsFile = new File(outputDir,foldNumber+"_testVectors");
+    	    writeVectors(trainBoGs, testBoGs, trainVectorsFile, testVectorsFile);
+    	    manifest.complete(vectorsStage, vectorsKey, trainVectorsFile, testVectorsFile);
+    	};
+
+    	if(foldWorkers > 1 && numFolds > 1){
+    	    double bytesPerSubgraph = estimateBytesPerSubgraph(subgraphsDir);
+    	    long globalCodebookSize = generateGlobalCodebook ? (long) (globalCodebookFile.length() / bytesPerSubgraph) : 0;
+    	    runFoldsConcurrently(numFolds, foldWorkers, MemoryBudget.ofFreeHeap(foldMemoryFraction), foldNumber -> {
+    	        List<Pair<String,String>> trainSubset = GraphDataset.loadSubsetDescritor(DatasetCrossFold.getTrainFoldFile(foldDistributionsDir, foldNumber));
+    	        List<Pair<String,String>> testSubset = GraphDataset.loadSubsetDescritor(DatasetCrossFold.getTestFoldFile(foldDistributionsDir, foldNumber));
+    	        return estimateFoldMemory(codebookGenerator, generateGlobalCodebook, globalCodebookSize, assignmentType, bytesPerSubgraph,
+    	            Dataset.loadSubsetFiles(subgraphsDir, skipMissingSamples, trainSubset), Dataset.loadSubsetFiles(subgraphsDir, skipMissingSamples, testSubset));
+    	    }, runFold);
+    	}else{
+    	    for (int foldNumber = 0; foldNumber < numFolds; foldNumber++)
+    	        runFold.accept(foldNumber);
+    	}
+    }
+
+    /**
+     * Extracts the subgraphs of the samples into the folder, unless the manifest has them from the same inputs; an interrupted extraction is resumed.
+     * @param inputs what the subgraphs depend on, besides the handler and the samples
+     * @return the hash of the subgraphs, input of the stages using them
+     */
+    static String extractSubgraphs(SamplePathResolver samplesFolder, SubgraphsHandler subgraphsHandler, File subgraphsDir, StageManifest manifest, Object... inputs) {
+        String subgraphsStage = subgraphsDir.getName();
+        String subgraphsKey = manifest.key(subgraphsStage, Lists.asList(subgraphsHandler, samplesFolder.getRootFolder(), inputs).toArray());
+        if(!manifest.isCompleted(subgraphsStage, subgraphsKey)){
+            //extracao interrompida: os arquivos ja gravados sao mantidos (a gravacao de cada um e atomica)
+            boolean resume = manifest.isStarted(subgraphsStage, subgraphsKey) && subgraphsDir.isDirectory();
+            manifest.start(subgraphsStage, subgraphsKey);
+            try (StageTimer.Stage stage = Metrics.stage("extraction")) {
+                if(resume){
+                    Logs.fine("Resuming the extraction of subgraphs into " + subgraphsDir);
+                    for(File tempFile : FileUtils.getFilesByExtension(subgraphsDir, "tmp"))
+                        FileUtils.deleteQuietly(tempFile);
+                }
+                //retomada pula os arquivos ja extraidos, mas uma amostra que falhou deixa o estagio pendente
+                long failed = subgraphsHandler.extractAndSaveSampleSubgraphs(samplesFolder, subgraphsDir, resume);
+                if(failed > 0)
+                    throw new RuntimeException(failed + " samples failed the extraction of subgraphs into " + subgraphsDir + "; the stage is left to be resumed");
+                String[] extracted = subgraphsDir.list();
+                stage.addItems(extracted == null ? 0 : extracted.length);
+            }
+            manifest.complete(subgraphsStage, subgraphsKey, subgraphsDir);
+        }
+        return manifest.getOutputHash(subgraphsStage, subgraphsKey);
+    }
+
+    static Pair<GraphDatasetStats,String> obtainDatasetStats(SamplePathResolver samplesFolder, File outputDir, StageManifest manifest) {
+        GraphDatasetStats datasetStats;
+        File statsFile = new File(outputDir, "dataset.stats");
+        String statsKey = manifest.key("datasetStats", samplesFolder.getRootFolder());
+        if(manifest.isCompleted("datasetStats", statsKey)){
+            datasetStats = GraphDatasetStats.loadFromFile(statsFile);
+        }else{
+            StageTimer.Stage stage = Metrics.stage("datasetStats");
+            try {
+                datasetStats = GraphDataset.loadFromFolder(samplesFolder).computeStatistics();
+            } finally {
+                stage.close();
+            }
+            datasetStats.writeToFile(statsFile);
+            manifest.complete("datasetStats", statsKey, statsFile);
+        }
+        return new Pair<>(datasetStats, manifest.getOutputHash("datasetStats", statsKey));
+    }
+
+    /**
+     * Runs the folds on a dedicated pool of foldWorkers threads, each one once its estimated memory is admitted by the budget, so that the folds
+     * running at the same time do not exhaust the heap. The first fold failing cancels the others, and its exception is rethrown.
+     */
+    private static void runFoldsConcurrently(int numFolds, int foldWorkers, MemoryBudget budget, IntToLongFunction estimateMemory, IntConsumer runFold) {
+        Logs.fine("Running " + numFolds + " folds, up to " + foldWorkers + " at a time, within " + budget);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(foldWorkers, numFolds));
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int fold = 0; fold < numFolds; fold++) {
+                int foldNumber = fold;
+                results.add(executor.submit(() -> {
+                    long estimated = estimateMemory.applyAsLong(foldNumber);
+                    long start = System.nanoTime();
+                    long reserved = budget.acquire(estimated);
+                    Metrics.recordSince("folds.admissionWait", start);
+                    Logs.finer("Fold " + foldNumber + " admitted with estimated memory of " + (estimated >> 20) + " MB: " + budget);
+                    try {
+                        runFold.accept(foldNumber);
+                    } finally {
+                        budget.release(reserved);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results)
+                result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw ConcurrencyUtils.propagate(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** mean bytes of a subgraph in the subgraphs files, measured on up to 100 of them */
+    private static double estimateBytesPerSubgraph(File subgraphsDir) {
+        File[] files = subgraphsDir.listFiles();
+        long bytes = 0, lines = 0;
+        for (int i = 0; files != null && i < files.length; i += Math.max(files.length / 100, 1)) {
+            bytes += files[i].length();
+            lines += FileUtils.readLines(files[i]).size();
+        }
+        return lines == 0 ? 1 : (double) bytes / lines;
+    }
+
+    /**
+     * Estimated peak heap of a fold: the generation of its codebook (see {@link CodebookGenerator#estimateMemory(long, long)}), with a candidate
+     * per subgraph of the train samples, and its vectors, with an entry per subgraph of the samples (HARD) or per codeword (SOFT).
+     */
+    private static long estimateFoldMemory(CodebookGenerator codebookGenerator, boolean generateGlobalCodebook, long globalCodebookSize,
+        TypeAssignment assignmentType, double bytesPerSubgraph, Iterable<File> trainFiles, Iterable<File> testFiles)
+    {
+        long trainBytes = 0, testBytes = 0, numSamples = 0;
+        for (File f : trainFiles) {
+            trainBytes += f.length();
+            numSamples++;
+        }
+        for (File f : testFiles) {
+            testBytes += f.length();
+            numSamples++;
+        }
+        long trainSubgraphs = (long) (trainBytes / bytesPerSubgraph);
+        long codebookGeneration = generateGlobalCodebook ? 0 : codebookGenerator.estimateMemory(trainSubgraphs, trainBytes);
+        long codebookSize = generateGlobalCodebook ? globalCodebookSize : codebookGenerator.getMaxCodebookSize(trainSubgraphs);
+        long bogEntries = assignmentType == TypeAssignment.SOFT ? numSamples * codebookSize : (long) ((trainBytes + testBytes) / bytesPerSubgraph);
+        return codebookGeneration + bogEntries * BYTES_PER_BOG_ENTRY;
+    }
+
+    /**
+     * Generates the codebook, unless the manifest has it from the same inputs; the codebookSet is checkpointed as well, and deleted
+     * once the codebook is generated.
+     * @param baseCodebookFile if not null, the codebook is updated from it instead (see {@link #updateCodebook})
+     * @param statsHash hash of the dataset stats, input of the codebook when the generator requires them (null otherwise)
+     * @param codebookSetInputs what the codebookSet is created from, besides the codebook generator
+     * @return the hash of the codebook, input of the stages using it
+     */
+    private static String generateCodebook(SubgraphsHandler subgraphsHandler, CodebookGenerator codebookGenerator, File baseCodebookFile, GraphDatasetStats datasetStats,
+        String statsHash, Supplier<Iterable<File>> subgraphsFiles, int numSamples, File codebookFile, StageManifest manifest, Object... codebookSetInputs)
+    {
+        if(baseCodebookFile != null)
+            return updateCodebook(subgraphsHandler, (CodebookGeneratorClustering) codebookGenerator, baseCodebookFile, datasetStats, statsHash, subgraphsFiles, numSamples,
+                codebookFile, manifest, codebookSetInputs);
+        File codebookSetFile = codebookGenerator.getCodebookSetFile(codebookFile);
+        String codebookSetKey = getCodebookSetKey(manifest, codebookGenerator, codebookSetFile, codebookSetInputs);
+        String codebookHash = generateCodebook(codebookGenerator, () -> codebookGenerator.generate(subgraphsHandler, datasetStats, codebookSetFile, codebookFile),
+            codebookSetFile, codebookSetKey,
+            () -> createCodebookSet(subgraphsHandler, codebookGenerator, datasetStats, subgraphsFiles.get(), codebookSetFile, codebookSetKey, manifest),
+            numSamples, codebookFile, manifest, statsHash);
+        FileUtils.deleteQuietly(codebookSetFile);
+        return codebookHash;
+    }
+
+    /**
+     * Updates the base codebook with the subgraphs of the samples (see {@link CodebookGeneratorClustering#update}), unless the manifest has it from the same inputs.
+     * The codewords of the base codebook keep their dimensions, so the vectors created with it are brought to the updated one by {@link CodebookUpdate#remap}.
+     * @param inputs what the candidates are created from, besides the codebook generator
+     * @return the hash of the codebook, input of the stages using it
+     */
+    private static String updateCodebook(SubgraphsHandler subgraphsHandler, CodebookGeneratorClustering codebookGenerator, File baseCodebookFile,
+        GraphDatasetStats datasetStats, String statsHash, Supplier<Iterable<File>> subgraphsFiles, int numSamples, File codebookFile, StageManifest manifest,
+        Object... inputs)
+    {
+        String codebookStage = codebookFile.getName();
+        String codebookKey = manifest.key(codebookStage, ObjectArrays.concat(new Object[]{ codebookGenerator.getSettings(), baseCodebookFile, statsHash }, inputs, Object.class));
+        if(!manifest.isCompleted(codebookStage, codebookKey)){
+            CodebookUpdate update;
+            StageTimer.Stage stage = Metrics.stage("codebook").addItems(numSamples);
+            try {
+                update = codebookGenerator.update(subgraphsHandler, datasetStats, baseCodebookFile, subgraphsFiles.get(), codebookFile);
+            } finally {
+                stage.close();
+            }
+            Logs.info("Codebook " + codebookStage + " updated from " + baseCodebookFile + ": " + update.getPreviousSize() + " codewords kept, "
+                + update.getNumNewCodewords() + " new");
+            manifest.complete(codebookStage, codebookKey, codebookFile);
+        }
+        return manifest.getOutputHash(codebookStage, codebookKey);
+    }
+
+    /** key of the codebookSet created from the inputs, which is the same for the generators of the same candidate settings (see {@link CodebookGenerator#getCandidateSettings()}) */
+    static String getCodebookSetKey(StageManifest manifest, CodebookGenerator codebookGenerator, File codebookSetFile, Object... inputs) {
+        return manifest.key(codebookSetFile.getName(), ObjectArrays.concat(codebookGenerator.getCandidateSettings(), inputs));
+    }
+
+    /**
+     * Creates the codebookSet, unless the manifest has it from the same key.
+     * @return the hash of the codebookSet
+     */
+    static String createCodebookSet(SubgraphsHandler subgraphsHandler, CodebookGenerator codebookGenerator, GraphDatasetStats datasetStats,
+        Iterable<File> subgraphsFiles, File codebookSetFile, String codebookSetKey, StageManifest manifest)
+    {
+        String codebookSetStage = codebookSetFile.getName();
+        if(!manifest.isCompleted(codebookSetStage, codebookSetKey)){
+            StageTimer.Stage stage = Metrics.stage("codebookSet").addItems(Iterables.size(subgraphsFiles));
+            try {
+                codebookGenerator.createCodebookCandidates(subgraphsHandler, datasetStats, subgraphsFiles, codebookSetFile);
+            } finally {
+                stage.close();
+            }
+            manifest.complete(codebookSetStage, codebookSetKey, codebookSetFile);
+        }
+        return manifest.getOutputHash(codebookSetStage, codebookSetKey);
+    }
+
+    /**
+     * Generates the codebook from the codebookSet, unless the manifest has it from the same codebookSet, in which case this one is not even created.
+     * @param generation writes the codebook file from the codebookSet, usually by {@link CodebookGenerator#generate}
+     * @param createCodebookSet creates the codebookSet if needed (see {@link #createCodebookSet}), returning its hash
+     * @param inputs what the codebook depends on, besides the codebook generator and the codebookSet
+     * @return the hash of the codebook, input of the stages using it
+     */
+    static String generateCodebook(CodebookGenerator codebookGenerator, Runnable generation, File codebookSetFile,
+        String codebookSetKey, Supplier<String> createCodebookSet, int numSamples, File codebookFile, StageManifest manifest, Object... inputs)
+    {
+        String codebookStage = codebookFile.getName();
+        String codebookSetHash = manifest.getOutputHash(codebookSetFile.getName(), codebookSetKey);
+        String codebookKey = codebookSetHash == null ? null : manifest.key(codebookStage, Lists.asList(codebookGenerator.getSettings(), codebookSetHash, inputs).toArray());
+        if(codebookKey == null || !manifest.isCompleted(codebookStage, codebookKey)){
+            codebookSetHash = createCodebookSet.get();
+            codebookKey = manifest.key(codebookStage, Lists.asList(codebookGenerator.getSettings(), codebookSetHash, inputs).toArray());
+            StageTimer.Stage stage = Metrics.stage("codebook").addItems(numSamples);
+            try {
+                generation.run();
+            } finally {
+                stage.close();
+            }
+            manifest.complete(codebookStage, codebookKey, codebookFile);
+        }
+        return manifest.getOutputHash(codebookStage, codebookKey);
+    }
+
+    /** loads the codebook written by the generator, also writing its binary snapshot (for BoGPipelineRunner, BoGVectorizer and BoGServer) unless current */
+    static List<SampleSubgraph> loadCodebook(SubgraphsHandler subgraphsHandler, File codebookFile) {
+        List<SampleSubgraph> codebook = subgraphsHandler.loadSamplesSubgraphs(codebookFile, -1);
+        File snapshotFile = LinkedElementCodebookSnapshot.getSnapshotFile(codebookFile);
+        if(!codebook.isEmpty() && codebook.get(0) instanceof LinkedElement && !LinkedElementCodebookSnapshot.isCurrent(snapshotFile, codebookFile))
+            LinkedElementCodebookSnapshot.write(codebook, snapshotFile);
+        return codebook;
+    }
+
+    /** normalizes the attributes of the train and test vectors of a fold, and writes them */
+    static void writeVectors(ArrayList<VectorSample> trainBoGs, ArrayList<VectorSample> testBoGs, File trainVectorsFile, File testVectorsFile) {
+        StageTimer.Stage stage = Metrics.stage("output").addItems(trainBoGs.size() + testBoGs.size());
+        try {
+            VectorDataset.normalizeAttributes(trainBoGs, testBoGs);
+            new VectorDataset(trainBoGs).writeToFile(trainVectorsFile, true, true);
+            new VectorDataset(testBoGs).writeToFile(testVectorsFile, true, true);
+        } finally {
+            stage.close();
         }
     }
 
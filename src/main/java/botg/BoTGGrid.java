@@ -0,0 +1,327 @@
+package botg;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import org.apache.commons.lang3.ArrayUtils;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ObjectArrays;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import botg.config.BoTGConfigs;
+import mining.Dataset;
+import mining.DatasetCrossFold;
+import mining.SamplePathResolver;
+import mining.bagOfGraphs.BoGCreator;
+import mining.bagOfGraphs.CodebookGenerator;
+import mining.bagOfGraphs.CodebookGeneratorClustering;
+import mining.bagOfGraphs.TypeAssignment;
+import mining.bagOfGraphs.TypePooling;
+import mining.bagOfGraphs.sampleSubgraph.SampleSubgraph;
+import mining.bagOfGraphs.sampleSubgraph.SubgraphsHandler;
+import mining.bagOfGraphs.sampleSubgraph.linkedElement.LinkedElementDistances;
+import mining.textMining.bagOfWord.VectorSample;
+import mining.textMining.textToGraph.GraphDataset;
+import mining.textMining.textToGraph.GraphDatasetStats;
+import util.Collector;
+import util.DateUtil;
+import util.Logs;
+import util.Metrics;
+import util.Pair;
+import util.Params;
+import util.StageTimer;
+import util.StringUtils;
+import util.dataStructure.Matrix;
+import util.io.FileUtils;
+
+/**
+ * Runs BoTG for each combination of the params given with a list of values, separated by '|', as in
+ * "assignment=HARD|SOFT,pooling=SUM|AVG|MAX,subgraphDistance=DIST1_FIX|MCS,randomCodebookSize=|200", where an empty value leaves the param
+ * out (here, comparing the clustering codebook generator, the default, with the random one).
+ * The runs make a DAG of stages (see {@link StageGraph}), where each artifact shared by combinations is computed once:
+ * the subgraphs, by subgraphs handler and whether the distance requires the weights of the neighbor nodes; the dataset stats;
+ * the codebookSet (global or of each fold), by candidate settings of the generator (see {@link CodebookGenerator#getCandidateSettings()});
+ * the distance matrix of the codebookSet, by distance, for the clustering generators (see {@link CodebookGeneratorClustering#getDistanceMatrixSettings()}),
+ * shared by those differing only by the clusterer and kept in memory until the last of their codebooks is done;
+ * the codebook, by generator and distance, shared by all the assignment and pooling types; and the assignment of the samples to the codebook,
+ * by assignment type, from which the vectors of all the pooling types are created.
+ * The artifacts are kept in the output folder, named by a hash of what they depend on, and the vectors of each combination in a subfolder named by
+ * its values, like the output folder of BoTG. A stages.manifest there makes an interrupted grid resume (see {@link StageManifest}).
+ * The params of the data (dataset, graphs, foldsDirname, nFolds and randomSeed) take a single value.
+ */
+public class BoTGGrid {
+
+    private static final String[] SINGLE_VALUED_PARAMS = { "rootFolder", "dataset", "graphs", "foldsDirname", "nFolds", "randomSeed", "outputDirname" };
+
+    private static final boolean skipMissingSamples = true; //como em BoTG
+
+    /** the runs (subfolders) of each pooling type, which share the vectors stage of a fold */
+    private static class FoldVectors {
+        final Map<TypePooling,List<File>> runDirs = new LinkedHashMap<>();
+    }
+
+    public static void main(String[] args) {
+        try {
+            Params params = Params.parse(args);
+            run(params.get("outputDirname"), params);
+        } catch (Throwable t) {
+            Logs.severe(t);
+        }
+    }
+
+    /** @return the output folder, where the metrics of the grid (see {@link Metrics}) are written as metrics.json */
+    static File run(String outputDirname, Params params) {
+        Metrics.reset(); //apenas as metricas desta grade
+        Map<String,Params> combinations = expand(params);
+        BoTGConfigs firstConfigs = new BoTGConfigs(combinations.values().iterator().next());
+        File outputDir;
+        if(StringUtils.isNotEmpty(outputDirname)){
+            outputDir = new File(firstConfigs.getDatasetResultsFolder(), outputDirname);
+        }else{
+            outputDir = firstConfigs.createNewOutputFolder("BoGGrid");
+        }
+        Logs.init(Level.FINEST, new File(outputDir, BoTGGrid.class.getSimpleName() + "_" + DateUtil.formatDateTimeFull() + ".txt"));
+        Logs.info("Running grid of " + combinations.size() + " combinations: " + combinations.keySet());
+
+        StageManifest manifest = new StageManifest(outputDir, "randomSeed=" + firstConfigs.randomSeed);
+        StageGraph graph = new StageGraph();
+        Map<String,FoldVectors> vectors = new LinkedHashMap<>();
+        for (Map.Entry<String,Params> combination : combinations.entrySet()) {
+            BoTGConfigs configs = new BoTGConfigs(combination.getValue());
+            Logs.finer("Combination " + combination.getKey() + ": " + configs);
+            addStages(graph, vectors, configs, new File(outputDir, combination.getKey()), outputDir, manifest);
+        }
+        Logs.fine(graph.size() + " stages for " + combinations.size() + " combinations");
+        graph.run();
+
+        Logs.info("Stages:\n" + Metrics.getStages());
+        Metrics.writeReport(new File(outputDir, "metrics.json"));
+        return outputDir;
+    }
+
+    /**
+     * The combinations of the values of the params, named by the values of the params with more than one (as "assignment=HARD_pooling=SUM",
+     * or "default" if there is none).
+     */
+    static Map<String,Params> expand(Params params) {
+        List<String> keys = new ArrayList<>(params.getKeys());
+        List<ImmutableSet<String>> values = new ArrayList<>();
+        for (String key : keys) {
+            ImmutableSet<String> keyValues = ImmutableSet.copyOf(params.get(key).split("\\|", -1));
+            Preconditions.checkArgument(keyValues.size() == 1 || !ArrayUtils.contains(SINGLE_VALUED_PARAMS, key), "param %s takes a single value", key);
+            Preconditions.checkArgument(!key.equals("baseCodebook"), "param baseCodebook is not supported by the grid, only by BoTG");
+            values.add(keyValues);
+        }
+        Map<String,Params> combinations = new LinkedHashMap<>();
+        for (List<String> combination : Sets.cartesianProduct(values)) {
+            Map<String,String> combinationParams = new LinkedHashMap<>();
+            List<String> name = new ArrayList<>();
+            for (int i = 0; i < keys.size(); i++) {
+                String value = combination.get(i);
+                if(!value.isEmpty())
+                    combinationParams.put(keys.get(i), value);
+                if(values.get(i).size() > 1)
+                    name.add(keys.get(i) + "=" + (value.isEmpty() ? "none" : value));
+            }
+            combinations.put(name.isEmpty() ? "default" : String.join("_", name), new Params(combinationParams));
+        }
+        return combinations;
+    }
+
+    /** name of the file of an artifact, by a hash of the id of its stage */
+    private static String getName(String prefix, String stageId) {
+        return prefix + "_" + Hashing.sha256().hashString(stageId, StandardCharsets.UTF_8).toString().substring(0, 8);
+    }
+
+    private static StageGraph.Stage<?>[] dependencies(StageGraph.Stage<?>... stages) {
+        return Arrays.stream(stages).filter(stage -> stage != null).toArray(StageGraph.Stage<?>[]::new);
+    }
+
+    private static List<Pair<String,String>> loadSamples(File... foldFiles) {
+        List<Pair<String,String>> samples = new ArrayList<>();
+        for (File foldFile : foldFiles)
+            samples.addAll(GraphDataset.loadSubsetDescritor(foldFile));
+        return samples;
+    }
+
+    /**
+     * Adds the stages of the run of the configs, reusing the ones already added by other runs.
+     * As the distance is global (see {@link LinkedElementDistances#initialize}), each stage initializes the one of the run which added it
+     * before its work, after asking for the values of its dependencies.
+     */
+    private static void addStages(StageGraph graph, Map<String,FoldVectors> vectors, BoTGConfigs configs, File runDir, File outputDir, StageManifest manifest) {
+        SamplePathResolver samplesFolder = configs.getGraphsFolder();
+        SubgraphsHandler subgraphsHandler = configs.subgraphsHandler;
+        CodebookGenerator codebookGenerator = configs.codebookGenerator;
+        LinkedElementDistances distance = configs.getSubgraphDistance();
+        LinkedElementDistances.initialize(distance);
+        boolean neighborNodeWeights = LinkedElementDistances.isNeighborNodeWeightsRequired();
+
+        String subgraphsId = "subgraphs of " + subgraphsHandler + ", neighborNodeWeights=" + neighborNodeWeights;
+        File subgraphsDir = new File(outputDir, getName("subgraphs", subgraphsId));
+        StageGraph.Stage<String> subgraphs = graph.add(subgraphsId, () -> {
+            Logs.fine("Subgraphs " + subgraphsDir.getName() + ": " + subgraphsId);
+            LinkedElementDistances.initialize(distance);
+            return BoTG.extractSubgraphs(samplesFolder, subgraphsHandler, subgraphsDir, manifest, "neighborNodeWeights=" + neighborNodeWeights);
+        }, null);
+        StageGraph.Stage<Pair<GraphDatasetStats,String>> stats = !codebookGenerator.isDatasetStatsRequired() ? null
+            : graph.add("datasetStats", () -> BoTG.obtainDatasetStats(samplesFolder, outputDir, manifest), null);
+
+        File foldDistributionsDir = configs.getFoldDistributionsDir();
+        for (int fold = 0; fold < configs.nFolds; fold++) {
+            File trainFoldFile = DatasetCrossFold.getTrainFoldFile(foldDistributionsDir, fold);
+            File testFoldFile = DatasetCrossFold.getTestFoldFile(foldDistributionsDir, fold);
+            //codebook global: a partir de todas as amostras (as do fold 0), como em BoTG
+            String scope = configs.generateGlobalCodebook ? "global" : String.valueOf(fold);
+            File[] codebookFoldFiles = configs.generateGlobalCodebook
+                ? new File[] { DatasetCrossFold.getTrainFoldFile(foldDistributionsDir, 0), DatasetCrossFold.getTestFoldFile(foldDistributionsDir, 0) }
+                : new File[] { trainFoldFile };
+
+            //id, chave e dependencias do codebookSet a partir das mesmas entradas: as estatisticas so entram quando ele e filtrado
+            StageGraph.Stage<Pair<GraphDatasetStats,String>> codebookSetStats = codebookGenerator.isCodebookSetFiltered() ? stats : null;
+            String codebookSetId = scope + " codebookSet of " + codebookGenerator.getCandidateSettings() + ", " + subgraphsId
+                + (codebookSetStats == null ? "" : ", datasetStats");
+            File codebookSetFile = new File(outputDir, getName(scope + "_codebookSet", codebookSetId));
+            Supplier<String> codebookSetKey = () -> BoTG.getCodebookSetKey(manifest, codebookGenerator, codebookSetFile,
+                ObjectArrays.concat(new Object[] { subgraphs.get(), codebookSetStats == null ? null : codebookSetStats.get().getB() }, codebookFoldFiles, Object.class));
+            StageGraph.Stage<String> codebookSet = graph.add(codebookSetId, () -> {
+                String key = codebookSetKey.get();
+                GraphDatasetStats datasetStats = codebookSetStats == null ? null : codebookSetStats.get().getA();
+                Logs.fine("CodebookSet " + codebookSetFile.getName() + ": " + codebookSetId);
+                LinkedElementDistances.initialize(distance);
+                return BoTG.createCodebookSet(subgraphsHandler, codebookGenerator, datasetStats,
+                    Dataset.loadSubsetFiles(subgraphsDir, skipMissingSamples, loadSamples(codebookFoldFiles)), codebookSetFile, key, manifest);
+            }, hash -> FileUtils.deleteQuietly(codebookSetFile), dependencies(subgraphs, codebookSetStats));
+
+            //matriz de distancias do codebookSet: a mesma para os geradores por clustering que diferem apenas pelo clusterer
+            StageGraph.Stage<Matrix<Float>> distanceMatrix = null;
+            if(codebookGenerator instanceof CodebookGeneratorClustering){
+                CodebookGeneratorClustering clustering = (CodebookGeneratorClustering) codebookGenerator;
+                String distanceMatrixId = scope + " distanceMatrix of " + clustering.getDistanceMatrixSettings() + ", distance=" + distance + ", " + codebookSetId;
+                distanceMatrix = graph.add(distanceMatrixId, () -> {
+                    codebookSet.get();
+                    Logs.fine("Distance matrix of " + codebookSetFile.getName() + ": " + distanceMatrixId);
+                    LinkedElementDistances.initialize(distance);
+                    return clustering.computeCodebookSetDistanceMatrix(codebookSetFile, subgraphsHandler);
+                }, Matrix::destroyResources, codebookSet);
+            }
+
+            String codebookId = scope + " codebook of " + codebookGenerator.getSettings() + ", distance=" + distance + ", " + codebookSetId;
+            File codebookFile = new File(outputDir, getName(scope + "_codebook", codebookId));
+            StageGraph.Stage<Matrix<Float>> codebookDistanceMatrix = distanceMatrix;
+            StageGraph.Stage<String> codebook = graph.add(codebookId, () -> {
+                String key = codebookSetKey.get();
+                GraphDatasetStats datasetStats = stats == null ? null : stats.get().getA();
+                Logs.fine("Codebook " + codebookFile.getName() + ": " + codebookId);
+                LinkedElementDistances.initialize(distance);
+                Runnable generation = codebookDistanceMatrix == null
+                    ? () -> codebookGenerator.generate(subgraphsHandler, datasetStats, codebookSetFile, codebookFile)
+                    : () -> ((CodebookGeneratorClustering) codebookGenerator).generate(codebookDistanceMatrix.get(), codebookSetFile, codebookFile);
+                return BoTG.generateCodebook(codebookGenerator, generation, codebookSetFile, key, () -> {
+                    String hash = codebookSet.get();
+                    LinkedElementDistances.initialize(distance);
+                    return hash;
+                }, loadSamples(codebookFoldFiles).size(), codebookFile, manifest, "distance=" + distance, stats == null ? null : stats.get().getB());
+            }, null, dependencies(codebookSet, distanceMatrix, subgraphs, stats));
+            StageGraph.Stage<List<SampleSubgraph>> codewords = graph.add("codewords of " + codebookId, () -> {
+                codebook.get();
+                LinkedElementDistances.initialize(distance);
+                return BoTG.loadCodebook(subgraphsHandler, codebookFile);
+            }, null, codebook);
+
+            //os vetores de todos os tipos de pooling sao criados de uma mesma atribuicao das amostras ao codebook
+            int foldNumber = fold;
+            TypeAssignment assignmentType = configs.assignment;
+            String vectorsId = fold + " vectors of assignment=" + assignmentType + ", " + codebookId;
+            FoldVectors foldVectors = vectors.computeIfAbsent(vectorsId, k -> new FoldVectors());
+            foldVectors.runDirs.computeIfAbsent(configs.pooling, k -> new ArrayList<>()).add(runDir);
+            graph.add(vectorsId, () -> createVectors(foldNumber, trainFoldFile, testFoldFile, foldVectors, assignmentType, distance, subgraphsHandler, subgraphsDir,
+                subgraphs, codebook, codewords, manifest), null, codewords, codebook, subgraphs);
+        }
+    }
+
+    private static Void createVectors(int foldNumber, File trainFoldFile, File testFoldFile, FoldVectors foldVectors, TypeAssignment assignmentType,
+        LinkedElementDistances distance, SubgraphsHandler subgraphsHandler, File subgraphsDir, StageGraph.Stage<String> subgraphs, StageGraph.Stage<String> codebook,
+        StageGraph.Stage<List<SampleSubgraph>> codewords, StageManifest manifest)
+    {
+        String subgraphsHash = subgraphs.get(), codebookHash = codebook.get();
+        //estagios ainda nao completados (pasta da rodada e chave), por tipo de pooling
+        Map<TypePooling,List<Pair<File,String>>> pending = new LinkedHashMap<>();
+        for (Map.Entry<TypePooling,List<File>> runDirs : foldVectors.runDirs.entrySet()) {
+            for (File runDir : runDirs.getValue()) {
+                String vectorsStage = runDir.getName() + "/" + foldNumber + "_vectors";
+                String vectorsKey = manifest.key(vectorsStage, assignmentType, runDirs.getKey(), codebookHash, subgraphsHash, trainFoldFile, testFoldFile,
+                    "distance=" + distance);
+                if(!manifest.isCompleted(vectorsStage, vectorsKey))
+                    pending.computeIfAbsent(runDirs.getKey(), k -> new ArrayList<>()).add(new Pair<>(runDir, vectorsKey));
+            }
+        }
+        if(pending.isEmpty()){
+            Logs.fine("Vectors of fold " + foldNumber + " were already created for " + foldVectors.runDirs.values());
+            return null;
+        }
+
+        List<SampleSubgraph> codebookWords = codewords.get();
+        LinkedElementDistances.initialize(distance);
+        List<Pair<String,String>> trainSubset = GraphDataset.loadSubsetDescritor(trainFoldFile);
+        List<Pair<String,String>> testSubset = GraphDataset.loadSubsetDescritor(testFoldFile);
+        List<TypePooling> poolingTypes = new ArrayList<>(pending.keySet());
+        List<ArrayList<VectorSample>> trainBoGs = new ArrayList<>(), testBoGs = new ArrayList<>();
+        List<Collector<VectorSample>> trainCollectors = new ArrayList<>(), testCollectors = new ArrayList<>();
+        for (int i = 0; i < poolingTypes.size(); i++) {
+            ArrayList<VectorSample> train = new ArrayList<>(), test = new ArrayList<>();
+            trainBoGs.add(train);
+            testBoGs.add(test);
+            trainCollectors.add(train::add);
+            testCollectors.add(test::add);
+        }
+        Logs.fine("Creating vectors of fold " + foldNumber + " with assignment " + assignmentType + " and pooling " + poolingTypes);
+        StageTimer.Stage stage = Metrics.stage("bog").addItems(trainSubset.size() + testSubset.size());
+        try {
+            BoGCreator.createBoGs(subgraphsHandler, subgraphsDir, skipMissingSamples, codebookWords, assignmentType, poolingTypes, trainCollectors, trainSubset);
+            BoGCreator.createBoGs(subgraphsHandler, subgraphsDir, skipMissingSamples, codebookWords, assignmentType, poolingTypes, testCollectors, testSubset);
+        } finally {
+            stage.close();
+        }
+
+        for (int i = 0; i < poolingTypes.size(); i++) {
+            Collections.sort(trainBoGs.get(i), VectorSample.COMPARATOR_BY_ID);
+            Collections.sort(testBoGs.get(i), VectorSample.COMPARATOR_BY_ID);
+            File trainVectorsFile = null, testVectorsFile = null;
+            for (Pair<File,String> runDirAndKey : pending.get(poolingTypes.get(i))) {
+                File runDir = runDirAndKey.getA();
+                FileUtils.mkDirs(runDir);
+                File runTrainVectorsFile = new File(runDir, foldNumber + "_trainVectors"), runTestVectorsFile = new File(runDir, foldNumber + "_testVectors");
+                if(trainVectorsFile == null){
+                    BoTG.writeVectors(trainBoGs.get(i), testBoGs.get(i), runTrainVectorsFile, runTestVectorsFile);
+                    trainVectorsFile = runTrainVectorsFile;
+                    testVectorsFile = runTestVectorsFile;
+                }else{ //mesmos vetores, em outra rodada (que difere apenas por params que nao os afetam)
+                    copy(trainVectorsFile, runTrainVectorsFile);
+                    copy(testVectorsFile, runTestVectorsFile);
+                }
+                manifest.complete(runDir.getName() + "/" + foldNumber + "_vectors", runDirAndKey.getB(), runTrainVectorsFile, runTestVectorsFile);
+            }
+        }
+        return null;
+    }
+
+    private static void copy(File source, File target) {
+        try {
+            Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package botg;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import botg.baseline.graph.GraphGenerator;
+import botg.config.BoTGConfigs;
+import botg.dataset.Datasets;
+import botg.dataset.SyntheticCorpusReader;
+import mining.DatasetCrossFold;
+import mining.textMining.TextSample;
+import util.Logs;
+import util.Metrics;
+import util.Params;
+import util.StageTimer;
+import util.io.FileUtils;
+
+/**
+ * End-to-end benchmark of GraphGenerator and BoTG over a synthetic corpus (see {@link SyntheticCorpusReader}), reporting the
+ * wall time, throughput and peak heap of each stage: graphGeneration, extraction, datasetStats, codebookSet, codebook, bog and output.
+ * Takes the corpus params (documents, vocabulary, length, labels, multiLabel, zipf, topicShare, seed), nFolds (default 2),
+ * rootFolder (default a temporary folder), codebook (random, the default, or meanshift) and any other param of GraphGenerator and BoTG,
+ * whose defaults here are graphs=graphs, foldsDirname=folds, assignment=HARD, pooling=SUM and, for the random codebook, randomCodebookSize=200.
+ * The fold distribution is generated as well, in round robin over the documents, each one with its first label as class.
+ * The stages are printed, and written with the other metrics of the run (see {@link Metrics}) to benchmark/metrics.json, within the
+ * results folder of the dataset.
+ */
+public class PipelineBenchmark {
+
+    private static final String[] CORPUS_PARAMS = { "documents", "vocabulary", "length", "labels", "multiLabel", "zipf", "topicShare", "seed" };
+
+    public static void main(String[] args) {
+        String userParams = args.length > 0 ? args[0].trim() : "";
+        Params params = Params.parse(userParams);
+        String rootFolder = params.get("rootFolder");
+        if (rootFolder == null)
+            rootFolder = createTempFolder().getPath();
+        int nFolds = params.getInt("nFolds", 2);
+
+        //os params do usuario sobrescrevem os defaults, por virem depois
+        String allParams = "rootFolder=" + rootFolder + ",dataset=" + Datasets.SYNTHETIC.id + ",nFolds=" + nFolds
+            + ",graphs=graphs,foldsDirname=folds,usePriorDatasetCrossFoldDistribution=true,assignment=HARD,pooling=SUM"
+            + ("meanshift".equals(params.get("codebook")) ? "" : ",randomCodebookSize=200")
+            + (userParams.isEmpty() ? "" : "," + userParams);
+        params = Params.parse(allParams);
+        BoTGConfigs configs = new BoTGConfigs(params);
+
+        SyntheticCorpusReader corpus = new SyntheticCorpusReader(params);
+        writeCorpusParams(params, new File(rootFolder + "/datasets/" + Datasets.SYNTHETIC.id));
+        writeFolds(corpus, nFolds, configs.getFoldDistributionsDir());
+        System.out.println("Running for " + corpus + " on " + rootFolder);
+
+        Metrics.reset();
+        StageTimer.Stage stage = Metrics.stage("graphGeneration").addItems(corpus.getNumberOfDocuments());
+        try {
+            GraphGenerator.main(new String[] { allParams });
+        } finally {
+            stage.close();
+        }
+        File outputDir = BoTG.run("benchmark", configs, false); //mantem o estagio graphGeneration
+
+        System.out.println(Metrics.getStages());
+        System.out.println("Metrics written to " + new File(outputDir, "metrics.json"));
+    }
+
+    private static File createTempFolder() {
+        try {
+            return Files.createTempDirectory(PipelineBenchmark.class.getSimpleName()).toFile();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void writeCorpusParams(Params params, File datasetFolder) {
+        List<String> corpusParams = new ArrayList<>();
+        for (String key : CORPUS_PARAMS) {
+            if (params.contains(key))
+                corpusParams.add(key + "=" + params.get(key));
+        }
+        FileUtils.mkDirs(datasetFolder);
+        try (Writer writer = FileUtils.createWriterToFile(new File(datasetFolder, SyntheticCorpusReader.PARAMS_FILE))) {
+            writer.write(String.join(",", corpusParams));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** writes folds.sampleOrder and the train and test files of each fold, with fold = position % nFolds */
+    private static void writeFolds(SyntheticCorpusReader corpus, int nFolds, File foldsDir) {
+        List<TextSample> samples = new ArrayList<>();
+        corpus.readSamples(null, sample -> samples.add(new TextSample(sample.getId(), sample.getLabels())));
+        FileUtils.mkDirs(foldsDir);
+        try (Writer order = FileUtils.createWriterToFile(new File(foldsDir, "folds.sampleOrder"))) {
+            for (int position = 0; position < samples.size(); position++)
+                order.write(samples.get(position).getId() + " " + position + "\n");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        for (int fold = 0; fold < nFolds; fold++) {
+            try (Writer train = FileUtils.createWriterToFile(DatasetCrossFold.getTrainFoldFile(foldsDir, fold));
+                Writer test = FileUtils.createWriterToFile(DatasetCrossFold.getTestFoldFile(foldsDir, fold)))
+            {
+                train.write("<dataset>\n");
+                test.write("<dataset>\n");
+                for (int position = 0; position < samples.size(); position++) {
+                    TextSample sample = samples.get(position);
+                    String line = "  <sample class=\"" + sample.getFirstLabel() + "\" id=\"" + sample.getId() + "\"/>\n";
+                    (position % nFolds == fold ? test : train).write(line);
+                }
+                train.write("</dataset>\n");
+                test.write("</dataset>\n");
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        Logs.finer(samples.size() + " samples distributed in " + nFolds + " folds on " + foldsDir);
+    }
+}
@@ -0,0 +1,106 @@
+package botg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import com.google.common.base.Preconditions;
+import util.Logs;
+
+/**
+ * DAG of the stages of a grid of runs (see {@link BoTGGrid}), where a stage is added once by its id, however many runs depend on it.
+ * Running the graph computes its final stages, in the order they were added; any other stage is computed on the first time one of its
+ * dependents asks for it, so that a dependent which does not need it (e.g. already completed in the manifest) does not compute it either.
+ * A stage is released once all its dependents are done, so that each artifact is computed once and kept only while needed.
+ * Not thread-safe.
+ */
+class StageGraph {
+
+    class Stage<T> {
+        private final String id;
+        private final Supplier<T> computation;
+        private final Consumer<T> release;
+        private final List<Stage<?>> dependencies;
+        private int pendingDependents;
+        private boolean computed, dependenciesDone, released;
+        private T value;
+
+        private Stage(String id, Supplier<T> computation, Consumer<T> release, List<Stage<?>> dependencies) {
+            this.id = id;
+            this.computation = computation;
+            this.release = release;
+            this.dependencies = dependencies;
+        }
+
+        /** the value of the stage, computed on the first call */
+        T get() {
+            Preconditions.checkState(!released, "stage already released: %s", id);
+            if (!computed) {
+                Logs.finest("Computing stage " + id);
+                value = computation.get();
+                computed = true;
+                dependenciesDone();
+            }
+            return value;
+        }
+
+        private void dependenciesDone() {
+            if (dependenciesDone)
+                return;
+            dependenciesDone = true;
+            for (Stage<?> dependency : dependencies)
+                dependency.dependentDone();
+        }
+
+        private void dependentDone() {
+            if (--pendingDependents > 0)
+                return;
+            dependenciesDone(); //nao sera mais computado, se ainda nao foi
+            if (computed && release != null)
+                release.accept(value);
+            value = null;
+            released = true;
+        }
+    }
+
+    private final Map<String,Stage<?>> stages = new LinkedHashMap<>();
+
+    /**
+     * Adds the stage, unless there is one of the same id already, which is returned instead.
+     * @param computation computes the value of the stage, asking the dependencies for theirs as needed
+     * @param release frees the value (e.g. deletes a temporary file) once all the dependents are done; null if there is nothing to free
+     * @param dependencies stages the computation may ask for, added before
+     */
+    @SuppressWarnings("unchecked")
+    <T> Stage<T> add(String id, Supplier<T> computation, Consumer<T> release, Stage<?>... dependencies) {
+        Stage<T> stage = (Stage<T>) stages.get(id);
+        if (stage == null) {
+            stage = new Stage<>(id, computation, release, Arrays.asList(dependencies));
+            for (Stage<?> dependency : dependencies)
+                dependency.pendingDependents++;
+            stages.put(id, stage);
+        }
+        return stage;
+    }
+
+    int size() {
+        return stages.size();
+    }
+
+    /** computes the final stages, i.e. the ones no other stage depends on, in the order they were added */
+    void run() {
+        List<Stage<?>> finalStages = new ArrayList<>();
+        for (Stage<?> stage : stages.values()) {
+            if (stage.pendingDependents == 0)
+                finalStages.add(stage);
+        }
+        Logs.fine("Running " + finalStages.size() + " final stages of " + stages.size());
+        for (Stage<?> stage : finalStages) {
+            stage.get();
+            stage.dependentDone();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package botg;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import util.JsonUtils;
+import util.Logs;
+import util.io.FileUtils;
+
+/**
+ * Manifest of the stages completed within an output folder, so that a rerun skips them and resumes where the previous run stopped.
+ * Each stage is recorded with the key of what it was computed from (a hash of the settings common to the run, the stage settings and
+ * its inputs) and with the hash of what it produced, which later stages take as input: a recomputed stage invalidates the ones after it.
+ * Files are hashed by content; folders, which may hold many samples, by the name, size and modification time of their files.
+ * The manifest is rewritten atomically after each change, so a run killed at any point leaves it consistent.
+ */
+public class StageManifest {
+
+    public static final String FILENAME = "stages.manifest";
+
+    private final File file;
+    private final String commonSettings;
+    private final Map<String,Object> stages;
+
+    /** @param commonSettings settings which affect every stage (e.g. the random seed) */
+    public StageManifest(File outputDir, Object... commonSettings) {
+        file = new File(outputDir, FILENAME);
+        this.commonSettings = join(commonSettings);
+        stages = file.exists() ? JsonUtils.parseObject(FileUtils.readFileToString(file.getPath())) : new LinkedHashMap<>();
+    }
+
+    private static String join(Object... values) {
+        StringBuilder sb = new StringBuilder();
+        for (Object value : values)
+            sb.append(value).append('\n');
+        return sb.toString();
+    }
+
+    /** key of the stage computed from the given inputs: files and folders are hashed (see class doc), any other value by its toString */
+    public String key(String stage, Object... inputs) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(stage + '\n' + commonSettings, StandardCharsets.UTF_8);
+        for (Object input : inputs)
+            hasher.putString(input instanceof File ? hash((File) input) : String.valueOf(input), StandardCharsets.UTF_8).putChar('\n');
+        return hasher.hash().toString();
+    }
+
+    public static String hash(File fileOrFolder) {
+        try {
+            if (fileOrFolder.isFile())
+                return com.google.common.io.Files.hash(fileOrFolder, Hashing.sha256()).toString();
+            Hasher hasher = Hashing.sha256().newHasher();
+            if (fileOrFolder.isDirectory()) {
+                String root = fileOrFolder.getPath();
+                for (File f : FileUtils.getFilesRecursively(fileOrFolder, true))
+                    hasher.putString(f.getPath().substring(root.length()), StandardCharsets.UTF_8).putLong(f.length()).putLong(f.lastModified());
+            }
+            return hasher.hash().toString();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized Map<String,Object> getEntry(String stage, String key) {
+        Map<String,Object> entry = (Map<String,Object>) stages.get(stage);
+        return entry != null && key.equals(entry.get("key")) ? entry : null;
+    }
+
+    /** whether the stage was completed from the same key, and its outputs are still there */
+    @SuppressWarnings("unchecked")
+    public synchronized boolean isCompleted(String stage, String key) {
+        Map<String,Object> entry = getEntry(stage, key);
+        if (entry == null || !Boolean.TRUE.equals(entry.get("completed")))
+            return false;
+        for (String output : (List<String>) entry.get("outputs")) {
+            if (!new File(file.getParentFile(), output).exists())
+                return false;
+        }
+        return true;
+    }
+
+    /** whether the stage was started from the same key but not completed, so that it may resume from its partial outputs */
+    public synchronized boolean isStarted(String stage, String key) {
+        Map<String,Object> entry = getEntry(stage, key);
+        return entry != null && !Boolean.TRUE.equals(entry.get("completed"));
+    }
+
+    /** hash of the outputs of the stage completed from the same key, even if they were deleted since then; null if there is no such stage */
+    public synchronized String getOutputHash(String stage, String key) {
+        Map<String,Object> entry = getEntry(stage, key);
+        return entry != null && Boolean.TRUE.equals(entry.get("completed")) ? (String) entry.get("outputHash") : null;
+    }
+
+    public synchronized void start(String stage, String key) {
+        Map<String,Object> entry = new LinkedHashMap<>();
+        entry.put("key", key);
+        entry.put("completed", false);
+        stages.put(stage, entry);
+        save();
+    }
+
+    /** @param outputs files or folders (within the output folder) produced by the stage */
+    public synchronized void complete(String stage, String key, File... outputs) {
+        List<String> outputNames = new ArrayList<>();
+        Hasher hasher = Hashing.sha256().newHasher();
+        String root = file.getParentFile().getPath();
+        for (File output : outputs) {
+            outputNames.add(output.getPath().startsWith(root) ? output.getPath().substring(root.length() + 1) : output.getPath());
+            hasher.putString(hash(output), StandardCharsets.UTF_8);
+        }
+        Map<String,Object> entry = new LinkedHashMap<>();
+        entry.put("key", key);
+        entry.put("completed", true);
+        entry.put("outputs", outputNames);
+        entry.put("outputHash", hasher.hash().toString());
+        stages.put(stage, entry);
+        save();
+        Logs.finer("Stage " + stage + " recorded as completed on " + file);
+    }
+
+    private void save() {
+        File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            try (Writer writer = FileUtils.createWriterToFile(tempFile)) {
+                writer.write(JsonUtils.toJson(stages));
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
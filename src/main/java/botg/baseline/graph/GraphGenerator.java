@@ -1,17 +1,29 @@
 package botg.baseline.graph;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.logging.Level;
 import mining.DatasetCrossFold;
 import mining.DatasetReader;
 import mining.SamplePathResolverSimple;
 import mining.textMining.TextSample;
+import mining.textMining.parsing.TextSection;
 import mining.textMining.parsing.TokenExtractor;
+import mining.textMining.parsing.TokenStore;
 import mining.textMining.textToGraph.GraphDataset;
+import mining.textMining.textToGraph.GraphDatasetStats;
 import mining.textMining.textToGraph.TextSampleToGraphSampleConverter;
+import mining.textMining.textToGraph.model.GraphSample;
 import mining.textMining.textToGraph.model.GraphType;
+import util.ConcurrencyUtils;
 import util.Filter;
 import util.Logs;
+import util.Pair;
+import util.ParallelCollector;
 import util.Params;
 import util.io.FileUtils;
 
@@ -25,40 +37,127 @@ public class GraphGenerator {
 
         Logs.info("Common configs used:\n" + configs);
 
-		for (GraphType graphType : configs.graphTypes) {
+        TokenExtractor tokenExtractor = configs.createTokenExtractor();
+        TokenStore tokenStore = configs.openTokenStore(tokenExtractor);
+        try {
+            if (configs.graphTypes.length > 1 && !configs.outOfCore) {
+                executeForAllGraphTypes(configs, tokenExtractor, tokenStore);
+                return;
+            }
+
+            for (GraphType graphType : configs.graphTypes) {
+                Logs.info("# Running for graphType " + graphType + "...");
+
+                File destineFolder = configs.getDatasetRepresentationDestineFolder(graphType);
+                FileUtils.cleanOtherwiseCreateDirectory(destineFolder);
+
+                execute(configs.createDatasetReader(), tokenExtractor, tokenStore,
+                	configs.getFoldDistributionToUseInReduction(), configs.textSampleFilter,
+                	graphType, configs.FORCE_REACH, configs.MAX_REACH,
+                	configs.minimumTermDF, configs.induceEdgesAfterTermPrunning, configs.useTfIdf,
+                	configs.maxNodesByGraphToRetain, configs.conversionWorkers, configs.outOfCore, destineFolder);
+            }
+        } finally {
+            if (tokenStore != null) {
+                tokenStore.close();
+            }
+        }
+    }
+
+    /**
+     * Reads and tokenizes the dataset only once, keeping the tokenized samples in memory, from which the graphs of each graph type are then created.
+     */
+    private static void executeForAllGraphTypes(GraphGeneratorConfigs configs, TokenExtractor tokenExtractor, TokenStore tokenStore) {
+        Logs.info("# Tokenizing samples for graphTypes " + Arrays.toString(configs.graphTypes) + "...");
+        Filter<TextSample> textSampleFilter = getSampleFilter(configs.getFoldDistributionToUseInReduction(), configs.textSampleFilter);
+
+        //mantem somente id e labels de cada amostra, descartando seu texto
+        Function<TextSample,Pair<TextSample,List<TextSection>>> tokenizer = textSample -> Pair.get(
+            new TextSample(textSample.getId(), textSample.getLabels()),
+            tokenStore != null ? tokenStore.loadSections(textSample) : TextSection.loadSections(tokenExtractor, textSample));
+        List<Pair<TextSample,List<TextSection>>> tokenizedSamples = new ArrayList<>();
+        if (configs.conversionWorkers > 1) {
+            try (ParallelCollector<TextSample,Pair<TextSample,List<TextSection>>> parallelTokenizer = new ParallelCollector<>(tokenizer, tokenizedSamples::add, configs.conversionWorkers)) {
+                configs.createDatasetReader().readSamples(textSampleFilter, parallelTokenizer);
+            }
+        } else {
+            configs.createDatasetReader().readSamples(textSampleFilter, textSample -> tokenizedSamples.add(tokenizer.apply(textSample)));
+        }
+        Logs.finer("Stemmer used: " + tokenExtractor.getStemmer());
+
+        for (GraphType graphType : configs.graphTypes) {
             Logs.info("# Running for graphType " + graphType + "...");
 
             File destineFolder = configs.getDatasetRepresentationDestineFolder(graphType);
             FileUtils.cleanOtherwiseCreateDirectory(destineFolder);
 
-			execute(configs.createDatasetReader(), configs.createTokenExtractor(),
-            	configs.getFoldDistributionToUseInReduction(), configs.textSampleFilter,
-            	graphType, configs.FORCE_REACH, configs.MAX_REACH,
-            	configs.minimumTermDF, configs.induceEdgesAfterTermPrunning, configs.useTfIdf,
-            	configs.maxNodesByGraphToRetain, destineFolder);
+            TextSampleToGraphSampleConverter converter = new TextSampleToGraphSampleConverter(
+                tokenExtractor, graphType, configs.FORCE_REACH, configs.MAX_REACH, null);
+            GraphDataset dataset = new GraphDataset();
+            ConcurrencyUtils.runWithParallelism(configs.conversionWorkers, () -> {
+                tokenizedSamples.parallelStream()
+                    .map(tokenizedSample -> converter.convert(tokenizedSample.getA(), tokenizedSample.getB()))
+                    .filter(Objects::nonNull)
+                    .forEachOrdered(dataset::collect);
+            });
+
+            processAndWrite(dataset, configs.getFoldDistributionToUseInReduction(), graphType,
+                configs.minimumTermDF, configs.induceEdgesAfterTermPrunning, configs.useTfIdf,
+                configs.maxNodesByGraphToRetain, configs.conversionWorkers, destineFolder);
         }
     }
 
-    private static void execute(DatasetReader<TextSample> datasetReader, TokenExtractor tokenExtractor,
+    private static void execute(DatasetReader<TextSample> datasetReader, TokenExtractor tokenExtractor, TokenStore tokenStore,
         DatasetCrossFold datasetCrossFold, Filter<TextSample> textSampleFilter,
         GraphType graphType, boolean forceReach, int maxNeighborhoodReach,
-        int minimumTermDF, boolean induceEdgesAfterTermPrunning, boolean useTfIdf, int maxNodesByGraphToRetain, File destineFolder)
+        int minimumTermDF, boolean induceEdgesAfterTermPrunning, boolean useTfIdf, int maxNodesByGraphToRetain, int conversionWorkers, boolean outOfCore, File destineFolder)
     {
-        if (datasetCrossFold != null) {
-            if (textSampleFilter != null) {
-                Logs.warn("Due DatasetCrossFold was set, these options will be ignored: sampleFilter");
-                textSampleFilter = null;
-            }
-            //se datasetCrossFold setado, aceitar somente as amostras contidas na distribuição de folds:
-            textSampleFilter = sample -> datasetCrossFold.containsSample(sample.getId());
+        textSampleFilter = getSampleFilter(datasetCrossFold, textSampleFilter);
+
+        if (outOfCore) {
+            TextSampleToGraphSampleConverter converter = new TextSampleToGraphSampleConverter(
+                tokenExtractor, graphType, forceReach, maxNeighborhoodReach, null);
+            converter.setTokenStore(tokenStore);
+            OutOfCoreGraphGenerator.execute(datasetReader, converter, datasetCrossFold, textSampleFilter, graphType,
+                minimumTermDF, induceEdgesAfterTermPrunning, useTfIdf, maxNodesByGraphToRetain, conversionWorkers, destineFolder);
+            Logs.finer("Stemmer used: " + tokenExtractor.getStemmer());
+            return;
         }
 
         GraphDataset dataset = new GraphDataset();
 
         TextSampleToGraphSampleConverter textSampleCollector = new TextSampleToGraphSampleConverter(
             tokenExtractor, graphType, forceReach, maxNeighborhoodReach, dataset);
+        textSampleCollector.setTokenStore(tokenStore);
 
-        datasetReader.readSamples(textSampleFilter, textSampleCollector);
+        if (conversionWorkers > 1) {
+            //leitura na thread corrente, tokenizacao e criacao dos grafos pelos workers, coleta dos grafos na ordem de leitura
+            try (ParallelCollector<TextSample,GraphSample> parallelConverter = new ParallelCollector<>(textSampleCollector::convert, dataset, conversionWorkers)) {
+                datasetReader.readSamples(textSampleFilter, parallelConverter);
+            }
+        } else {
+            datasetReader.readSamples(textSampleFilter, textSampleCollector);
+        }
+        Logs.finer("Stemmer used: " + tokenExtractor.getStemmer());
+
+        processAndWrite(dataset, datasetCrossFold, graphType, minimumTermDF, induceEdgesAfterTermPrunning, useTfIdf, maxNodesByGraphToRetain, conversionWorkers, destineFolder);
+    }
+
+    private static Filter<TextSample> getSampleFilter(DatasetCrossFold datasetCrossFold, Filter<TextSample> textSampleFilter) {
+        if (datasetCrossFold != null) {
+            if (textSampleFilter != null) {
+                Logs.warn("Due DatasetCrossFold was set, these options will be ignored: sampleFilter");
+            }
+            //se datasetCrossFold setado, aceitar somente as amostras contidas na distribuição de folds:
+            return sample -> datasetCrossFold.containsSample(sample.getId());
+        }
+        return textSampleFilter;
+    }
+
+    private static void processAndWrite(GraphDataset dataset, DatasetCrossFold datasetCrossFold, GraphType graphType,
+        int minimumTermDF, boolean induceEdgesAfterTermPrunning, boolean useTfIdf, int maxNodesByGraphToRetain, int workers, File destineFolder)
+    {
+        dataset.setParallelism(workers);
 
         if (datasetCrossFold != null) {
             datasetCrossFold.apply(dataset);
@@ -66,14 +165,21 @@ public class GraphGenerator {
 
         dataset.pruneTermsFromSamplesByDF(minimumTermDF, induceEdgesAfterTermPrunning);
 
+        GraphDatasetStats stats = null;
         if (graphType.isCountingRequired()) {
             if (useTfIdf) {
-                dataset.convertTFtoTFIDF();
+                stats = dataset.convertTFtoTFIDF();
                 dataset.normalizeWeights(0,1);
             } else if (graphType.isCountingRequiredAsRelative()) {
                 dataset.normalizeWeights(0,1);
             }
         }
+        if (stats == null && minimumTermDF >= 2) {
+            stats = dataset.computeStatistics();
+        }
+        if (stats != null) { //para ponderar novos documentos do mesmo modo (ver GraphTransformer)
+            stats.writeToFile(GraphDataset.getStatsFile(destineFolder));
+        }
 
         dataset.logStats();
 
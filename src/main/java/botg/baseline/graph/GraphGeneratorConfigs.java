@@ -3,15 +3,14 @@ package botg.baseline.graph;
 import java.io.File;
 import botg.config.base.ReducerConfigs;
 import mining.textMining.textToGraph.model.GraphType;
+import util.ConcurrencyUtils;
 import util.Params;
 
 public class GraphGeneratorConfigs extends ReducerConfigs {
 
     private final String graphs;
 
-    public final transient GraphType[] graphTypes =
-    	{GraphType.RELATIVE_FREQUENCY};
-		//GraphType.values();
+    public final transient GraphType[] graphTypes; //ex: RELATIVE_FREQUENCY|N_DISTANCE. Mais de um tipo faz a tokenizacao uma unica vez para todos
 
     public final boolean FORCE_REACH; //aplica max_reach de alcance de vizinhança mesmo se tipo de grafo não suporte por padrão alcance maior que 1
 
@@ -24,10 +23,16 @@ public class GraphGeneratorConfigs extends ReducerConfigs {
 
     public final int maxNodesByGraphToRetain = -1;
 
+    public final int conversionWorkers; //threads que convertem os textos em grafos; 1 faz a conversao na thread de leitura
+
+    public final boolean outOfCore; //true não mantém os grafos em memória: são gravados em pasta temporária e processados um a um
+
     public GraphGeneratorConfigs(Params params) {
         super(params);
         graphs = params.assertParam("graphs");
 
+        graphTypes = params.getArrayObj("graphTypes", GraphType.RELATIVE_FREQUENCY.name(), GraphType.class, GraphType::valueOf);
+
         int forcedReach = params.getInt("forcedReach", 0);
         if (forcedReach > 0) {
             FORCE_REACH = true;
@@ -41,6 +46,9 @@ public class GraphGeneratorConfigs extends ReducerConfigs {
 
         minimumTermDF = params.getInt("minimumTermDF", 0);
         induceEdgesAfterTermPrunning = params.getBoolean("induceEdgesAfterTermPrunning", true);
+
+        conversionWorkers = params.getInt("conversionWorkers", ConcurrencyUtils.getAvailableProcessors());
+        outOfCore = params.getBoolean("outOfCore", false);
     }
 
     public String getTextAsGraphRootFolder() {
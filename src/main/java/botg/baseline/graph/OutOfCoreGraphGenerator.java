@@ -0,0 +1,209 @@
+package botg.baseline.graph;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import org.apache.commons.lang3.mutable.MutableInt;
+import mining.DatasetCrossFold;
+import mining.DatasetReader;
+import mining.SamplePathResolver;
+import mining.SamplePathResolverSimple;
+import mining.textMining.TextSample;
+import mining.textMining.textToGraph.GraphDataset;
+import mining.textMining.textToGraph.GraphDatasetStats;
+import mining.textMining.textToGraph.TextSampleToGraphSampleConverter;
+import mining.textMining.textToGraph.model.GraphSample;
+import mining.textMining.textToGraph.model.GraphType;
+import util.Collector;
+import util.ConcurrencyUtils;
+import util.Filter;
+import util.Logs;
+import util.ParallelCollector;
+import util.TimeWatcher;
+import util.graph.LabeledMeasurableGraph;
+import util.io.FileUtils;
+
+/**
+ * Out-of-core version of the graph generation, for datasets whose graphs do not fit in memory.
+ * The first pass converts the texts and spills each graph of raw weights to a temporary folder, while the document frequencies are accounted.
+ * The next passes read the spilled graphs one at a time: with the term pruning by DF, a pass accounts the stats of the pruned graphs;
+ * then the pruning, TF-IDF and normalization are applied to each graph, which is written to the destine folder right away. Only the ids and labels of the samples are kept in memory, besides the DFs.
+ * The resulting graphs are the same as the ones of the in-memory generation.
+ */
+class OutOfCoreGraphGenerator {
+
+    static void execute(DatasetReader<TextSample> datasetReader, TextSampleToGraphSampleConverter converter,
+        DatasetCrossFold datasetCrossFold, Filter<TextSample> textSampleFilter, GraphType graphType,
+        int minimumTermDF, boolean induceEdgesAfterTermPrunning, boolean useTfIdf, int maxNodesByGraphToRetain, int workers, File destineFolder)
+    {
+        File spillFolder = new File(destineFolder.getParentFile(), destineFolder.getName() + "_raw");
+        FileUtils.cleanOtherwiseCreateDirectory(spillFolder);
+        try {
+            boolean pruneByDF = minimumTermDF >= 2; // menos que 2 não requer filtrarmos
+            boolean tfIdf = graphType.isCountingRequired() && useTfIdf;
+            boolean normalize = graphType.isCountingRequired() && (useTfIdf || graphType.isCountingRequiredAsRelative());
+
+            //passo 1: conversao dos textos, mantendo somente id e labels de cada amostra
+            TimeWatcher watcher = new TimeWatcher();
+            GraphDataset samples = new GraphDataset();
+            GraphDatasetStats rawStats = new GraphDatasetStats();
+            Function<TextSample,GraphSample> spiller = textSample -> {
+                GraphSample sample = converter.convert(textSample);
+                if (sample != null) {
+                    GraphDataset.writeSampleOnFolder(sample, spillFolder);
+                }
+                return sample;
+            };
+            Collector<GraphSample> accounter = sample -> {
+                if (pruneByDF) { // DFs de pares só interessam apos o prune
+                    for (String term : sample.getGraph().vertexSet())
+                        rawStats.incrementTermDF(term);
+                } else if (tfIdf) {
+                    rawStats.addGraph(sample.getGraph());
+                }
+                samples.addSample(new GraphSample(sample.getId(), sample.getLabels(), null));
+            };
+            if (workers > 1) {
+                try (ParallelCollector<TextSample,GraphSample> parallelSpiller = new ParallelCollector<>(spiller, accounter, workers)) {
+                    datasetReader.readSamples(textSampleFilter, parallelSpiller);
+                }
+            } else {
+                datasetReader.readSamples(textSampleFilter, textSample -> {
+                    GraphSample sample = spiller.apply(textSample);
+                    if (sample != null)
+                        accounter.collect(sample);
+                });
+            }
+            Logs.finer(samples.size() + " graphs spilled to " + spillFolder + ". Time elapsed: " + watcher);
+
+            if (datasetCrossFold != null) {
+                datasetCrossFold.apply(samples);
+            }
+
+            Set<String> terms = pruneByDF ? getTermsDFLessThan(rawStats, minimumTermDF) : Collections.emptySet();
+            if (!terms.isEmpty()) {
+                Logs.fine("Pruning " + terms.size() + " terms with DF<"+minimumTermDF+" from graph samples, with reconnectOrphanEdges=" + induceEdgesAfterTermPrunning);
+            }
+            Map<String,Integer> termsToPrune = GraphDataset.rankTerms(terms);
+
+            GraphDatasetStats stats = rawStats;
+            if (pruneByDF) {
+                //passo 2: as estatisticas (e os DFs do TF-IDF) são as dos grafos após o prune, como em GraphGenerator
+                if (tfIdf)
+                    Logs.fine("Converting graph dataset weight from TF to TF-IDF");
+                stats = new GraphDatasetStats();
+                for (Iterator<GraphSample> it = samples.getSamples().iterator(); it.hasNext(); ) {
+                    GraphSample sample = loadPruned(spillFolder, it.next().getId(), termsToPrune, induceEdgesAfterTermPrunning);
+                    if (sample == null) {
+                        it.remove();
+                    } else {
+                        stats.addGraph(sample.getGraph());
+                    }
+                }
+            } else if (tfIdf) {
+                Logs.fine("Converting graph dataset weight from TF to TF-IDF");
+            }
+            if (tfIdf || pruneByDF) { //para ponderar novos documentos do mesmo modo (ver GraphTransformer)
+                stats.writeToFile(GraphDataset.getStatsFile(destineFolder));
+            }
+
+            //passo final: cada grafo é processado e gravado isoladamente
+            writeGraphs(samples, spillFolder, termsToPrune, induceEdgesAfterTermPrunning, tfIdf ? stats : null, normalize,
+                maxNodesByGraphToRetain, workers, new SamplePathResolverSimple(destineFolder));
+        } finally {
+            FileUtils.deleteQuietly(spillFolder);
+        }
+    }
+
+    private static Set<String> getTermsDFLessThan(GraphDatasetStats stats, int minimumDF) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (Entry<String, MutableInt> termDF : stats.getTermsDFs().entrySet()) {
+            if (termDF.getValue().intValue() < minimumDF) {
+                terms.add(termDF.getKey());
+            }
+        }
+        return terms;
+    }
+
+    /** @return the spilled graph after the term pruning, or null if it became empty */
+    private static GraphSample loadPruned(File spillFolder, long id, Map<String,Integer> termsToPrune, boolean induceEdgesAfterTermPrunning) {
+        GraphSample sample = GraphDataset.loadSampleFromFile(GraphDataset.getGraphSampleFile(spillFolder.getPath(), id));
+        if (!termsToPrune.isEmpty() && GraphDataset.pruneTerms(sample.getGraph(), termsToPrune, induceEdgesAfterTermPrunning)) {
+            Logs.fine("Discarding sample "+ id +" due it became empty after term prunning");
+            return null;
+        }
+        return sample;
+    }
+
+    /**
+     * @param tfIdfStats DFs for the TF-IDF conversion, null for no conversion
+     */
+    private static void writeGraphs(GraphDataset samples, File spillFolder, Map<String,Integer> termsToPrune, boolean induceEdgesAfterTermPrunning,
+        GraphDatasetStats tfIdfStats, boolean normalize, int maxNodesByGraphToRetain, int workers, SamplePathResolver resultFolder)
+    {
+        TimeWatcher watcher = new TimeWatcher();
+        resultFolder.initialize(false);
+        if (normalize) {
+            Logs.finer("Normalizing graph weights by dividing values for their max within each graph");
+        }
+        if (maxNodesByGraphToRetain > 0) {
+            Logs.fine("Pruning graphs to max " + maxNodesByGraphToRetain + " nodes each.");
+        }
+
+        List<GraphSample> samplesList = samples.getSamples();
+        int nDocuments = samplesList.size();
+        boolean[] written = new boolean[nDocuments];
+        Set<String> terms = ConcurrentHashMap.newKeySet(), retainedTerms = ConcurrentHashMap.newKeySet();
+        AtomicInteger nProcessed = new AtomicInteger(), sumVertices = new AtomicInteger(), sumRetainedVertices = new AtomicInteger();
+        ConcurrencyUtils.runWithParallelism(workers, () -> {
+            IntStream.range(0, nDocuments).parallel().forEach(i -> {
+                GraphSample sample = loadPruned(spillFolder, samplesList.get(i).getId(), termsToPrune, induceEdgesAfterTermPrunning);
+                if (sample == null)
+                    return;
+                LabeledMeasurableGraph graph = sample.getGraph();
+                if (tfIdfStats != null)
+                    graph.convertTFtoTFIDF(nDocuments, tfIdfStats);
+                if (normalize)
+                    graph.normalizeWeights(0,1);
+                nProcessed.incrementAndGet();
+                terms.addAll(graph.vertexSet());
+                sumVertices.addAndGet(graph.vertexSet().size());
+                if (maxNodesByGraphToRetain > 0) {
+                    if (graph.pruneWorstWeightedTerms(maxNodesByGraphToRetain)) {
+                        Logs.fine("Discarding sample "+ sample.getId() +" due it became empty after term prunning");
+                        return;
+                    }
+                    retainedTerms.addAll(graph.vertexSet());
+                    sumRetainedVertices.addAndGet(graph.vertexSet().size());
+                }
+                GraphDataset.writeSampleOnFolder(sample, resultFolder);
+                written[i] = true;
+            });
+        });
+
+        GraphDataset.logStats(new TreeSet<>(terms), sumVertices.get(), nProcessed.get());
+        List<GraphSample> writtenSamples = new ArrayList<>();
+        for (int i = 0; i < nDocuments; i++) {
+            if (written[i])
+                writtenSamples.add(samplesList.get(i));
+        }
+        if (maxNodesByGraphToRetain > 0) {
+            GraphDataset.logStats(new TreeSet<>(retainedTerms), sumRetainedVertices.get(), writtenSamples.size());
+        }
+        samplesList.clear();
+        samplesList.addAll(writtenSamples);
+        samples.logSampleCountByClass();
+        Logs.fine("Dataset saved on folder " + resultFolder + ". Time elapsed: "+ watcher);
+    }
+}
@@ -18,6 +18,7 @@ import mining.bagOfGraphs.sampleSubgraph.linkedElement.LinkedElementSubgraphsHan
 import mining.clustering.Clusterer;
 import mining.clustering.MeanShiftClusterer;
 import mining.textMining.textToGraph.model.GraphType;
+import util.ConcurrencyUtils;
 import util.Factory;
 import util.Params;
 import util.RandomFactory;
@@ -37,10 +38,16 @@ public class BoTGConfigs extends EvaluatorConfigs {
 
     public final boolean generateGlobalCodebook;
     public final CodebookGenerator codebookGenerator;
+    /** existing codebook to be updated with the subgraphs of the samples (see {@link CodebookGeneratorClustering#update}), instead of generating a new one */
+    public final File baseCodebook;
 
     public final TypeAssignment assignment;
     public final TypePooling pooling;
 
+    /** folds processed at the same time, each one admitted once its estimated memory fits in foldMemoryFraction of the free heap */
+    public final int foldWorkers;
+    public final double foldMemoryFraction;
+
     public BoTGConfigs(Params params) {
         super(params);
 
@@ -58,7 +65,7 @@ public class BoTGConfigs extends EvaluatorConfigs {
 	    if(graphs == null)
 	        throw new IllegalArgumentException("required parameter is missing: graphs");
 
-        generateGlobalCodebook = params.getBoolean("globalCodebook", true);
+        generateGlobalCodebook = params.getBoolean("globalCodebook", false); //opcional: o codebook sai das amostras de treino e teste do fold 0
 
 	    //default parameters:
         // -use all subgraphs for codebook generation
@@ -83,22 +90,42 @@ public class BoTGConfigs extends EvaluatorConfigs {
     	    int maxElementsToUseFromCodebookSet = params.getInt("maxElementsToUseFromCodebookSet", -1);
             boolean prioritizeMemoryInsteadOfSpeed = params.getBoolean("prioritizeMemory", true);
 
+            final Float meanshiftBandwidth = 1F; //null to estimate it by quantile
             Factory<Clusterer> clustererFactory = new Factory<Clusterer>(){
                 final float percentageElementsForSeeds = params.getFloat("meanshift_percentageSeeds", 0.1F);
                 final int meanshiftMaxIterations = 50;
-                final Float bandwidth = 1F, quantile = null; //final Float bandwidth = null, quantile = 0.3F;
+                final Float bandwidth = meanshiftBandwidth, quantile = null; //final Float bandwidth = null, quantile = 0.3F;
                 public Clusterer create(Object... params) {
                     return new MeanShiftClusterer((Matrix<Float>)params[0], percentageElementsForSeeds, meanshiftMaxIterations, bandwidth, quantile);
                 }
                 public String toString() { return ToStringBuilder.reflectionToString(this, ToStringStyleNotNullNoClassName.INSTANCE); }
             };
 
-            codebookGenerator = new CodebookGeneratorClustering(onlyComplexSubgraphsForCodebookSet, maxElementsBySampleForCodebookSet,
+            CodebookGeneratorClustering clusteringCodebookGenerator = new CodebookGeneratorClustering(onlyComplexSubgraphsForCodebookSet, maxElementsBySampleForCodebookSet,
                 filterCodebookSet, maxElementsToUseFromCodebookSet, prioritizeMemoryInsteadOfSpeed, clustererFactory);
+            clusteringCodebookGenerator.setIncrementalRadius(meanshiftBandwidth);
+            codebookGenerator = clusteringCodebookGenerator;
     	}
+    	String baseCodebookParam = StringUtils.trimToNull(params.get("baseCodebook")); //opcional: codebook de uma rodada anterior, atualizado pelas novas amostras
+    	baseCodebook = baseCodebookParam == null ? null : new File(baseCodebookParam);
+    	if(baseCodebook != null && !(codebookGenerator instanceof CodebookGeneratorClustering))
+    	    throw new IllegalArgumentException("baseCodebook requires the clustering codebook generator, not " + codebookGenerator.getClass().getSimpleName());
+    	if(baseCodebook != null && !baseCodebook.isFile())
+    	    throw new IllegalArgumentException("baseCodebook not found: " + baseCodebook);
+
+        codebookGenerator.setCandidateGenerationWorkers(params.getInt("candidateGenerationWorkers", ConcurrencyUtils.getAvailableProcessors()));
+        codebookGenerator.setFilteringOptions(params.getInt("codebookSetFilteringWorkers", ConcurrencyUtils.getAvailableProcessors()),
+            params.getInt("codebookSetFilteringMaxCandidatesInMemory", 1000000));
 
         assignment = TypeAssignment.valueOf(params.assertParam("assignment"));
         pooling = TypePooling.valueOf(params.assertParam("pooling"));
+
+        foldWorkers = params.getInt("foldWorkers", 1);
+        foldMemoryFraction = params.getDouble("foldMemoryFraction", 0.7);
+    }
+
+    public LinkedElementDistances getSubgraphDistance() {
+        return subgraphDistance;
     }
 
     public SamplePathResolver getGraphsFolder() {
@@ -1,13 +1,17 @@
 package botg.config.base;
 
+import java.io.File;
 import java.util.Set;
 import mining.DatasetCrossFold;
+import mining.textMining.CachedStemmer;
 import mining.textMining.PorterStemmer;
 import mining.textMining.Stemmer;
 import mining.textMining.StopList;
 import mining.textMining.TextSampleFilter;
 import mining.textMining.parsing.TokenExtractor;
+import mining.textMining.parsing.TokenStore;
 import util.Params;
+import util.StringUtils;
 
 public class ReducerConfigs extends DatasetConfigs {
 
@@ -21,6 +25,8 @@ public class ReducerConfigs extends DatasetConfigs {
 
     public final TextSampleFilter textSampleFilter;
 
+    private final String tokenStoreFolder; //opcional: pasta onde guardar os textos tokenizados, para reuso entre execucoes
+
     public ReducerConfigs(Params params) {
         super(params);
         removeEmails = params.getBoolean("removeEmails", false);
@@ -29,12 +35,15 @@ public class ReducerConfigs extends DatasetConfigs {
 
         String stemming = params.get("stemming", "porter");
         if ("porter".equalsIgnoreCase(stemming)) {
-            stemmer = new PorterStemmer();
+            int stemCacheSize = params.getInt("stemCacheSize", 100000); //0 to disable
+            stemmer = stemCacheSize > 0 ? new CachedStemmer(new PorterStemmer(), stemCacheSize) : new PorterStemmer();
         } else {
             stemmer = null;
         }
 
         textSampleFilter = usePriorDatasetCrossFoldDistribution ? null : new TextSampleFilter(true, true, true);
+
+        tokenStoreFolder = params.get("tokenStoreFolder");
     }
 
     public TokenExtractor createTokenExtractor() {
@@ -43,6 +52,11 @@ public class ReducerConfigs extends DatasetConfigs {
         return tokenExtractor;
     }
 
+    /** the token store for the given extractor, or null when no tokenStoreFolder was set */
+    public TokenStore openTokenStore(TokenExtractor tokenExtractor) {
+        return StringUtils.isNotBlank(tokenStoreFolder) ? TokenStore.open(new File(tokenStoreFolder), tokenExtractor) : null;
+    }
+
     public DatasetCrossFold getFoldDistributionToUseInReduction() {
 		return usePriorDatasetCrossFoldDistribution ? getDatasetCrossFold() : null;
 	}
@@ -1,5 +1,6 @@
 package botg.dataset;
 
+import java.io.File;
 import mining.DatasetReader;
 import mining.textMining.TextSample;
 
@@ -8,6 +9,30 @@ public enum Datasets {
         public DatasetReader<TextSample> createDatasetReader(String rootFolder) {
             return new OhsumedReader(getDatasetFolder(rootFolder, id));
         }
+    },
+    /** folder with a subfolder per label, holding a file per document named by its id */
+    LABEL_FOLDERS("labelFolders") {
+        public DatasetReader<TextSample> createDatasetReader(String rootFolder) {
+            return new LabelFoldersReader(new File(getDatasetFolder(rootFolder, id)));
+        }
+    },
+    /** folder of JSON lines files (see JsonLinesReader) */
+    JSON_LINES("jsonLines") {
+        public DatasetReader<TextSample> createDatasetReader(String rootFolder) {
+            return new JsonLinesReader(new File(getDatasetFolder(rootFolder, id)));
+        }
+    },
+    /** folder of tab-separated files (see TsvReader) */
+    TSV("tsv") {
+        public DatasetReader<TextSample> createDatasetReader(String rootFolder) {
+            return new TsvReader(new File(getDatasetFolder(rootFolder, id)));
+        }
+    },
+    /** generated corpus, described by the params file of its folder (see SyntheticCorpusReader) */
+    SYNTHETIC("synthetic") {
+        public DatasetReader<TextSample> createDatasetReader(String rootFolder) {
+            return SyntheticCorpusReader.fromFolder(new File(getDatasetFolder(rootFolder, id)));
+        }
     };
 
 	public final String id;
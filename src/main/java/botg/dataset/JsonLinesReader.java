@@ -0,0 +1,51 @@
+package botg.dataset;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import mining.textMining.TextSample;
+import util.JsonUtils;
+
+/**
+ * Reader of JSON lines corpora, with a JSON object per line such as
+ * {"id": 12, "labels": ["a","b"], "title": "...", "body": "..."}.
+ * The id may be a number or a numeric string; "label" may be given instead of "labels", and "text" instead of "body".
+ */
+public class JsonLinesReader extends LineFilesReader {
+
+    public JsonLinesReader(File fileOrFolder) {
+        super(fileOrFolder);
+    }
+
+    @Override
+    protected TextSample parseLine(String line) {
+        return toTextSample(JsonUtils.parseObject(line), null);
+    }
+
+    /**
+     * the document given as a JSON object, in the format of the lines
+     * @param defaultId id of the document when it has no "id", null to require it
+     */
+    public static TextSample toTextSample(Map<String,Object> object, Long defaultId) {
+        Object id = object.get("id");
+        if (id == null) {
+            if (defaultId == null)
+                throw new IllegalArgumentException("id missing: " + JsonUtils.toJson(object));
+            id = defaultId;
+        }
+        Set<String> labels = new TreeSet<>();
+        Object label = object.containsKey("labels") ? object.get("labels") : object.get("label");
+        if (label instanceof Collection) {
+            for (Object l : (Collection<?>) label)
+                labels.add(String.valueOf(l));
+        } else if (label != null) {
+            labels.add(String.valueOf(label));
+        }
+        Object title = object.get("title");
+        Object body = object.containsKey("body") ? object.get("body") : object.get("text");
+        return new TextSample(id instanceof Number ? ((Number) id).longValue() : Long.parseLong(id.toString()), labels,
+            title == null ? null : title.toString(), body == null ? null : body.toString(), null);
+    }
+}
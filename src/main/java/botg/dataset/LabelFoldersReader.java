@@ -0,0 +1,57 @@
+package botg.dataset;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import com.google.common.base.Preconditions;
+import mining.textMining.TextSample;
+import util.io.FileUtils;
+
+/**
+ * Reader of corpora with a folder per label, holding a file per document named by its id (as Ohsumed).
+ * A document within several folders gets all their labels.
+ */
+public class LabelFoldersReader extends StreamingTextReader {
+
+    private final File[] labelFolders;
+    private final File[][] files;
+
+    public LabelFoldersReader(File folder) {
+        Preconditions.checkArgument(folder.isDirectory(), "not a folder: " + folder);
+        labelFolders = folder.listFiles(File::isDirectory);
+        Arrays.sort(labelFolders);
+        files = new File[labelFolders.length][];
+    }
+
+    @Override
+    protected int getNumberOfParts() {
+        return labelFolders.length;
+    }
+
+    @Override
+    protected List<IndexEntry> indexPart(int part) {
+        String[] labels = {labelFolders[part].getName()};
+        File[] sampleFiles = labelFolders[part].listFiles(File::isFile);
+        Arrays.sort(sampleFiles);
+        files[part] = sampleFiles;
+        List<IndexEntry> entries = new ArrayList<>(sampleFiles.length);
+        for (int i = 0; i < sampleFiles.length; i++) {
+            long id = Long.parseLong(sampleFiles[i].getName());
+            entries.add(new IndexEntry(id, labels, part, i, 0));
+        }
+        return entries;
+    }
+
+    @Override
+    protected TextSample load(IndexEntry entry, Set<String> labels) {
+        try {
+            String text = FileUtils.readFileToString(files[entry.part][(int) entry.position]);
+            return new TextSample(entry.id, labels, null, text, null);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package botg.dataset;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import com.google.common.base.Preconditions;
+import mining.textMining.TextSample;
+
+/**
+ * Reader of corpora given as files (UTF-8) with a document per line: a single file, or all the files of a folder.
+ * The index keeps the position of each line, which is read again when its document is loaded.
+ * The same id in several lines gives a document with the labels of all of them.
+ */
+public abstract class LineFilesReader extends StreamingTextReader {
+
+    private final File[] lineFiles;
+    private final FileChannel[] channels;
+
+    public LineFilesReader(File fileOrFolder) {
+        Preconditions.checkArgument(fileOrFolder.exists(), "not found: " + fileOrFolder);
+        if (fileOrFolder.isDirectory()) {
+            lineFiles = fileOrFolder.listFiles(f -> f.isFile() && !f.isHidden());
+            Arrays.sort(lineFiles);
+        } else {
+            lineFiles = new File[]{ fileOrFolder };
+        }
+        channels = new FileChannel[lineFiles.length];
+    }
+
+    /** the document of the line; only its id and labels are used when indexing */
+    protected abstract TextSample parseLine(String line);
+
+    @Override
+    protected int getNumberOfParts() {
+        return lineFiles.length;
+    }
+
+    @Override
+    protected List<IndexEntry> indexPart(int part) {
+        List<IndexEntry> entries = new ArrayList<>();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(lineFiles[part]), 1 << 16)) {
+            byte[] line = new byte[1024];
+            int length = 0;
+            long lineStart = 0, position = 0;
+            for (int b; ; position++) {
+                b = in.read();
+                if (b == '\n' || b == -1) {
+                    String text = decode(line, length);
+                    if (!text.trim().isEmpty()) {
+                        TextSample sample = parseLine(text);
+                        Set<String> labels = sample.getLabels();
+                        String[] labelsArray = labels == null ? new String[0] : labels.toArray(new String[labels.size()]);
+                        for (int i = 0; i < labelsArray.length; i++)
+                            labelsArray[i] = labelsArray[i].intern();
+                        entries.add(new IndexEntry(sample.getId(), labelsArray, part, lineStart, length));
+                    }
+                    if (b == -1)
+                        break;
+                    length = 0;
+                    lineStart = position + 1;
+                } else {
+                    if (length == line.length)
+                        line = Arrays.copyOf(line, 2 * length);
+                    line[length++] = (byte) b;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new RuntimeException("Error while indexing " + lineFiles[part], e);
+        }
+        return entries;
+    }
+
+    private static String decode(byte[] line, int length) {
+        if (length > 0 && line[length - 1] == '\r')
+            length--;
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected TextSample load(IndexEntry entry, Set<String> labels) {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+            FileChannel channel = getChannel(entry.part);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, entry.position + buffer.position()) < 0)
+                    throw new IOException("unexpected end of file " + lineFiles[entry.part]);
+            }
+            TextSample sample = parseLine(decode(buffer.array(), entry.length));
+            sample.setLabels(labels);
+            return sample;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private synchronized FileChannel getChannel(int part) throws IOException {
+        if (channels[part] == null)
+            channels[part] = FileChannel.open(lineFiles[part].toPath(), StandardOpenOption.READ);
+        return channels[part];
+    }
+
+    @Override
+    protected synchronized void finishLoading() {
+        for (int i = 0; i < channels.length; i++) {
+            if (channels[i] != null) {
+                try {
+                    channels[i].close();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                channels[i] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package botg.dataset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import com.google.common.base.Preconditions;
+import mining.DatasetReader;
+import mining.textMining.TextSample;
+import util.Collector;
+import util.ConcurrencyUtils;
+import util.Filter;
+import util.Logs;
+import util.ParallelCollector;
+import util.Pointer;
+import util.TimeWatcher;
+
+/**
+ * Base of the readers of corpora too big to be kept in memory.
+ * The corpus is split in parts (files or folders), which are first indexed in parallel: the index keeps, for each document,
+ * only its id, its labels and where it is. The entries of a document found more than once (e.g. under several labels) are merged,
+ * with the union of their labels and the location of the first one.
+ * The texts are then loaded by a pool of workers and handed to the collector in id order, with at most maxPending documents loaded
+ * but not yet collected. The index is kept for the next readings.
+ */
+public abstract class StreamingTextReader implements DatasetReader<TextSample> {
+
+    /** Location of a document within a part of the corpus, whose meaning is given by each reader */
+    protected static class IndexEntry {
+        final long id;
+        String[] labels;
+        final int part;
+        final long position;
+        final int length;
+
+        protected IndexEntry(long id, String[] labels, int part, long position, int length) {
+            this.id = id;
+            this.labels = labels;
+            this.part = part;
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+    private int workers = ConcurrencyUtils.getAvailableProcessors();
+    private int maxPending = -1;
+    private List<IndexEntry> index;
+
+    /** @param maxPending max documents loaded but not yet collected, -1 for 4 per worker */
+    public void setWorkers(int workers, int maxPending) {
+        Preconditions.checkArgument(workers > 0 && (maxPending > 0 || maxPending == -1));
+        this.workers = workers;
+        this.maxPending = maxPending;
+    }
+
+    protected abstract int getNumberOfParts();
+
+    /** the index entries of the documents of the part, in the order they must be considered when merging entries of the same document */
+    protected abstract List<IndexEntry> indexPart(int part);
+
+    protected abstract TextSample load(IndexEntry entry, Set<String> labels);
+
+    /** called after all the documents of a reading were loaded */
+    protected void finishLoading() {
+    }
+
+    @Override
+    public void readSamples(Filter<TextSample> sampleFilter, Collector<TextSample> collector) {
+        List<IndexEntry> index = getIndex();
+        Function<IndexEntry,TextSample> loader = entry -> {
+            TextSample sample = load(entry, new TreeSet<>(Arrays.asList(entry.labels)));
+            return sampleFilter == null || sampleFilter.isAccepted(sample) ? sample : null;
+        };
+        try {
+            if (workers > 1) {
+                int pending = maxPending > 0 ? maxPending : 4 * workers;
+                try (ParallelCollector<IndexEntry,TextSample> parallelLoader = new ParallelCollector<>(loader, collector, workers, pending)) {
+                    index.forEach(parallelLoader::collect);
+                }
+            } else {
+                for (IndexEntry entry : index) {
+                    TextSample sample = loader.apply(entry);
+                    if (sample != null)
+                        collector.collect(sample);
+                }
+            }
+        } finally {
+            finishLoading();
+        }
+    }
+
+    private synchronized List<IndexEntry> getIndex() {
+        if (index == null) {
+            TimeWatcher watcher = new TimeWatcher();
+            Pointer<List<List<IndexEntry>>> parts = new Pointer<>();
+            ConcurrencyUtils.runWithParallelism(workers, () -> {
+                parts.set(IntStream.range(0, getNumberOfParts()).parallel().mapToObj(this::indexPart).collect(Collectors.toList()));
+            });
+            List<IndexEntry> entries = new ArrayList<>();
+            parts.get().forEach(entries::addAll);
+            int nEntries = entries.size();
+            index = merge(entries);
+            Logs.finer(getClass().getSimpleName() + " indexed " + index.size() + " documents (" + nEntries + " entries) in " + getNumberOfParts() + " parts. Time elapsed: " + watcher);
+        }
+        return index;
+    }
+
+    private static List<IndexEntry> merge(List<IndexEntry> entries) {
+        entries.sort(Comparator.comparingLong(e -> e.id)); //estavel: a primeira entrada de cada documento continua a primeira
+        List<IndexEntry> merged = new ArrayList<>();
+        for (int i = 0; i < entries.size(); ) {
+            IndexEntry first = entries.get(i);
+            int j = i + 1;
+            while (j < entries.size() && entries.get(j).id == first.id)
+                j++;
+            if (j - i > 1) {
+                Set<String> labels = new TreeSet<>();
+                for (int k = i; k < j; k++)
+                    labels.addAll(Arrays.asList(entries.get(k).labels));
+                first.labels = labels.toArray(new String[labels.size()]);
+            }
+            merged.add(first);
+            i = j;
+        }
+        return merged;
+    }
+}
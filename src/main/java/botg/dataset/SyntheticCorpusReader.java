@@ -0,0 +1,144 @@
+package botg.dataset;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import com.google.common.base.Preconditions;
+import mining.DatasetReader;
+import mining.textMining.StopList;
+import mining.textMining.TextSample;
+import util.Collector;
+import util.Filter;
+import util.Params;
+import util.io.FileUtils;
+
+/**
+ * Synthetic multi-labeled corpus, for benchmarks at any scale without a real dataset.
+ * The words follow a Zipf distribution over the vocabulary, as in natural language; a share of the words of each document is drawn
+ * from the topic of its label (the same Zipf distribution, over the vocabulary rotated by the label), so that the labels can be learned,
+ * and a quarter are stop words. Each document has one label, plus another one with probability multiLabel (0 by default, as the graph
+ * generation does not support multi-labeled samples).
+ * Documents are generated from their ids (1..documents), so any reading gives the same corpus for the same parameters.
+ * Params: documents, vocabulary, length (mean words per document), labels, multiLabel, zipf (exponent), topicShare and seed.
+ */
+public class SyntheticCorpusReader implements DatasetReader<TextSample> {
+
+    /** file, within the dataset folder, with the params of the corpus (as "documents=1000,vocabulary=20000") */
+    public static final String PARAMS_FILE = "corpus.params";
+
+    private static final String[] SYLLABLES = { "ka", "ki", "ko", "ku", "la", "li", "lo", "lu", "ma", "mi", "mo", "mu", "ta", "ti", "to", "tu" };
+    private static final String[] SEPARATORS = { " ", " ", " ", " ", " ", " ", ", ", "; ", " (", ") " };
+    private static final int TITLE_LENGTH = 8;
+
+    private final int documents;
+    private final int vocabularySize;
+    private final int meanLength;
+    private final int labels;
+    private final double multiLabel;
+    private final double topicShare;
+    private final long seed;
+    private final double[] cumulativeProbabilities;
+    private final String[] stopWords;
+
+    public SyntheticCorpusReader(int documents, int vocabularySize, int meanLength, int labels, double multiLabel, double zipfExponent, double topicShare,
+        long seed)
+    {
+        Preconditions.checkArgument(documents > 0 && vocabularySize > 0 && meanLength > 0 && labels > 0 && multiLabel >= 0 && multiLabel <= 1
+            && zipfExponent > 0 && topicShare >= 0 && topicShare <= 1);
+        this.documents = documents;
+        this.vocabularySize = vocabularySize;
+        this.meanLength = meanLength;
+        this.labels = labels;
+        this.multiLabel = multiLabel;
+        this.topicShare = topicShare;
+        this.seed = seed;
+        cumulativeProbabilities = new double[vocabularySize];
+        double sum = 0;
+        for (int rank = 1; rank <= vocabularySize; rank++) {
+            sum += 1 / Math.pow(rank, zipfExponent);
+            cumulativeProbabilities[rank - 1] = sum;
+        }
+        stopWords = new TreeSet<>(StopList.STOP_LIST).toArray(new String[0]);
+    }
+
+    public SyntheticCorpusReader(Params params) {
+        this(params.getInt("documents", 1000), params.getInt("vocabulary", 20000), params.getInt("length", 200), params.getInt("labels", 4), params.getDouble("multiLabel", 0),
+            params.getDouble("zipf", 1.0), params.getDouble("topicShare", 0.3), params.getLong("seed", 0L));
+    }
+
+    /** the corpus described by the params file of the folder, or the default one if there is no such file */
+    public static SyntheticCorpusReader fromFolder(File folder) {
+        File paramsFile = new File(folder, PARAMS_FILE);
+        return new SyntheticCorpusReader(paramsFile.exists() ? Params.parse(FileUtils.readFileToString(paramsFile.getPath()).trim()) : new Params());
+    }
+
+    public int getNumberOfDocuments() {
+        return documents;
+    }
+
+    /** the word of the given vocabulary index, made of syllables so that every index has a distinct word that the stemmers keep distinct */
+    public static String getWord(int index) {
+        StringBuilder word = new StringBuilder();
+        for (int i = index + 1; i > 0; i /= SYLLABLES.length)
+            word.append(SYLLABLES[i % SYLLABLES.length]);
+        return word.toString();
+    }
+
+    /** vocabulary index drawn by the Zipf distribution, with rank 1 being index 0 */
+    private int nextIndex(Random random) {
+        int i = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble() * cumulativeProbabilities[vocabularySize - 1]);
+        return Math.min(i >= 0 ? i : -i - 1, vocabularySize - 1);
+    }
+
+    private String nextWord(Random random, int label) {
+        if (random.nextInt(4) == 0)
+            return stopWords[random.nextInt(stopWords.length)];
+        int index = nextIndex(random);
+        if (random.nextDouble() < topicShare) //termos do topico do label: a mesma distribuicao, sobre o vocabulario rotacionado
+            index = (int) ((index + (long) label * vocabularySize / labels) % vocabularySize);
+        return getWord(index);
+    }
+
+    public TextSample generate(long id) {
+        Random random = new Random(seed * 0x9E3779B97F4A7C15L + id);
+        Set<String> sampleLabels = new TreeSet<>();
+        int label = random.nextInt(labels);
+        sampleLabels.add("L" + label);
+        if (labels > 1 && random.nextDouble() < multiLabel)
+            sampleLabels.add("L" + ((label + 1 + random.nextInt(labels - 1)) % labels));
+
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < TITLE_LENGTH; i++)
+            title.append(i > 0 ? " " : "").append(nextWord(random, label));
+        int length = meanLength / 2 + random.nextInt(meanLength + 1);
+        StringBuilder body = new StringBuilder();
+        for (int i = 0, sentence = 0; i < length; i++, sentence++) {
+            String word = nextWord(random, label);
+            body.append(sentence == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            if (random.nextInt(12) == 0) {
+                body.append(". ");
+                sentence = -1;
+            } else {
+                body.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            }
+        }
+        return new TextSample(id, sampleLabels, title.toString(), body.toString().trim(), null);
+    }
+
+    @Override
+    public void readSamples(Filter<TextSample> sampleFilter, Collector<TextSample> collector) {
+        for (long id = 1; id <= documents; id++) {
+            TextSample sample = generate(id);
+            if (sampleFilter == null || sampleFilter.isAccepted(sample))
+                collector.collect(sample);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SyntheticCorpusReader [documents=" + documents + ", vocabulary=" + vocabularySize + ", length=" + meanLength + ", labels=" + labels + ", multiLabel=" + multiLabel
+            + ", topicShare=" + topicShare + ", seed=" + seed + "]";
+    }
+}
@@ -0,0 +1,31 @@
+package botg.dataset;
+
+import java.io.File;
+import java.util.Set;
+import java.util.TreeSet;
+import mining.textMining.TextSample;
+import util.StringUtils;
+
+/**
+ * Reader of tab-separated corpora, with a document per line: id, labels (separated by commas) and text.
+ * Tabs after the second one are kept in the text.
+ */
+public class TsvReader extends LineFilesReader {
+
+    public TsvReader(File fileOrFolder) {
+        super(fileOrFolder);
+    }
+
+    @Override
+    protected TextSample parseLine(String line) {
+        String[] columns = line.split("\t", 3);
+        if (columns.length < 2)
+            throw new IllegalArgumentException("id and labels expected: " + StringUtils.abbreviate(line, 100));
+        Set<String> labels = new TreeSet<>();
+        for (String label : columns[1].split(",")) {
+            if (!(label = label.trim()).isEmpty())
+                labels.add(label);
+        }
+        return new TextSample(Long.parseLong(columns[0].trim()), labels, null, columns.length > 2 ? columns[2] : "", null);
+    }
+}
@@ -24,6 +24,7 @@ import util.Collector;
 import util.DataStructureUtils;
 import util.ListCollector;
 import util.Logs;
+import util.Metrics;
 import util.MathUtils;
 import util.Pair;
 
@@ -271,6 +272,7 @@ public abstract class Dataset<T extends Sample> implements Collector<T>, Iterabl
         //  <dataset>
         //    <sample class="earn" id="5593"/>
         //  </dataset>
+        long start = System.nanoTime();
         try {
             SAXParserFactory.newInstance().newSAXParser().parse(subsetDescriptorFile, new DefaultHandler(){
                 public void startElement(String uri, String localName, String tagName, Attributes attributes) {
@@ -282,6 +284,7 @@ public abstract class Dataset<T extends Sample> implements Collector<T>, Iterabl
         } catch (ParserConfigurationException | SAXException | IOException e) {
             throw new RuntimeException(e);
         }
+        Metrics.recordSince("load.subsetDescriptor", start);
     }
 
     @SafeVarargs
@@ -1,10 +1,16 @@
 package mining.bagOfGraphs;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 import com.google.common.base.Preconditions;
+import mining.Sample;
 import mining.bagOfGraphs.sampleSubgraph.SampleSubgraph;
 import mining.bagOfGraphs.sampleSubgraph.SubgraphsHandler;
 import mining.textMining.bagOfWord.VectorSample;
@@ -13,17 +19,34 @@ import util.Collector;
 import util.DataStructureUtils;
 import util.FloatVector;
 import util.Logs;
+import util.Metrics;
 import util.Pair;
 import util.TimeWatcher;
 import util.dataStructure.FlexibleMatrix;
 
 public class BoGCreator {
 
+    @SafeVarargs
     public static void createBoGs(SubgraphsHandler subgraphsHandler, File subgraphsDir, boolean skipMissingSamples,
         List<SampleSubgraph> codebook, TypeAssignment typeAssignment, TypePooling typePooling, Collector<VectorSample> collector,
         List<Pair<String,String>>... idsLabelsLists)
     {
-        Logs.finest("Creating BoGs, with assignment "+typeAssignment+" and pooling "+typePooling);
+        createBoGs(subgraphsHandler, subgraphsDir, skipMissingSamples, codebook, typeAssignment, Collections.singletonList(typePooling),
+            Collections.singletonList(collector), idsLabelsLists);
+    }
+
+    /**
+     * Creates the BoGs of the samples with each of the pooling types, assigning the subgraphs of each sample to the codebook only once:
+     * the BoG of the i-th pooling type is collected by the i-th collector.
+     */
+    @SafeVarargs
+    public static void createBoGs(SubgraphsHandler subgraphsHandler, File subgraphsDir, boolean skipMissingSamples,
+        List<SampleSubgraph> codebook, TypeAssignment typeAssignment, List<TypePooling> typePoolings, List<Collector<VectorSample>> collectors,
+        List<Pair<String,String>>... idsLabelsLists)
+    {
+        Preconditions.checkArgument(typePoolings.size() == collectors.size(), "a collector is required for each pooling type");
+        Preconditions.checkArgument(!codebook.isEmpty(), "Codebook can't be empty");
+        Logs.finest("Creating BoGs, with assignment "+typeAssignment+" and pooling "+typePoolings);
         TimeWatcher timeWatcher = new TimeWatcher();
 
         for(List<Pair<String,String>> idsLabels : idsLabelsLists){
@@ -31,11 +54,22 @@ public class BoGCreator {
                 long sampleId = Long.parseLong(idLabel.getA());
                 File sampleFile = new File(subgraphsDir, String.valueOf(sampleId));
                 if (!skipMissingSamples || sampleFile.exists()) {
+                    long start = System.nanoTime();
                     List<SampleSubgraph> subgraphs = subgraphsHandler.loadSamplesSubgraphs(sampleFile, -1);
-                    VectorSample bog = createBoG(sampleId, DataStructureUtils.asSetUnit(idLabel.getB()), subgraphs, codebook, typeAssignment, typePooling);
-                    synchronized (collector) {
-                        collector.collect(bog);
+                    Preconditions.checkArgument(!subgraphs.isEmpty(), "Subgraph list can't be empty");
+                    Set<String> labels = DataStructureUtils.asSetUnit(idLabel.getB());
+                    FlexibleMatrix assign = typeAssignment.assign(subgraphs, codebook);
+                    for (int i = 0; i < typePoolings.size(); i++) {
+                        VectorSample bog = new VectorSample(sampleId, labels, typePoolings.get(i).pooling(assign));
+                        Collector<VectorSample> collector = collectors.get(i);
+                        synchronized (collector) {
+                            collector.collect(bog);
+                        }
                     }
+                    Metrics.recordSince("bog.sample", start);
+                    Metrics.counter("bog.subgraphs").add(subgraphs.size());
+                } else {
+                    Metrics.counter("bog.missingSamples").increment();
                 }
             });
         }
@@ -57,6 +91,55 @@ public class BoGCreator {
 		return new VectorSample(sampleId, labels, bag);
 	}
 
+	/** the same BoG of {@link #createBoG(long, Set, Collection, List, TypeAssignment, TypePooling)}, assigning through the codebook index */
+	public static VectorSample createBoG(long sampleId, Set<String> labels, Collection<SampleSubgraph> sampleSubgraphs,
+		CodebookIndex codebook, TypeAssignment typeAssignment, TypePooling typePooling)
+	{
+        Preconditions.checkArgument(!sampleSubgraphs.isEmpty(), "Subgraph list can't be empty");
+		return new VectorSample(sampleId, labels, typePooling.pooling(typeAssignment.assign(sampleSubgraphs, codebook)));
+	}
+
+	/**
+	 * The BoGs of {@link #createBoG(long, Set, Collection, CodebookIndex, TypeAssignment, TypePooling)} of a batch of samples, sharing the assignment:
+	 * each distinct subgraph of the batch (they repeat among documents of common terms) is compared with its candidate codewords only once,
+	 * in parallel (in the pool of the calling task), and each sample pools the assignment rows of its subgraphs.
+	 */
+	public static List<VectorSample> createBoGs(List<? extends Sample> samples, List<? extends Collection<SampleSubgraph>> samplesSubgraphs,
+		CodebookIndex codebook, TypeAssignment typeAssignment, TypePooling typePooling)
+	{
+        Map<SampleSubgraph,Integer> rows = new LinkedHashMap<>();
+        for (Collection<SampleSubgraph> sampleSubgraphs : samplesSubgraphs) {
+            Preconditions.checkArgument(!sampleSubgraphs.isEmpty(), "Subgraph list can't be empty");
+            for (SampleSubgraph subgraph : sampleSubgraphs)
+                rows.putIfAbsent(subgraph, rows.size());
+        }
+        //as linhas de cada subgrafo independem das demais, tanto no HARD quanto no SOFT
+        List<SampleSubgraph> distinctSubgraphs = new ArrayList<>(rows.keySet());
+        List<Map<Integer,Float>> lines = new ArrayList<>(Collections.nCopies(distinctSubgraphs.size(), null));
+        IntStream.range(0, distinctSubgraphs.size()).parallel()
+            .forEach(r -> lines.set(r, typeAssignment.assign(Collections.singletonList(distinctSubgraphs.get(r)), codebook).getLine(0)));
+        Metrics.counter("bog.batchSubgraphs").add(samplesSubgraphs.stream().mapToLong(Collection::size).sum());
+        Metrics.counter("bog.batchDistinctSubgraphs").add(distinctSubgraphs.size());
+
+        List<VectorSample> bogs = new ArrayList<>(samples.size());
+        for (int s = 0; s < samples.size(); s++) {
+            Collection<SampleSubgraph> sampleSubgraphs = samplesSubgraphs.get(s);
+            FlexibleMatrix assign = new FlexibleMatrix(sampleSubgraphs.size(), codebook.size());
+            int i = 0;
+            for (SampleSubgraph subgraph : sampleSubgraphs) {
+                Map<Integer,Float> line = lines.get(rows.get(subgraph));
+                if (line != null) {
+                    int row = i;
+                    line.forEach((j, value) -> assign.setValue(row, j, value));
+                }
+                i++;
+            }
+            Sample sample = samples.get(s);
+            bogs.add(new VectorSample(sample.getId(), sample.getLabels(), typePooling.pooling(assign)));
+        }
+        return bogs;
+	}
+
 	private static FloatVector createBag(Collection<SampleSubgraph> sampleSubGraphs,
 		List<SampleSubgraph> codebook, TypeAssignment typeAssignment, TypePooling typePooling)
 	{
@@ -0,0 +1,129 @@
+package mining.bagOfGraphs;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import mining.DatasetReader;
+import mining.Sample;
+import mining.bagOfGraphs.sampleSubgraph.SampleSubgraph;
+import mining.bagOfGraphs.sampleSubgraph.SubgraphsHandler;
+import mining.textMining.TextSample;
+import mining.textMining.bagOfWord.VectorSample;
+import mining.textMining.textToGraph.GraphTransformer;
+import mining.textMining.textToGraph.TextSampleToGraphSampleConverter;
+import mining.textMining.textToGraph.model.GraphSample;
+import util.Collector;
+import util.Filter;
+import util.Logs;
+import util.ParallelCollector;
+import util.TimeWatcher;
+
+/**
+ * Text-to-BoG pipeline for a fixed codebook: each document is tokenized, turned into a graph, weighted with precomputed corpus stats,
+ * split into subgraphs and assigned to the codebook, in memory, without the intermediate files of the batch flow
+ * (graph samples, subgraphs files). Each document is processed in isolation, so the BoGs of the corpus documents are the ones of the
+ * batch flow before the normalization of attributes (done by BoTG over whole train and test sets).
+ * Does not change its state while processing, so documents can be processed concurrently.
+ */
+public class BoGPipeline {
+
+    private final TextSampleToGraphSampleConverter converter;
+    private final GraphTransformer graphTransformer;
+    private final SubgraphsHandler subgraphsHandler;
+    private final CodebookIndex codebook;
+    private final TypeAssignment assignment;
+    private final TypePooling pooling;
+
+    public BoGPipeline(TextSampleToGraphSampleConverter converter, GraphTransformer graphTransformer, SubgraphsHandler subgraphsHandler,
+        List<SampleSubgraph> codebook, TypeAssignment assignment, TypePooling pooling)
+    {
+        this(converter, graphTransformer, subgraphsHandler, new CodebookIndex(codebook), assignment, pooling);
+    }
+
+    /** @param codebook codebook already indexed, e.g. loaded from a snapshot */
+    public BoGPipeline(TextSampleToGraphSampleConverter converter, GraphTransformer graphTransformer, SubgraphsHandler subgraphsHandler,
+        CodebookIndex codebook, TypeAssignment assignment, TypePooling pooling)
+    {
+        this.converter = converter;
+        this.graphTransformer = graphTransformer;
+        this.subgraphsHandler = subgraphsHandler;
+        this.codebook = codebook;
+        this.assignment = assignment;
+        this.pooling = pooling;
+    }
+
+    public List<SampleSubgraph> getCodebook() {
+        return codebook.getCodebook();
+    }
+
+    /** @return the BoG of the document, or null when no subgraph is left from it */
+    public VectorSample createBoG(TextSample textSample) {
+        GraphSample sample = converter.convert(textSample);
+        return sample != null ? createBoG(sample) : null;
+    }
+
+    /**
+     * @param sample graph of raw weights (as created from the text), which is transformed in place
+     * @return the BoG of the sample, or null when no subgraph is left from it
+     */
+    public VectorSample createBoG(GraphSample sample) {
+        List<SampleSubgraph> subgraphs = extractSubgraphs(sample);
+        return subgraphs != null ? assign(sample, subgraphs) : null;
+    }
+
+    /** the first steps of {@link #createBoG(TextSample)}, up to the subgraphs extraction; null when no subgraph is left */
+    public List<SampleSubgraph> extractSubgraphs(TextSample textSample) {
+        GraphSample sample = converter.convert(textSample);
+        return sample != null ? extractSubgraphs(sample) : null;
+    }
+
+    /** the first steps of {@link #createBoG(GraphSample)}, up to the subgraphs extraction; null when no subgraph is left */
+    public List<SampleSubgraph> extractSubgraphs(GraphSample sample) {
+        if (!graphTransformer.transform(sample.getGraph()))
+            return null;
+        List<SampleSubgraph> subgraphs = subgraphsHandler.extractSubgraphs(sample);
+        return subgraphs.isEmpty() ? null : subgraphs;
+    }
+
+    /** the last steps of {@link #createBoG(TextSample)}: assignment of the sample's subgraphs to the codebook and pooling */
+    public VectorSample assign(Sample sample, List<SampleSubgraph> subgraphs) {
+        return BoGCreator.createBoG(sample.getId(), sample.getLabels(), subgraphs, codebook, assignment, pooling);
+    }
+
+    /**
+     * {@link #assign(Sample, List)} of a batch of samples, assigning each distinct subgraph of the batch only once
+     * (see {@link BoGCreator#createBoGs(List, List, CodebookIndex, TypeAssignment, TypePooling)})
+     */
+    public List<VectorSample> assign(List<? extends Sample> samples, List<? extends List<SampleSubgraph>> subgraphs) {
+        return BoGCreator.createBoGs(samples, subgraphs, codebook, assignment, pooling);
+    }
+
+    /**
+     * Creates the BoGs of the documents read, collected in reading order.
+     * @param workers threads that process the documents; 1 processes them in the reading thread
+     */
+    public void run(DatasetReader<TextSample> datasetReader, Filter<TextSample> sampleFilter, Collector<VectorSample> collector, int workers) {
+        Logs.finest("Creating BoGs from texts, with assignment "+assignment+" and pooling "+pooling);
+        TimeWatcher timeWatcher = new TimeWatcher();
+        AtomicInteger read = new AtomicInteger(), created = new AtomicInteger();
+        Collector<VectorSample> counter = bog -> {
+            created.incrementAndGet();
+            collector.collect(bog);
+        };
+        if (workers > 1) {
+            try (ParallelCollector<TextSample,VectorSample> parallelCreator = new ParallelCollector<>(this::createBoG, counter, workers)) {
+                datasetReader.readSamples(sampleFilter, textSample -> {
+                    read.incrementAndGet();
+                    parallelCreator.collect(textSample);
+                });
+            }
+        } else {
+            datasetReader.readSamples(sampleFilter, textSample -> {
+                read.incrementAndGet();
+                VectorSample bog = createBoG(textSample);
+                if (bog != null)
+                    counter.collect(bog);
+            });
+        }
+        Logs.finer(created + " BoGs created from " + read + " documents after " + timeWatcher);
+    }
+}
@@ -1,25 +1,27 @@
 package mining.bagOfGraphs;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.nio.file.Files;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.apache.commons.io.LineIterator;
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.apache.commons.lang3.mutable.MutableInt;
+import com.google.common.collect.Lists;
 import mining.bagOfGraphs.sampleSubgraph.SampleSubgraph;
 import mining.bagOfGraphs.sampleSubgraph.SubgraphsHandler;
-import mining.bagOfGraphs.sampleSubgraph.linkedElement.LinkedElement;
 import mining.textMining.textToGraph.GraphDatasetStats;
-import util.DataStructureUtils;
+import util.ConcurrencyUtils;
 import util.Logs;
+import util.Metrics;
 import util.io.FileUtils;
 
 public abstract class CodebookGenerator {
@@ -28,6 +30,9 @@ public abstract class CodebookGenerator {
     private final int maxElementsBySampleForCodebookSet;
     private final boolean filterCodebookSet;
 	protected final int maxElementsToUseFromCodebookSet;
+	private int candidateGenerationWorkers = 1;
+	private int filteringWorkers = 1;
+	private int filteringMaxCandidatesInMemory = 1000000;
 
 	/**
 	 * @param maxElementsBySampleForCodebookSet -1 to use all.
@@ -40,6 +45,22 @@ public abstract class CodebookGenerator {
     	this.maxElementsToUseFromCodebookSet = maxElementsToUseFromCodebookSet;
 	}
 
+    /**
+     * @param candidateGenerationWorkers number of threads used to create the codebookSet from the sample subgraphs files. 1 (default) runs it sequentially.
+     */
+    public void setCandidateGenerationWorkers(int candidateGenerationWorkers) {
+        this.candidateGenerationWorkers = candidateGenerationWorkers;
+    }
+
+    /**
+     * @param filteringWorkers number of threads used to filter the codebookSet, each one processing the candidates of a central term at a time. 1 (default) runs it sequentially.
+     * @param filteringMaxCandidatesInMemory max codebookSet candidates kept in memory while filtering; beyond that, they are sorted by central term in temporary files.
+     */
+    public void setFilteringOptions(int filteringWorkers, int filteringMaxCandidatesInMemory) {
+        this.filteringWorkers = filteringWorkers;
+        this.filteringMaxCandidatesInMemory = filteringMaxCandidatesInMemory;
+    }
+
 	public void generate(SubgraphsHandler subgraphsHandler, GraphDatasetStats stats, Iterable<File> subgraphsFiles, File codebookFile) {
     	File codebookSetFile = getCodebookSetFile(codebookFile);
 	    createCodebookCandidates(subgraphsHandler, stats, subgraphsFiles, codebookSetFile);
@@ -53,90 +74,101 @@ public abstract class CodebookGenerator {
     	 return new File(codebookFile.getParentFile(), codebookFile.getName() + "_codebookSet");
 	}
 
-	private void createCodebookCandidates(SubgraphsHandler subgraphsHandler, GraphDatasetStats stats, Iterable<File> subgraphsFiles, File outputFile) {
+	/** writes the codebookSet, from which {@link #generate(SubgraphsHandler, GraphDatasetStats, File, File)} generates the codebook */
+	public void createCodebookCandidates(SubgraphsHandler subgraphsHandler, GraphDatasetStats stats, Iterable<File> subgraphsFiles, File outputFile) {
 	    Logs.finest("Generating codebookSet");
-        MutableInt codebookSetSize = new MutableInt(0);
-        try( Writer codebookSetFileWriter = FileUtils.createWriterToFile(outputFile) ){
-            if (onlyComplexSubgraphsForCodebookSet || maxElementsBySampleForCodebookSet > 0) { //in these cases, we need to inspect the subgraphs...
-                long qtd = 0;
-                for (File sampleSubgraphsFile : subgraphsFiles) {
-                    if (++qtd % 2000 == 0) Logs.finest("[CodebookGenerator#createCodebookCandidates] now on " + qtd + "th sample");
-                    List<SampleSubgraph> subgraphs = subgraphsHandler.loadSamplesSubgraphs(sampleSubgraphsFile, -1);
-                    if (onlyComplexSubgraphsForCodebookSet)
-                        subgraphsHandler.retainComplexSubgraphs(subgraphs);
-                    subgraphs = subgraphsHandler.reduceToMostImportant(subgraphs, maxElementsBySampleForCodebookSet);
-                    for (SampleSubgraph sampleSubgraph : subgraphs) {
-                        subgraphsHandler.append(sampleSubgraph, codebookSetFileWriter);
-                        codebookSetSize.increment();
-                    }
-                }
-            } else {
-                long qtd = 0;
-                for(File sampleSubgraphsFile : subgraphsFiles){
-                    if(++qtd % 2000 == 0){ Logs.finest("[CodebookGenerator#createCodebookCandidates] now on "+qtd+"th sample"); }
-                    LineIterator lineIterator = FileUtils.lineIteratorOfFile(sampleSubgraphsFile);
-                    while (lineIterator.hasNext()) {
-                        String sampleSubgraphAsString = lineIterator.next();
-                        if (!sampleSubgraphAsString.isEmpty()) {
-                            subgraphsHandler.append(sampleSubgraphAsString, codebookSetFileWriter);
-                            codebookSetSize.increment();
-                        }
-                    }
-                    lineIterator.close();
-                }
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+	    long start = System.nanoTime();
+	    List<File> files = Lists.newArrayList(subgraphsFiles);
+	    int codebookSetSize;
+	    if (candidateGenerationWorkers > 1 && files.size() > 1)
+	        codebookSetSize = createCodebookCandidatesInParallel(subgraphsHandler, files, outputFile);
+	    else
+	        codebookSetSize = createCodebookCandidates(subgraphsHandler, files, outputFile, new AtomicLong());
         Logs.info("#codebookSet: " + codebookSetSize);
+        Metrics.recordSince("codebook.candidateGeneration", start);
+        Metrics.setGauge("codebook.candidates", codebookSetSize);
 
-        if(filterCodebookSet)
+        if(filterCodebookSet){
+            start = System.nanoTime();
             filterCodebookSet(subgraphsHandler, stats, outputFile, outputFile);
+            Metrics.recordSince("codebook.filter", start);
+        }
 
-        reduceCodebookSet(outputFile, codebookSetSize.intValue());
+        reduceCodebookSet(outputFile, codebookSetSize);
     }
 
+	/**
+	 * Splits the sample files into contiguous shards, each one written to its own file by a worker, which are then concatenated in sample order.
+	 * This way the resulting codebookSet file is identical to the one created sequentially.
+	 */
+	private int createCodebookCandidatesInParallel(SubgraphsHandler subgraphsHandler, List<File> files, File outputFile) {
+	    //more shards than workers, so that workers finishing early can take the remaining ones
+	    int nShards = Math.min(files.size(), 4 * candidateGenerationWorkers);
+	    File[] shardFiles = new File[nShards];
+	    int[] shardSizes = new int[nShards];
+	    AtomicLong progress = new AtomicLong();
+	    ConcurrencyUtils.runWithParallelism(candidateGenerationWorkers, () -> {
+	        IntStream.range(0, nShards).parallel().forEach(shard -> {
+	            List<File> shardSampleFiles = files.subList(shard * files.size() / nShards, (shard + 1) * files.size() / nShards);
+	            shardFiles[shard] = new File(outputFile.getParentFile(), outputFile.getName() + "_shard" + shard);
+	            shardSizes[shard] = createCodebookCandidates(subgraphsHandler, shardSampleFiles, shardFiles[shard], progress);
+	        });
+	    });
+	    try( OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile)) ){
+	        for (File shardFile : shardFiles) {
+	            Files.copy(shardFile.toPath(), out);
+	            FileUtils.deleteQuietly(shardFile);
+	        }
+	    } catch (IOException e) {
+	        throw new RuntimeException(e);
+	    }
+	    return IntStream.of(shardSizes).sum();
+	}
+
+	private int createCodebookCandidates(SubgraphsHandler subgraphsHandler, List<File> subgraphsFiles, File outputFile, AtomicLong progress) {
+	    int codebookSetSize = 0;
+	    try( Writer codebookSetFileWriter = FileUtils.createWriterToFile(outputFile) ){
+	        for (File sampleSubgraphsFile : subgraphsFiles) {
+	            if (progress.incrementAndGet() % 2000 == 0) Logs.finest("[CodebookGenerator#createCodebookCandidates] now on " + progress + "th sample");
+	            codebookSetSize += appendCodebookCandidates(subgraphsHandler, sampleSubgraphsFile, codebookSetFileWriter);
+	        }
+	    } catch (IOException e) {
+	        throw new RuntimeException(e);
+	    }
+	    return codebookSetSize;
+	}
+
+	private int appendCodebookCandidates(SubgraphsHandler subgraphsHandler, File sampleSubgraphsFile, Writer codebookSetFileWriter) {
+	    int appended = 0;
+	    if (onlyComplexSubgraphsForCodebookSet || maxElementsBySampleForCodebookSet > 0) { //in these cases, we need to inspect the subgraphs...
+	        List<SampleSubgraph> subgraphs = subgraphsHandler.loadSamplesSubgraphs(sampleSubgraphsFile, -1);
+	        if (onlyComplexSubgraphsForCodebookSet)
+	            subgraphsHandler.retainComplexSubgraphs(subgraphs);
+	        subgraphs = subgraphsHandler.reduceToMostImportant(subgraphs, maxElementsBySampleForCodebookSet);
+	        for (SampleSubgraph sampleSubgraph : subgraphs) {
+	            subgraphsHandler.append(sampleSubgraph, codebookSetFileWriter);
+	            appended++;
+	        }
+	    } else {
+	        LineIterator lineIterator = FileUtils.lineIteratorOfFile(sampleSubgraphsFile);
+	        try {
+	            while (lineIterator.hasNext()) {
+	                String sampleSubgraphAsString = lineIterator.next();
+	                if (!sampleSubgraphAsString.isEmpty()) {
+	                    subgraphsHandler.append(sampleSubgraphAsString, codebookSetFileWriter);
+	                    appended++;
+	                }
+	            }
+	        } finally {
+	            lineIterator.close();
+	        }
+	    }
+	    return appended;
+	}
+
     protected void filterCodebookSet(SubgraphsHandler subgraphsHandler, GraphDatasetStats stats, File codebookSetFile, File outputFile) {
         Logs.fine("filtering codebookSet");
-        Map<String,List<LinkedElement>> bestByCentralTerm = new TreeMap<>();
-        subgraphsHandler.loadSamplesSubgraphs(codebookSetFile, maxElementsToUseFromCodebookSet, subgraph -> analyze(stats, bestByCentralTerm, (LinkedElement)subgraph));
-        Collection<List<LinkedElement>> codebookLists = bestByCentralTerm.values();
-        if(codebookSetFile.equals(outputFile))
-            outputFile.delete();
-        export(DataStructureUtils.flattenCollectionOfLists(codebookLists), subgraphsHandler, outputFile);
-    }
-    /**
-     * @return notAdd = 0, add = 1, replace = 2
-     */
-    int analyze(GraphDatasetStats stats, Map<String,List<LinkedElement>> bestByCentralTerm, LinkedElement s) {
-        if(stats.getTermDF(s.getElement()) > 1){ //subgrafo de termo central nao recorrente nao é representativo
-            String centralTerm = s.getElement();
-            List<LinkedElement> bestSet = bestByCentralTerm.get(centralTerm);
-            if(bestSet == null){
-                bestSet = new ArrayList<>(1);
-                bestSet.add(s);
-                bestByCentralTerm.put(centralTerm, bestSet);
-                return 1;
-            }else{
-                Set<String> neighborsScore = s.getNeighborEdgesDFsBiggerThanOne(stats);
-                boolean presentsNovelty = true;
-                for(LinkedElement item : bestSet){
-                    Set<String> neighborScore2 = item.getNeighborEdgesDFsBiggerThanOne(stats);
-                    if(neighborsScore.isEmpty() && neighborScore2.isEmpty() && s.getNumEdges() < item.getNumEdges()){ //troca item por s devido ter menos arestas sem utilidade
-                        bestSet.remove(item);
-                        bestSet.add(s);
-                        return 2;
-                    }
-                    if(DataStructureUtils.differenceCount(neighborsScore, neighborScore2) == 0)
-                        presentsNovelty = false;
-                }
-                if(presentsNovelty){
-                    bestSet.add(s);
-                    return 1;
-                }
-            }
-        }
-        return 0;
+        new CodebookSetFilter(subgraphsHandler, stats, filteringWorkers, filteringMaxCandidatesInMemory).filter(codebookSetFile, maxElementsToUseFromCodebookSet, outputFile);
     }
 
     public abstract void generate(SubgraphsHandler subgraphsHandler, GraphDatasetStats stats, File codebookSetFile, File codebookFile);
@@ -174,6 +206,41 @@ public abstract class CodebookGenerator {
         return filterCodebookSet;
     }
 
+    /** whether the codebookSet is filtered, the only use of the dataset stats when creating it (the generation may use them anyway, see {@link #isDatasetStatsRequired()}) */
+    public boolean isCodebookSetFiltered() {
+        return filterCodebookSet;
+    }
+
+    /** rough heap taken by a candidate loaded from the codebookSet, per byte of its line there */
+    protected static final int HEAP_BYTES_PER_CANDIDATE_BYTE = 4;
+
+    /**
+     * Estimated peak heap, in bytes, of generating a codebook from a codebookSet of the given number of candidates, which sum the given bytes
+     * on disk; an upper bound to schedule concurrent generations, not a measure. Here, the candidates kept in memory while filtering.
+     */
+    public long estimateMemory(long numCandidates, long candidatesBytes) {
+        if(numCandidates <= 0)
+            return 0;
+        return Math.min(numCandidates, filteringMaxCandidatesInMemory) * (candidatesBytes / numCandidates) * HEAP_BYTES_PER_CANDIDATE_BYTE;
+    }
+
+    /** upper bound of the size of the codebook generated from a codebookSet of the given number of candidates */
+    public long getMaxCodebookSize(long numCandidates) {
+        return maxElementsToUseFromCodebookSet > 0 ? Math.min(numCandidates, maxElementsToUseFromCodebookSet) : numCandidates;
+    }
+
+    /** the settings which affect the generated codebook, i.e. all but the parallelism ones, to tell whether a codebook can be reused (see StageManifest) */
+    public String getSettings() {
+        return new ReflectionToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+            .setExcludeFieldNames("candidateGenerationWorkers", "filteringWorkers", "filteringMaxCandidatesInMemory").toString();
+    }
+
+    /** the settings which affect the codebookSet, so that generators of the same candidate settings can share it */
+    public String getCandidateSettings() {
+        return "onlyComplexSubgraphsForCodebookSet=" + onlyComplexSubgraphsForCodebookSet + ",maxElementsBySampleForCodebookSet=" + maxElementsBySampleForCodebookSet
+            + ",filterCodebookSet=" + filterCodebookSet + ",maxElementsToUseFromCodebookSet=" + maxElementsToUseFromCodebookSet;
+    }
+
     public String toString() {
         return ReflectionToStringBuilder.toString(this, ToStringStyle.MULTI_LINE_STYLE);
     }
@@ -1,23 +1,34 @@
 package mining.bagOfGraphs;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.file.Files;
 import java.util.List;
+import java.util.stream.IntStream;
+import com.google.common.base.Preconditions;
 import mining.bagOfGraphs.sampleSubgraph.SampleSubgraph;
 import mining.bagOfGraphs.sampleSubgraph.SubgraphsHandler;
 import mining.clustering.Clusterer;
 import mining.textMining.textToGraph.GraphDatasetStats;
 import util.Factory;
 import util.Logs;
+import util.Metrics;
 import util.TimeWatcher;
 import util.dataStructure.Matrix;
 import util.io.FileUtils;
 
 public class CodebookGeneratorClustering extends CodebookGenerator {
 
+    //bytes por distancia armazenada: indice e valor no vetor esparso da linha; ou entrada do ConcurrentHashMap, com Pair de Integers e Float
+    private static final int BYTES_PER_DISTANCE_COMPACT = 16, BYTES_PER_DISTANCE_HASH = 96;
+
 	private final boolean prioritizeMemoryInsteadOfSpeed;
     private final Factory<Clusterer> clusterer;
+    private Float incrementalRadius;
 
     /**
      * @param maxElementToUseFromCodebookSet -1 to use all codebookSet on codebook generation.
@@ -32,6 +43,91 @@ public class CodebookGeneratorClustering extends CodebookGenerator {
         this.clusterer = clusterer;
     }
 
+    /**
+     * @param incrementalRadius distance under which a new candidate is considered represented by an existing codeword, on {@link #update}.
+     *  Should be the bandwidth used by the clusterer (ex: MeanShift), so that the new codewords are as apart from the existing ones as they are among themselves.
+     */
+    public void setIncrementalRadius(Float incrementalRadius) {
+        this.incrementalRadius = incrementalRadius;
+    }
+
+    /**
+     * Updates an existing codebook with the subgraphs of new samples, instead of rebuilding it from all samples.
+     * The candidates of the new samples within the incremental radius of some existing codeword are considered represented by it,
+     * and only the remaining ones are clustered, generating new codewords which are appended to the existing ones.
+     */
+    public CodebookUpdate update(SubgraphsHandler subgraphsHandler, GraphDatasetStats stats, File codebookFile, Iterable<File> newSubgraphsFiles, File updatedCodebookFile) {
+        Preconditions.checkState(incrementalRadius != null, "incremental radius was not set");
+        Preconditions.checkArgument(!codebookFile.equals(updatedCodebookFile), "updated codebook must be written to another file");
+        TimeWatcher watcher = new TimeWatcher();
+
+        File codebookSetFile = getCodebookSetFile(updatedCodebookFile);
+        createCodebookCandidates(subgraphsHandler, stats, newSubgraphsFiles, codebookSetFile);
+
+        List<SampleSubgraph> codebook = subgraphsHandler.loadSamplesSubgraphs(codebookFile, -1);
+        List<SampleSubgraph> candidates = subgraphsHandler.loadSamplesSubgraphs(codebookSetFile, maxElementsToUseFromCodebookSet);
+        boolean[] represented = new boolean[candidates.size()];
+        IntStream.range(0, candidates.size()).parallel().forEach(i -> represented[i] = isRepresented(candidates.get(i), codebook));
+
+        File residueFile = new File(codebookSetFile.getParentFile(), codebookSetFile.getName() + "_residue");
+        int residueSize = 0;
+        try( Writer writer = FileUtils.createWriterToFile(residueFile) ){
+            for(int i = 0; i < candidates.size(); i++){
+                if(!represented[i]){
+                    subgraphsHandler.append(candidates.get(i), writer);
+                    residueSize++;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        FileUtils.deleteQuietly(codebookSetFile);
+        Logs.info("#codebookSet: " + candidates.size() + ", not represented by the existing codebook: " + residueSize);
+
+        File newCodewordsFile = new File(updatedCodebookFile.getParentFile(), updatedCodebookFile.getName() + "_new");
+        int numNewCodewords = 0;
+        if(residueSize > 0){
+            generate(subgraphsHandler, stats, residueFile, newCodewordsFile);
+            numNewCodewords = FileUtils.readLines(newCodewordsFile).size();
+        }
+        FileUtils.deleteQuietly(residueFile);
+
+        try( OutputStream out = new BufferedOutputStream(new FileOutputStream(updatedCodebookFile)) ){
+            Files.copy(codebookFile.toPath(), out);
+            if(numNewCodewords > 0)
+                Files.copy(newCodewordsFile.toPath(), out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        FileUtils.deleteQuietly(newCodewordsFile);
+
+        Logs.finer("Codebook updated from " + codebook.size() + " to " + (codebook.size() + numNewCodewords) + " codewords after " + watcher);
+        Metrics.histogram("codebook.update").record(watcher.getTimeInNanoSecs());
+        Metrics.setGauge("codebook.updateResidue", residueSize);
+        return new CodebookUpdate(codebook.size(), codebook.size() + numNewCodewords);
+    }
+
+    /**
+     * Besides the filtering, the candidates used from the codebookSet and their distance matrix, counted as if no distance were 1
+     * (the matrix does not store those, so it is usually much smaller), and the codebookSet lines read to save the codebook.
+     */
+    @Override
+    public long estimateMemory(long numCandidates, long candidatesBytes) {
+        long n = getMaxCodebookSize(numCandidates);
+        if(n <= 0)
+            return 0;
+        long candidates = n * (candidatesBytes / numCandidates) * HEAP_BYTES_PER_CANDIDATE_BYTE;
+        long matrix = n * (n - 1) / 2 * (prioritizeMemoryInsteadOfSpeed ? BYTES_PER_DISTANCE_COMPACT : BYTES_PER_DISTANCE_HASH);
+        return Math.max(super.estimateMemory(numCandidates, candidatesBytes), 2 * candidates + matrix);
+    }
+
+    private boolean isRepresented(SampleSubgraph candidate, List<SampleSubgraph> codebook) {
+        for(SampleSubgraph codeword : codebook)
+            if(candidate.calculateDistance(codeword) < incrementalRadius) //mesmo criterio de vizinhanca do MeanShift
+                return true;
+        return false;
+    }
+
     @Override
     public void generate(SubgraphsHandler subgraphsHandler, GraphDatasetStats stats, File codebookSetFile, File codebookFile) {
         //computa as distancias entre os elementos do codebookSet:
@@ -43,7 +139,11 @@ public class CodebookGeneratorClustering extends CodebookGenerator {
         codebookSetDistanceMatrix.destroyResources();
     }
 
-    private Matrix<Float> computeCodebookSetDistanceMatrix(File codebookSetFile, SubgraphsHandler subgraphsHandler) {
+    /**
+     * Distances among the candidates used from the codebookSet, under the current subgraph distance. Only read by {@link #generate(Matrix, File, File)},
+     * so that it can be shared by the generators of the same codebookSet which differ only by the clusterer (see {@link #getDistanceMatrixSettings()}).
+     */
+    public Matrix<Float> computeCodebookSetDistanceMatrix(File codebookSetFile, SubgraphsHandler subgraphsHandler) {
         TimeWatcher watcher = new TimeWatcher();
 
         final List<SampleSubgraph> codebookCandidates = subgraphsHandler.loadSamplesSubgraphs(codebookSetFile, maxElementsToUseFromCodebookSet);
@@ -53,15 +153,24 @@ public class CodebookGeneratorClustering extends CodebookGenerator {
         Matrix<Float> D = subgraphsHandler.computeDistanceMatrix(codebookCandidates, prioritizeMemoryInsteadOfSpeed);
 
         Logs.finer("CodebookSet distance matrix computed in " + watcher);
+        Metrics.histogram("codebook.distanceMatrix").record(watcher.getTimeInNanoSecs());
 
         return D;
     }
 
-    private void generate(Matrix<Float> codebookSetDistanceMatrix, File codebookSetFile, File codebookOutputFile) {
+    /** settings the distance matrix depends on, besides the codebookSet and the subgraph distance */
+    public String getDistanceMatrixSettings() {
+        return "maxElementsToUseFromCodebookSet=" + maxElementsToUseFromCodebookSet + ",prioritizeMemoryInsteadOfSpeed=" + prioritizeMemoryInsteadOfSpeed;
+    }
+
+    /** generates the codebook by clustering the candidates of the codebookSet, given their distance matrix (see {@link #computeCodebookSetDistanceMatrix}) */
+    public void generate(Matrix<Float> codebookSetDistanceMatrix, File codebookSetFile, File codebookOutputFile) {
         TimeWatcher watcher = new TimeWatcher();
     	List<Integer> clustersIndices = clusterer.create(codebookSetDistanceMatrix).cluster();
         Logs.finer("Clustering of codebookSet finished after " + watcher);
         Logs.info("#codebook: " + clustersIndices.size());
+        Metrics.histogram("codebook.clustering").record(watcher.getTimeInNanoSecs());
+        Metrics.setGauge("codebook.size", clustersIndices.size());
         save(clustersIndices, codebookSetFile, codebookOutputFile);
     }
 
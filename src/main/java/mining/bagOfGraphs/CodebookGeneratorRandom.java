@@ -4,6 +4,7 @@ import java.io.File;
 import mining.bagOfGraphs.sampleSubgraph.SubgraphsHandler;
 import mining.textMining.textToGraph.GraphDatasetStats;
 import util.Logs;
+import util.Metrics;
 import util.io.FileUtils;
 
 public class CodebookGeneratorRandom extends CodebookGenerator {
@@ -19,9 +20,22 @@ public class CodebookGeneratorRandom extends CodebookGenerator {
 		return maxCodebookSize;
 	}
 
+    @Override
+    public long getMaxCodebookSize(long numCandidates) {
+        return Math.min(numCandidates, maxCodebookSize);
+    }
+
+    /** the random selection reads all the codebookSet lines */
+    @Override
+    public long estimateMemory(long numCandidates, long candidatesBytes) {
+        return Math.max(super.estimateMemory(numCandidates, candidatesBytes), candidatesBytes * HEAP_BYTES_PER_CANDIDATE_BYTE);
+    }
+
     @Override
     public void generate(SubgraphsHandler subgraphsHandler, GraphDatasetStats stats, File codebookSetFile, File codebookFile) {
         Logs.fine("Generating codebook using random selection of up to " + maxCodebookSize + " attributes");
+        long start = System.nanoTime();
         FileUtils.generateRandomUniqueLineSubset(codebookSetFile, codebookFile, maxCodebookSize);
+        Metrics.recordSince("codebook.randomSelection", start);
     }
 }
@@ -0,0 +1,198 @@
+package mining.bagOfGraphs;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import com.google.common.base.Preconditions;
+import mining.bagOfGraphs.sampleSubgraph.SampleSubgraph;
+import mining.bagOfGraphs.sampleSubgraph.linkedElement.LinkedElement;
+import mining.bagOfGraphs.sampleSubgraph.linkedElement.LinkedElementDistances;
+
+/**
+ * Codebook indexed for the assignment of subgraphs, by postings of terms to the codewords containing them.
+ * When the subgraph distance is 1 between linked elements of different central elements, only the codewords of the subgraph's central
+ * element are candidates to be compared with it; when it is 1 between linked elements with no term in common (MCS, WGU), only the codewords
+ * sharing some term with it are. The other codewords, at distance 1, need no comparison; with other distances every codeword is a candidate.
+ * The assignments done through the index are the same ones of comparing every codeword (see {@link TypeAssignment#assign(java.util.Collection, CodebookIndex)}).
+ * Not changed after created, so it can be used concurrently.
+ */
+public class CodebookIndex {
+
+    private static final int[] NONE = new int[0];
+
+    /** Codewords (in ascending order) of each term, by term id */
+    public static class Postings {
+        final int[] offsets;
+        final int[] codewords;
+
+        public Postings(int[] offsets, int[] codewords) {
+            this.offsets = offsets;
+            this.codewords = codewords;
+        }
+
+        public int[] getOffsets() {
+            return offsets;
+        }
+
+        public int[] getCodewords() {
+            return codewords;
+        }
+
+        /** postings of the central elements of the codewords, or of all their terms (central element and neighbors) */
+        public static Postings build(List<SampleSubgraph> codebook, Map<String,Integer> termIds, boolean allTerms) {
+            int[] counts = new int[termIds.size() + 1];
+            forEachTerm(codebook, termIds, allTerms, (termId, j) -> counts[termId + 1]++);
+            for (int t = 0; t < termIds.size(); t++)
+                counts[t + 1] += counts[t];
+            int[] offsets = counts.clone();
+            int[] codewords = new int[offsets[termIds.size()]];
+            int[] next = Arrays.copyOf(offsets, termIds.size());
+            forEachTerm(codebook, termIds, allTerms, (termId, j) -> codewords[next[termId]++] = j);
+            return new Postings(offsets, codewords);
+        }
+
+        private interface TermConsumer {
+            void accept(int termId, int codeword);
+        }
+
+        private static void forEachTerm(List<SampleSubgraph> codebook, Map<String,Integer> termIds, boolean allTerms, TermConsumer consumer) {
+            for (int j = 0; j < codebook.size(); j++) {
+                LinkedElement codeword = (LinkedElement) codebook.get(j);
+                consumer.accept(termIds.get(codeword.getElement()), j);
+                if (allTerms) {
+                    for (String neighbor : codeword.incidentElements()) {
+                        if (!neighbor.equals(codeword.getElement())) //nao ha loops, mas evita repetir o codeword na lista do termo
+                            consumer.accept(termIds.get(neighbor), j);
+                    }
+                }
+            }
+        }
+    }
+
+    private final List<SampleSubgraph> codebook;
+    private final int[] allCodewords;
+    private final Map<String,Integer> termIds; //null when not indexed
+    private final Postings postings;
+    private final boolean byAllTerms;
+
+    public CodebookIndex(List<SampleSubgraph> codebook) {
+        this(codebook, null, null, null);
+    }
+
+    /**
+     * Index with prebuilt postings (see {@link Postings#build}), used if the current distance allows it; null ones are built when needed.
+     * @param termIds ids of the terms of the codebook
+     */
+    public CodebookIndex(List<SampleSubgraph> codebook, Map<String,Integer> termIds, Postings elementPostings, Postings termPostings) {
+        Preconditions.checkArgument(!codebook.isEmpty(), "Codebook can't be empty");
+        this.codebook = codebook;
+        this.allCodewords = IntStream.range(0, codebook.size()).toArray();
+        boolean byElement = LinkedElementDistances.isMaxDistanceForDifferentElements();
+        boolean byAllTerms = !byElement && LinkedElementDistances.isMaxDistanceForDisjointSubgraphs();
+        if ((byElement || byAllTerms) && termIds == null) {
+            for (SampleSubgraph codeword : codebook) {
+                if (!(codeword instanceof LinkedElement)) {
+                    byElement = byAllTerms = false;
+                    break;
+                }
+            }
+            if (byElement || byAllTerms)
+                termIds = internTerms(codebook);
+        }
+        if (byElement) {
+            this.termIds = termIds;
+            this.postings = elementPostings != null ? elementPostings : Postings.build(codebook, termIds, false);
+        } else if (byAllTerms) {
+            this.termIds = termIds;
+            this.postings = termPostings != null ? termPostings : Postings.build(codebook, termIds, true);
+        } else {
+            this.termIds = null;
+            this.postings = null;
+        }
+        this.byAllTerms = byAllTerms;
+    }
+
+    /** ids of the terms of the codebook (central elements and neighbors), in order of appearance */
+    public static Map<String,Integer> internTerms(List<SampleSubgraph> codebook) {
+        Map<String,Integer> termIds = new LinkedHashMap<>();
+        for (SampleSubgraph subgraph : codebook) {
+            LinkedElement codeword = (LinkedElement) subgraph;
+            termIds.putIfAbsent(codeword.getElement(), termIds.size());
+            for (String neighbor : codeword.incidentElements())
+                termIds.putIfAbsent(neighbor, termIds.size());
+        }
+        return termIds;
+    }
+
+    public List<SampleSubgraph> getCodebook() {
+        return codebook;
+    }
+
+    public int size() {
+        return codebook.size();
+    }
+
+    public SampleSubgraph get(int j) {
+        return codebook.get(j);
+    }
+
+    public boolean isIndexed() {
+        return postings != null;
+    }
+
+    /** the indices, in ascending order, of the codewords that may be at distance < 1 from the subgraph */
+    public int[] getCandidates(SampleSubgraph subgraph) {
+        if (postings == null)
+            return allCodewords;
+        LinkedElement linkedElement = (LinkedElement) subgraph;
+        if (!byAllTerms)
+            return getPostings(linkedElement.getElement());
+        int[] candidates = getPostings(linkedElement.getElement());
+        for (String neighbor : linkedElement.incidentElements()) {
+            int[] neighborCandidates = getPostings(neighbor);
+            if (neighborCandidates.length > 0)
+                candidates = union(candidates, neighborCandidates);
+        }
+        return candidates;
+    }
+
+    private int[] getPostings(String term) {
+        Integer termId = termIds.get(term);
+        if (termId == null)
+            return NONE;
+        return Arrays.copyOfRange(postings.codewords, postings.offsets[termId], postings.offsets[termId + 1]);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] union = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j])
+                union[n++] = a[i++];
+            else if (a[i] > b[j])
+                union[n++] = b[j++];
+            else {
+                union[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length)
+            union[n++] = a[i++];
+        while (j < b.length)
+            union[n++] = b[j++];
+        return n == union.length ? union : Arrays.copyOf(union, n);
+    }
+
+    /** the smallest index of the codewords out of the given candidates (all at distance 1 from their subgraph), -1 if none */
+    public int getFirstNonCandidate(int[] candidates) {
+        if (postings == null)
+            return -1;
+        for (int j = 0; j < candidates.length; j++) {
+            if (candidates[j] != j)
+                return j;
+        }
+        return candidates.length < codebook.size() ? candidates.length : -1;
+    }
+}
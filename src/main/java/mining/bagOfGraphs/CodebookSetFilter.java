@@ -0,0 +1,247 @@
+package mining.bagOfGraphs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+import org.apache.commons.io.LineIterator;
+import org.apache.commons.lang3.mutable.MutableInt;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import mining.bagOfGraphs.sampleSubgraph.SubgraphsHandler;
+import mining.bagOfGraphs.sampleSubgraph.linkedElement.LinkedElement;
+import mining.textMining.textToGraph.GraphDatasetStats;
+import util.ConcurrencyUtils;
+import util.Logs;
+import util.io.FileUtils;
+
+/**
+ * Filters a codebookSet of linked elements, keeping for each central term only the candidates that present novelty regarding
+ * their neighbors of edge DF bigger than one.
+ * The candidates are sorted by central term (externally, in runs of bounded size, when they do not fit in memory), so that the term groups
+ * are processed a batch at a time, and the groups of a batch in parallel.
+ * The resulting file is the same as the one produced by keeping every candidate in memory grouped by term.
+ */
+class CodebookSetFilter {
+
+    private final SubgraphsHandler subgraphsHandler;
+    private final GraphDatasetStats stats;
+    private final int workers;
+    private final int maxCandidatesInMemory;
+
+    CodebookSetFilter(SubgraphsHandler subgraphsHandler, GraphDatasetStats stats, int workers, int maxCandidatesInMemory) {
+        Preconditions.checkArgument(workers > 0 && maxCandidatesInMemory > 0);
+        this.subgraphsHandler = subgraphsHandler;
+        this.stats = stats;
+        this.workers = workers;
+        this.maxCandidatesInMemory = maxCandidatesInMemory;
+    }
+
+    /**
+     * @param maxLoads max candidates to read from the codebookSet file, -1 to read all.
+     */
+    void filter(File codebookSetFile, int maxLoads, File outputFile) {
+        List<LinkedElement> run = new ArrayList<>();
+        List<File> runFiles = new ArrayList<>();
+        subgraphsHandler.loadSamplesSubgraphs(codebookSetFile, maxLoads, subgraph -> {
+            LinkedElement s = (LinkedElement) subgraph;
+            if(stats.getTermDF(s.getElement()) > 1){ //subgrafo de termo central nao recorrente nao é representativo
+                run.add(s);
+                if(run.size() >= maxCandidatesInMemory){
+                    runFiles.add(writeSortedRun(run, new File(outputFile.getParentFile(), outputFile.getName() + "_run" + runFiles.size())));
+                    run.clear();
+                }
+            }
+        });
+        Iterator<LinkedElement> sortedCandidates;
+        if(runFiles.isEmpty()){
+            run.sort(Comparator.comparing(LinkedElement::getElement)); //stable: keeps the codebookSet order within each term
+            sortedCandidates = run.iterator();
+        }else{
+            if(!run.isEmpty())
+                runFiles.add(writeSortedRun(run, new File(outputFile.getParentFile(), outputFile.getName() + "_run" + runFiles.size())));
+            run.clear();
+            Logs.finest("[CodebookSetFilter] merging " + runFiles.size() + " sorted runs");
+            sortedCandidates = new SortedRunsMerger(runFiles);
+        }
+
+        if(codebookSetFile.equals(outputFile))
+            outputFile.delete();
+        MutableInt count = new MutableInt();
+        try( Writer writer = FileUtils.createWriterToFile(outputFile) ){
+            PeekingIterator<LinkedElement> it = Iterators.peekingIterator(sortedCandidates);
+            List<List<LinkedElement>> batch = new ArrayList<>();
+            int batchSize = 0;
+            while(it.hasNext()){
+                List<LinkedElement> group = new ArrayList<>();
+                group.add(it.next());
+                while(it.hasNext() && it.peek().getElement().equals(group.get(0).getElement()))
+                    group.add(it.next());
+                batch.add(group);
+                batchSize += group.size();
+                if(batchSize >= maxCandidatesInMemory){
+                    count.add(processBatch(batch, writer));
+                    batch.clear();
+                    batchSize = 0;
+                }
+            }
+            count.add(processBatch(batch, writer));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            runFiles.forEach(FileUtils::deleteQuietly);
+        }
+        Logs.info("#codebookSet: "+count);
+    }
+
+    private File writeSortedRun(List<LinkedElement> run, File runFile) {
+        run.sort(Comparator.comparing(LinkedElement::getElement));
+        try( Writer writer = FileUtils.createWriterToFile(runFile) ){
+            for(LinkedElement s : run)
+                subgraphsHandler.append(s, writer);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return runFile;
+    }
+
+    private int processBatch(List<List<LinkedElement>> groups, Writer writer) {
+        List<List<LinkedElement>> selected = new ArrayList<>(Collections.nCopies(groups.size(), null)); //set em posicoes distintas, sem alterar o tamanho
+        if(workers > 1 && groups.size() > 1)
+            ConcurrencyUtils.runWithParallelism(workers, () -> {
+                IntStream.range(0, groups.size()).parallel().forEach(i -> selected.set(i, selectBest(groups.get(i))));
+            });
+        else
+            for(int i = 0; i < groups.size(); i++)
+                selected.set(i, selectBest(groups.get(i)));
+        int count = 0;
+        for(List<LinkedElement> bestSet : selected){
+            for(LinkedElement s : bestSet)
+                subgraphsHandler.append(s, writer);
+            count += bestSet.size();
+        }
+        return count;
+    }
+
+    /**
+     * Selects the best candidates of a central term, given in codebookSet order.
+     * A candidate replaces a selected one when none of them has neighbors of edge DF bigger than one and it has less edges;
+     * otherwise it is selected only when its neighbors of edge DF bigger than one are not all within the ones of any selected candidate.
+     */
+    List<LinkedElement> selectBest(List<LinkedElement> group) {
+        String centralTerm = group.get(0).getElement();
+        Map<String,Integer> neighborIds = new HashMap<>(); //-1 para vizinhos com DF de aresta <= 1
+        List<LinkedElement> bestSet = new ArrayList<>(1);
+        List<int[]> bestSignatures = new ArrayList<>(1);
+        candidates:
+        for(LinkedElement s : group){
+            int[] signature = getSignature(centralTerm, s, neighborIds);
+            boolean presentsNovelty = true;
+            for(int i = 0; i < bestSet.size(); i++){
+                int[] signature2 = bestSignatures.get(i);
+                if(signature.length == 0 && signature2.length == 0 && s.getNumEdges() < bestSet.get(i).getNumEdges()){ //troca item por s devido ter menos arestas sem utilidade
+                    bestSet.remove(i);
+                    bestSignatures.remove(i);
+                    bestSet.add(s);
+                    bestSignatures.add(signature);
+                    continue candidates;
+                }
+                if(isSubset(signature, signature2))
+                    presentsNovelty = false;
+            }
+            if(presentsNovelty){
+                bestSet.add(s);
+                bestSignatures.add(signature);
+            }
+        }
+        return bestSet;
+    }
+
+    /** sorted ids of the neighbors whose edge DF is bigger than one */
+    private int[] getSignature(String centralTerm, LinkedElement s, Map<String,Integer> neighborIds) {
+        int[] signature = new int[s.getNumEdges()];
+        int n = 0;
+        for(String neighbor : s.incidentElements()){
+            int id = neighborIds.computeIfAbsent(neighbor, k -> stats.getEdgeDF(centralTerm, k) > 1 ? neighborIds.size() : -1);
+            if(id >= 0)
+                signature[n++] = id;
+        }
+        signature = Arrays.copyOf(signature, n);
+        Arrays.sort(signature);
+        return signature;
+    }
+
+    private static boolean isSubset(int[] sortedA, int[] sortedB) {
+        if(sortedA.length > sortedB.length)
+            return false;
+        int j = 0;
+        for(int a : sortedA){
+            while(j < sortedB.length && sortedB[j] < a)
+                j++;
+            if(j == sortedB.length || sortedB[j] != a)
+                return false;
+            j++;
+        }
+        return true;
+    }
+
+    /** k-way merge of the sorted runs. Ties on the central term are resolved by run order, so the codebookSet order is kept within each term. */
+    private class SortedRunsMerger implements Iterator<LinkedElement> {
+        private final PriorityQueue<RunReader> queue = new PriorityQueue<>(Comparator.comparing((RunReader r) -> r.currentTerm).thenComparingInt(r -> r.runIdx));
+
+        SortedRunsMerger(List<File> runFiles) {
+            for(int i = 0; i < runFiles.size(); i++){
+                RunReader reader = new RunReader(runFiles.get(i), i);
+                if(reader.advance())
+                    queue.add(reader);
+            }
+        }
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+        @Override
+        public LinkedElement next() {
+            RunReader reader = queue.poll();
+            if(reader == null)
+                throw new NoSuchElementException();
+            LinkedElement s = (LinkedElement) subgraphsHandler.getSubgraphFromStringLine(reader.currentLine);
+            if(reader.advance())
+                queue.add(reader);
+            return s;
+        }
+    }
+
+    private static class RunReader {
+        final LineIterator lineIterator;
+        final int runIdx;
+        String currentLine;
+        String currentTerm;
+
+        RunReader(File runFile, int runIdx) {
+            this.lineIterator = FileUtils.lineIteratorOfFile(runFile);
+            this.runIdx = runIdx;
+        }
+        boolean advance() {
+            if(!lineIterator.hasNext()){
+                lineIterator.close();
+                return false;
+            }
+            currentLine = lineIterator.next();
+            int end = currentLine.indexOf(' ');
+            currentTerm = end < 0 ? currentLine : currentLine.substring(0, end);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package mining.bagOfGraphs;
+
+import util.FloatVector;
+import util.FloatVectorFactory;
+
+/**
+ * Result of an incremental codebook update (see {@link CodebookGeneratorClustering#update}).
+ * The new codewords are appended after the previous ones, so BoG vectors created with the previous codebook can be brought to the updated one.
+ */
+public class CodebookUpdate {
+
+    private final int previousSize;
+    private final int updatedSize;
+
+    CodebookUpdate(int previousSize, int updatedSize) {
+        this.previousSize = previousSize;
+        this.updatedSize = updatedSize;
+    }
+
+    public int getPreviousSize() {
+        return previousSize;
+    }
+
+    public int getUpdatedSize() {
+        return updatedSize;
+    }
+
+    public int getNumNewCodewords() {
+        return updatedSize - previousSize;
+    }
+
+    /** index, in the updated codebook, of each codeword of the previous codebook */
+    public int[] getIndexMapping() {
+        int[] mapping = new int[previousSize];
+        for(int i = 0; i < previousSize; i++)
+            mapping[i] = i;
+        return mapping;
+    }
+
+    /** Maps a BoG vector created with the previous codebook to the updated codebook dimensions. The entries of the new codewords are left as zero. */
+    public FloatVector remap(FloatVector previousBoG) {
+        if(previousBoG.length() != previousSize)
+            throw new IllegalArgumentException("vector of length " + previousBoG.length() + " does not refer to the previous codebook, of size " + previousSize);
+        int[] mapping = getIndexMapping();
+        FloatVector updatedBoG = FloatVectorFactory.create(updatedSize);
+        previousBoG.forEachNonZero((i, v) -> updatedBoG.set(mapping[i], v));
+        return updatedBoG;
+    }
+}
@@ -33,6 +33,34 @@ public enum TypeAssignment {
 
             return assign;
         }
+
+        @Override
+        public FlexibleMatrix assign(Collection<SampleSubgraph> sampleSubGraphs, CodebookIndex codebook)
+        {
+            FlexibleMatrix assign = new FlexibleMatrix(sampleSubGraphs.size(), codebook.size());
+
+            int i = 0;
+            for (SampleSubgraph sampleSubgraph : sampleSubGraphs) {
+                int idxClosestCodeword = 0;
+                float minValue = Float.MAX_VALUE;
+                int[] candidates = codebook.getCandidates(sampleSubgraph);
+                for (int j : candidates) {
+                    float distance = sampleSubgraph.calculateDistance(codebook.get(j));
+                    if(distance < minValue){
+                        minValue = distance;
+                        idxClosestCodeword = j;
+                    }
+                }
+                //os demais codewords estao a distancia 1: prevalece o de menor indice, como na comparacao com todos
+                int idxNonCandidate = codebook.getFirstNonCandidate(candidates);
+                if(idxNonCandidate >= 0 && (1F < minValue || (1F == minValue && idxNonCandidate < idxClosestCodeword)))
+                    idxClosestCodeword = idxNonCandidate;
+                assign.setValue(i, idxClosestCodeword, 1F);
+                i++;
+            }
+
+            return assign;
+        }
     },
 
     /** Produz uma matriz correlacionando cada subgraph (linha) a seus graus de pertinencia nos codewords (colunas) do codebook */
@@ -70,6 +98,29 @@ public enum TypeAssignment {
                 }
             }
 
+            normalizeLines(assign);
+
+            return assign;
+        }
+
+        @Override
+        public FlexibleMatrix assign(Collection<SampleSubgraph> sampleSubGraphs, CodebookIndex codebook)
+        {
+            FlexibleMatrix assign = new FlexibleMatrix(sampleSubGraphs.size(), codebook.size());
+            int i = 0;
+            for (SampleSubgraph sampleSubgraph : sampleSubGraphs) {
+                for (int j : codebook.getCandidates(sampleSubgraph)) { //os demais codewords teriam 1 - 1 = 0
+                    assign.setValue(i, j, 1 - sampleSubgraph.calculateDistance(codebook.get(j)));
+                }
+                i++;
+            }
+
+            normalizeLines(assign);
+
+            return assign;
+        }
+
+        private void normalizeLines(FlexibleMatrix assign) {
             // UNC = K(D(w,ri))/ sum for all w [ K(D(w,ri) ]
             for (int i = 0; i < assign.getLineNumber(); i++) {
                 float lineSum = assign.getLineSum(i); // sum the kernel of a feature for all codewords
@@ -77,10 +128,11 @@ public enum TypeAssignment {
                 	assign.divideLineValues(i, lineSum);
                 }
             }
-
-            return assign;
         }
     };
 
     public abstract FlexibleMatrix assign(Collection<SampleSubgraph> sampleSubGraphs, List<SampleSubgraph> codebook);
+
+    /** the same assignment of {@link #assign(Collection, List)}, comparing each subgraph only with its candidate codewords */
+    public abstract FlexibleMatrix assign(Collection<SampleSubgraph> sampleSubGraphs, CodebookIndex codebook);
 }
\ No newline at end of file
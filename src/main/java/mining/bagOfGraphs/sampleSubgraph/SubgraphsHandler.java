@@ -3,6 +3,8 @@ package mining.bagOfGraphs.sampleSubgraph;
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -22,19 +24,24 @@ import mining.textMining.textToGraph.model.GraphSample;
 import util.Collector;
 import util.ListCollector;
 import util.Logs;
+import util.Metrics;
 import util.TimeWatcher;
 import util.dataStructure.Matrix;
 import util.io.FileUtils;
 
 public abstract class SubgraphsHandler {
 
-    public void extractAndSaveSampleSubgraphs(SamplePathResolver samplesFolder, File outputDir, boolean incremental) {
-        extractAndSaveSampleSubgraphs(samplesFolder, new SamplePathResolverSimple(outputDir), incremental);
+    public long extractAndSaveSampleSubgraphs(SamplePathResolver samplesFolder, File outputDir, boolean incremental) {
+        return extractAndSaveSampleSubgraphs(samplesFolder, new SamplePathResolverSimple(outputDir), incremental);
     }
-	public void extractAndSaveSampleSubgraphs(SamplePathResolver samplesFolder, SamplePathResolver outputDir, boolean incremental) {
+	/**
+	 * @param incremental whether samples whose subgraphs file exists are skipped; if so, a sample which fails is logged and skipped too
+	 * @return the number of samples which failed (always 0 if not incremental, as the first failure is thrown)
+	 */
+	public long extractAndSaveSampleSubgraphs(SamplePathResolver samplesFolder, SamplePathResolver outputDir, boolean incremental) {
 		Preconditions.checkArgument(samplesFolder.exists(), samplesFolder + " must be an existing folder");
 		Logs.finest("Extracting subgraphs");
-		AtomicLong completed = new AtomicLong(), existing = new AtomicLong();
+		AtomicLong completed = new AtomicLong(), existing = new AtomicLong(), failed = new AtomicLong();
         TimeWatcher logPool = new TimeWatcher();
 		samplesFolder.forEachFile(true, sampleFile -> {
             File destineFile = null;
@@ -42,8 +49,11 @@ public abstract class SubgraphsHandler {
 		        long id = GraphDataset.getGraphSampleId(sampleFile);
 		        destineFile = outputDir.getSampleFile(id, String.valueOf(id));
 		        if(!incremental || !destineFile.exists()){
-                    GraphSample sample = GraphDataset.loadSampleFromFile(sampleFile);
-                    extractAndSaveSampleSubgraphs(sample, destineFile);
+		            long start = System.nanoTime();
+		            List<SampleSubgraph> subgraphs = extractSubgraphs(sampleFile);
+                    saveSampleSubgraphs(subgraphs, destineFile);
+                    Metrics.recordSince("subgraphs.extractSample", start);
+                    Metrics.counter("subgraphs.extracted").add(subgraphs.size());
                     completed.incrementAndGet();
                 } else {
                     existing.incrementAndGet();
@@ -59,9 +69,13 @@ public abstract class SubgraphsHandler {
                     throw e;
                 Logs.severe(e);
                 FileUtils.deleteQuietly(destineFile);
+                failed.incrementAndGet();
             }
 		});
-		Logs.finest(completed + " graphs were processed; " + existing + " detected as existing");
+		Logs.finest(completed + " graphs were processed; " + existing + " detected as existing" + (incremental ? "; " + failed + " failed" : ""));
+		Metrics.counter("subgraphs.extractedSamples").add(completed.get());
+		Metrics.counter("subgraphs.existingSamples").add(existing.get());
+		return failed.get();
 	}
 
     public void extractAndSaveSampleSubgraphs(List<GraphSample> samples, SamplePathResolver outputDir) {
@@ -76,16 +90,31 @@ public abstract class SubgraphsHandler {
     }
 
 	public void extractAndSaveSampleSubgraphs(GraphSample sample, File destineFile) {
-		Collection<SampleSubgraph> subgraphs = extractSubgraphs(sample);
-		try( Writer writer = FileUtils.createWriterToFile(destineFile) ){
-			for(SampleSubgraph subgraph : subgraphs)
-				writer.append(getSubgraphAsStringLine(subgraph)).append('\n');
+	    long start = System.nanoTime();
+	    List<SampleSubgraph> subgraphs = extractSubgraphs(sample);
+		saveSampleSubgraphs(subgraphs, destineFile);
+		Metrics.recordSince("subgraphs.extractSample", start);
+		Metrics.counter("subgraphs.extracted").add(subgraphs.size());
+		Metrics.counter("subgraphs.extractedSamples").increment();
+	}
+
+	/** writes to a temporary file renamed at the end, so that an interrupted extraction never leaves a partial file (see incremental) */
+	private void saveSampleSubgraphs(Collection<SampleSubgraph> subgraphs, File destineFile) {
+		File tempFile = new File(destineFile.getPath() + ".tmp");
+		try{
+			try( Writer writer = FileUtils.createWriterToFile(tempFile) ){
+				for(SampleSubgraph subgraph : subgraphs)
+					writer.append(getSubgraphAsStringLine(subgraph)).append('\n');
+			}
+			Files.move(tempFile.toPath(), destineFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
 		} catch (IOException e) {
+			FileUtils.deleteQuietly(tempFile);
 			throw new RuntimeException(e);
 		}
 	}
 
 	public void loadSamplesSubgraphs(File inputFile, int maxLoads, Collector<SampleSubgraph> collector) {
+	    long start = System.nanoTime();
 	    LineIterator lineIterator = FileUtils.lineIteratorOfFile(inputFile);
 	    try{
 	        PeekingIterator<String> peekingLineIterator = Iterators.peekingIterator(lineIterator);
@@ -99,6 +128,7 @@ public abstract class SubgraphsHandler {
             }
         } finally {
             lineIterator.close();
+            Metrics.recordSince("subgraphs.loadFile", start);
         }
 	}
 	public List<SampleSubgraph> loadSamplesSubgraphs(File inputFile, int maxLoads) {
@@ -136,9 +166,17 @@ public abstract class SubgraphsHandler {
 
     public abstract List<SampleSubgraph> extractSubgraphs(GraphSample sample);
 
+    /**
+     * Extracts the subgraphs of the GraphSample stored in the given file.
+     * Subclasses may override it to extract them straight from the file content, avoiding the graph instantiation.
+     */
+    public List<SampleSubgraph> extractSubgraphs(File graphSampleFile) {
+        return extractSubgraphs(GraphDataset.loadSampleFromFile(graphSampleFile));
+    }
+
     protected abstract CharSequence getSubgraphAsStringLine(SampleSubgraph subgraph);
 
-    protected abstract SampleSubgraph getSubgraphFromStringLine(String sampleSubgraphAsString);
+    public abstract SampleSubgraph getSubgraphFromStringLine(String sampleSubgraphAsString);
 
     public void append(SampleSubgraph sampleSubgraph, Writer writer) {
         append(getSubgraphAsStringLine(sampleSubgraph), writer);
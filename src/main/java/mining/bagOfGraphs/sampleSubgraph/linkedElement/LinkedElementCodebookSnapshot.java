@@ -0,0 +1,297 @@
+package mining.bagOfGraphs.sampleSubgraph.linkedElement;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import com.google.common.base.Preconditions;
+import mining.bagOfGraphs.CodebookIndex;
+import mining.bagOfGraphs.sampleSubgraph.SampleSubgraph;
+import util.Logs;
+import util.TimeWatcher;
+import util.io.FileUtils;
+
+/**
+ * Binary snapshot of a codebook of linked elements, made to be memory-mapped: loading it parses no text and rebuilds no index.
+ * Holds the terms (interned, each stored once), the codewords packed as term ids and weights, their sums of weights
+ * (used by the MCS-based distances), and the postings of the {@link CodebookIndex}: the codewords of each central element and of each term.
+ * The codewords are decoded only when first accessed.
+ * <p>
+ * Layout (big-endian): header with magic, version, weighted flag and counts; term offsets and UTF-8 bytes (padded to 4 bytes);
+ * per codeword: element term id, element weight, link offsets, sum of edges weights, sum of nodes weights;
+ * per link: neighbor term id, edge weight, neighbor weight (when weighted); postings by element and by term, as offsets and codeword ids.
+ */
+public class LinkedElementCodebookSnapshot {
+
+    private static final int MAGIC = 0x42474353; //"BGCS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8 * 4;
+
+    /** the snapshot written beside the (text) codebook file */
+    public static File getSnapshotFile(File codebookFile) {
+        return new File(codebookFile.getParentFile(), codebookFile.getName() + ".snapshot");
+    }
+
+    /** whether the snapshot exists and is not older than the codebook file it was written from */
+    public static boolean isCurrent(File snapshotFile, File codebookFile) {
+        return snapshotFile.exists() && snapshotFile.lastModified() >= codebookFile.lastModified();
+    }
+
+    public static boolean isSnapshot(File file) {
+        if (!file.isFile() || file.length() < HEADER_SIZE)
+            return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** writes to a temporary file renamed at the end, so that an interrupted write never leaves a partial snapshot taken as current */
+    public static void write(List<SampleSubgraph> codebook, File file) {
+        TimeWatcher watcher = new TimeWatcher();
+        int n = codebook.size();
+        boolean weighted = n > 0 && codebook.get(0).isWeighted();
+        Map<String,Integer> termIds = CodebookIndex.internTerms(codebook);
+        CodebookIndex.Postings elementPostings = CodebookIndex.Postings.build(codebook, termIds, false);
+        CodebookIndex.Postings termPostings = CodebookIndex.Postings.build(codebook, termIds, true);
+        int nLinks = 0;
+        for (SampleSubgraph codeword : codebook)
+            nLinks += ((LinkedElement) codeword).edgesWeights.size();
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(weighted ? 1 : 0);
+            out.writeInt(termIds.size());
+            out.writeInt(n);
+            out.writeInt(nLinks);
+            out.writeInt(elementPostings.getCodewords().length);
+            out.writeInt(termPostings.getCodewords().length);
+
+            byte[][] termsBytes = new byte[termIds.size()][];
+            int offset = 0;
+            out.writeInt(offset);
+            for (Entry<String,Integer> term : termIds.entrySet()) {
+                termsBytes[term.getValue()] = term.getKey().getBytes(StandardCharsets.UTF_8);
+                offset += termsBytes[term.getValue()].length;
+                out.writeInt(offset);
+            }
+            for (byte[] termBytes : termsBytes)
+                out.write(termBytes);
+            for (int i = offset; i % 4 != 0; i++)
+                out.writeByte(0);
+
+            for (SampleSubgraph codeword : codebook)
+                out.writeInt(termIds.get(((LinkedElement) codeword).getElement()));
+            for (SampleSubgraph codeword : codebook)
+                out.writeFloat(((LinkedElement) codeword).elementWeight);
+            int linkOffset = 0;
+            out.writeInt(linkOffset);
+            for (SampleSubgraph codeword : codebook) {
+                linkOffset += ((LinkedElement) codeword).edgesWeights.size();
+                out.writeInt(linkOffset);
+            }
+            for (SampleSubgraph codeword : codebook)
+                out.writeDouble(codeword.getSumEdgesWeights());
+            for (SampleSubgraph codeword : codebook)
+                out.writeDouble(weighted ? codeword.getSumNodesWeights() : Double.NaN);
+
+            for (SampleSubgraph codeword : codebook)
+                for (String neighbor : ((LinkedElement) codeword).edgesWeights.keySet())
+                    out.writeInt(termIds.get(neighbor));
+            for (SampleSubgraph codeword : codebook)
+                for (Float edgeWeight : ((LinkedElement) codeword).edgesWeights.values())
+                    out.writeFloat(edgeWeight);
+            if (weighted) {
+                for (SampleSubgraph codeword : codebook) {
+                    LinkedElement linkedElement = (LinkedElement) codeword;
+                    for (String neighbor : linkedElement.edgesWeights.keySet())
+                        out.writeFloat(linkedElement.neighborsWeights.get(neighbor));
+                }
+            }
+
+            writeInts(out, elementPostings.getOffsets());
+            writeInts(out, elementPostings.getCodewords());
+            writeInts(out, termPostings.getOffsets());
+            writeInts(out, termPostings.getCodewords());
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(tempFile);
+            throw new RuntimeException(e);
+        }
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(tempFile);
+            throw new RuntimeException(e);
+        }
+        Logs.finer("Codebook snapshot with " + n + " codewords and " + termIds.size() + " terms written to " + file + ". Time elapsed: " + watcher);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values)
+            out.writeInt(value);
+    }
+
+    /**
+     * Maps the snapshot to memory, returning the codebook (decoded lazily) already indexed.
+     * The codewords are the same ones loaded from the text codebook by the subgraphs handler under the current distance.
+     */
+    public static CodebookIndex load(File file) {
+        TimeWatcher watcher = new TimeWatcher();
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        Preconditions.checkArgument(buffer.getInt(0) == MAGIC, "not a codebook snapshot: %s", file);
+        Preconditions.checkArgument(buffer.getInt(4) == VERSION, "unsupported codebook snapshot version %s: %s", buffer.getInt(4), file);
+        boolean weighted = buffer.getInt(8) == 1;
+        boolean requireNeighborNodeWeights = LinkedElementDistances.isNeighborNodeWeightsRequired();
+        Preconditions.checkState(weighted || !requireNeighborNodeWeights, "codebook snapshot has no neighbor weights, required by the current distance: %s", file);
+        int nTerms = buffer.getInt(12), n = buffer.getInt(16), nLinks = buffer.getInt(20);
+        int nElementPostings = buffer.getInt(24), nTermPostings = buffer.getInt(28);
+
+        int position = HEADER_SIZE;
+        int[] termOffsets = readInts(buffer, position, nTerms + 1);
+        position += 4 * (nTerms + 1);
+        byte[] termsBytes = new byte[termOffsets[nTerms]];
+        ByteBuffer termsBuffer = buffer.duplicate();
+        ((Buffer) termsBuffer).position(position); //via Buffer: ByteBuffer.position(int) so existe a partir do Java 9
+        termsBuffer.get(termsBytes);
+        position += (termsBytes.length + 3) / 4 * 4;
+        String[] terms = new String[nTerms];
+        Map<String,Integer> termIds = new HashMap<>(nTerms * 4 / 3 + 1);
+        for (int t = 0; t < nTerms; t++) {
+            terms[t] = new String(termsBytes, termOffsets[t], termOffsets[t + 1] - termOffsets[t], StandardCharsets.UTF_8);
+            termIds.put(terms[t], t);
+        }
+
+        PackedCodebook codebook = new PackedCodebook(buffer, terms, n, nLinks, position, weighted && requireNeighborNodeWeights);
+        position = codebook.end;
+        int[] elementOffsets = readInts(buffer, position, nTerms + 1);
+        position += 4 * (nTerms + 1);
+        int[] elementCodewords = readInts(buffer, position, nElementPostings);
+        position += 4 * nElementPostings;
+        int[] termPostingsOffsets = readInts(buffer, position, nTerms + 1);
+        position += 4 * (nTerms + 1);
+        int[] termCodewords = readInts(buffer, position, nTermPostings);
+
+        CodebookIndex index = new CodebookIndex(codebook, termIds, new CodebookIndex.Postings(elementOffsets, elementCodewords),
+            new CodebookIndex.Postings(termPostingsOffsets, termCodewords));
+        Logs.finer("Codebook snapshot with " + n + " codewords and " + nTerms + " terms mapped from " + file + ". Time elapsed: " + watcher);
+        return index;
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int position, int length) {
+        int[] values = new int[length];
+        ByteBuffer intsBuffer = buffer.duplicate();
+        ((Buffer) intsBuffer).position(position);
+        intsBuffer.asIntBuffer().get(values);
+        return values;
+    }
+
+    /** Codewords decoded from the mapped snapshot on their first access. Only absolute reads are done on the buffer, so it can be read concurrently */
+    private static class PackedCodebook extends AbstractList<SampleSubgraph> implements RandomAccess {
+        private final ByteBuffer buffer;
+        private final String[] terms;
+        private final int n;
+        private final boolean decodeNeighborsWeights;
+        private final int elements, elementWeights, linkOffsets, sumsEdgesWeights, sumsNodesWeights, linkTerms, edgeWeights, neighborWeights;
+        final int end;
+        private final AtomicReferenceArray<LinkedElement> decoded;
+
+        PackedCodebook(ByteBuffer buffer, String[] terms, int n, int nLinks, int position, boolean decodeNeighborsWeights) {
+            this.buffer = buffer;
+            this.terms = terms;
+            this.n = n;
+            this.decodeNeighborsWeights = decodeNeighborsWeights;
+            elements = position;
+            elementWeights = elements + 4 * n;
+            linkOffsets = elementWeights + 4 * n;
+            sumsEdgesWeights = linkOffsets + 4 * (n + 1);
+            sumsNodesWeights = sumsEdgesWeights + 8 * n;
+            linkTerms = sumsNodesWeights + 8 * n;
+            edgeWeights = linkTerms + 4 * nLinks;
+            neighborWeights = edgeWeights + 4 * nLinks;
+            boolean weighted = buffer.getInt(8) == 1;
+            end = weighted ? neighborWeights + 4 * nLinks : neighborWeights;
+            decoded = new AtomicReferenceArray<>(n);
+        }
+
+        @Override
+        public int size() {
+            return n;
+        }
+
+        @Override
+        public SampleSubgraph get(int j) {
+            Preconditions.checkElementIndex(j, n);
+            LinkedElement codeword = decoded.get(j);
+            if (codeword == null) {
+                codeword = decode(j);
+                if (!decoded.compareAndSet(j, null, codeword))
+                    codeword = decoded.get(j);
+            }
+            return codeword;
+        }
+
+        private LinkedElement decode(int j) {
+            int from = buffer.getInt(linkOffsets + 4 * j), to = buffer.getInt(linkOffsets + 4 * (j + 1));
+            Map<String,Float> edgesWeights = new LinkedHashMap<>(to - from, 1);
+            Map<String,Float> neighborsWeights = decodeNeighborsWeights ? new LinkedHashMap<>(to - from, 1) : null;
+            for (int l = from; l < to; l++) {
+                String neighbor = terms[buffer.getInt(linkTerms + 4 * l)];
+                edgesWeights.put(neighbor, buffer.getFloat(edgeWeights + 4 * l));
+                if (decodeNeighborsWeights)
+                    neighborsWeights.put(neighbor, buffer.getFloat(neighborWeights + 4 * l));
+            }
+            return new PackedLinkedElement(terms[buffer.getInt(elements + 4 * j)], buffer.getFloat(elementWeights + 4 * j), edgesWeights, neighborsWeights,
+                buffer.getDouble(sumsEdgesWeights + 8 * j), buffer.getDouble(sumsNodesWeights + 8 * j));
+        }
+    }
+
+    /** Codeword with the sums of weights precomputed by the snapshot, which are otherwise computed on every MCS-based distance */
+    private static class PackedLinkedElement extends LinkedElement {
+        private final double sumEdgesWeights;
+        private final double sumNodesWeights;
+
+        PackedLinkedElement(String element, float elementWeight, Map<String,Float> edgesWeights, Map<String,Float> neighborsWeights,
+            double sumEdgesWeights, double sumNodesWeights)
+        {
+            super(element, elementWeight, edgesWeights, neighborsWeights);
+            this.sumEdgesWeights = sumEdgesWeights;
+            this.sumNodesWeights = sumNodesWeights;
+        }
+
+        @Override
+        public double getSumEdgesWeights() {
+            return sumEdgesWeights;
+        }
+
+        @Override
+        public double getSumNodesWeights() {
+            return isWeighted() ? sumNodesWeights : super.getSumNodesWeights();
+        }
+    }
+}
@@ -140,6 +140,18 @@ public enum LinkedElementDistances {
         return CURRENT.calc(a, b);
 	}
 
+	/** true when the distance is 1 between linked elements of different central elements, the maximum distance */
+	public static boolean isMaxDistanceForDifferentElements() {
+        Preconditions.checkNotNull(CURRENT, "LinkedElementDistances was not initialized");
+        return CURRENT == DIST1_FIX || CURRENT == DIST1B;
+    }
+
+	/** true when the distance is 1 between linked elements with no term (central element or neighbor) in common */
+	public static boolean isMaxDistanceForDisjointSubgraphs() {
+        Preconditions.checkNotNull(CURRENT, "LinkedElementDistances was not initialized");
+        return isMaxDistanceForDifferentElements() || CURRENT == MCS || CURRENT == WGU; //tamanho do MCS é 0
+    }
+
 	public static boolean isNeighborNodeWeightsRequired() {
         Preconditions.checkNotNull(CURRENT, "LinkedElementDistances was not initialized");
         return CURRENT == MCS || CURRENT == WGU;
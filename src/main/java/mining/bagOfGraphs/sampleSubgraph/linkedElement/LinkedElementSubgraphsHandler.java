@@ -1,5 +1,6 @@
 package mining.bagOfGraphs.sampleSubgraph.linkedElement;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -9,6 +10,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import mining.bagOfGraphs.sampleSubgraph.SampleSubgraph;
 import mining.bagOfGraphs.sampleSubgraph.SubgraphsHandler;
+import mining.textMining.textToGraph.GraphDataset;
+import mining.textMining.textToGraph.GraphSampleFileHandler;
 import mining.textMining.textToGraph.model.GraphSample;
 import util.DataStructureUtils;
 import util.MathUtils;
@@ -52,6 +55,75 @@ public class LinkedElementSubgraphsHandler extends SubgraphsHandler {
         return new LinkedElement(vertex, vertexWeight, edgesWeights, neighborsWeights);
     }
 
+    /**
+     * Streams the vertex and edge lines of the GraphSample file straight into per-vertex accumulators, producing the same subgraphs
+     * as {@link #extractSubgraphs(GraphSample)} but without building the graph.
+     */
+    @Override
+    public List<SampleSubgraph> extractSubgraphs(File graphSampleFile) {
+        boolean requireNeighborNodeWeights = LinkedElementDistances.isNeighborNodeWeightsRequired();
+        Map<String,Accumulator> accumulators = new LinkedHashMap<>();
+        GraphDataset.readSampleFromFile(graphSampleFile, new GraphSampleFileHandler() {
+            boolean weighted;
+            public void header(long id, Set<String> labels, int nVertices, int nEdges, boolean weighted) {
+                this.weighted = weighted;
+            }
+            public void vertex(String vertex, double weight) {
+                Accumulator acc = accumulators.get(vertex);
+                if(acc == null)
+                    accumulators.put(vertex, new Accumulator(weighted ? weight : 1D));
+                else if(weighted)
+                    acc.vertexWeight += weight; //as done by the graph on repeated vertices
+            }
+            public void edge(String source, String target, double weight, String label) {
+                float edgeWeight = (float) weight;
+                accumulators.get(source).addOutgoing(target, edgeWeight);
+                if(alsoConsidererIncomingEdges)
+                    accumulators.get(target).addIncoming(edgeWeight);
+            }
+        });
+
+        List<SampleSubgraph> subgraphs = new ArrayList<>(accumulators.size());
+        for(Entry<String,Accumulator> vertexAndAcc : accumulators.entrySet())
+            subgraphs.add(vertexAndAcc.getValue().create(vertexAndAcc.getKey(), accumulators, requireNeighborNodeWeights));
+        return subgraphs;
+    }
+
+    /**
+     * Edges of a vertex, kept in the same order in which the graph would report them.
+     * PS: as in {@link #createSubgraph}, the neighbor of each edge is its target, so incoming edges are all keyed by the vertex itself.
+     */
+    private class Accumulator {
+        double vertexWeight;
+        Float lastIncomingWeight;
+        final Map<String,Float> outgoing = new LinkedHashMap<>();
+
+        Accumulator(double vertexWeight) {
+            this.vertexWeight = vertexWeight;
+        }
+
+        void addOutgoing(String target, float weight) {
+            outgoing.put(target, weight);
+        }
+
+        void addIncoming(float weight) {
+            lastIncomingWeight = weight;
+        }
+
+        LinkedElement create(String vertex, Map<String,Accumulator> accumulators, boolean requireNeighborNodeWeights) {
+            int nEdges = outgoing.size() + (lastIncomingWeight != null ? 1 : 0);
+            Map<String,Float> edgesWeights = new LinkedHashMap<>(nEdges, 1);
+            Map<String,Float> neighborsWeights = requireNeighborNodeWeights ? new LinkedHashMap<>(nEdges, 1) : null;
+            if(lastIncomingWeight != null)
+                edgesWeights.put(vertex, lastIncomingWeight);
+            edgesWeights.putAll(outgoing);
+            if(requireNeighborNodeWeights)
+                for(String neighbor : edgesWeights.keySet())
+                    neighborsWeights.put(neighbor, (float) accumulators.get(neighbor).vertexWeight);
+            return new LinkedElement(vertex, (float) vertexWeight, edgesWeights, neighborsWeights);
+        }
+    }
+
 	@Override
 	protected CharSequence getSubgraphAsStringLine(SampleSubgraph subgraph) {
 	    boolean requireNeighborNodeWeights = LinkedElementDistances.isNeighborNodeWeightsRequired();
@@ -67,7 +139,7 @@ public class LinkedElementSubgraphsHandler extends SubgraphsHandler {
         return stringForm;
 	}
 	@Override
-	protected SampleSubgraph getSubgraphFromStringLine(String stringForm) {
+	public SampleSubgraph getSubgraphFromStringLine(String stringForm) {
 	    boolean requireNeighborNodeWeights = LinkedElementDistances.isNeighborNodeWeightsRequired();
 
 		String[] chunks = stringForm.trim().split("\\s+");
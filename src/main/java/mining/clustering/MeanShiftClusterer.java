@@ -11,6 +11,7 @@ import com.google.common.base.Preconditions;
 import util.DataStructureUtils;
 import util.Logs;
 import util.MathUtils;
+import util.Metrics;
 import util.Pair;
 import util.RandomFactory;
 import util.TimeWatcher;
@@ -55,6 +56,7 @@ public class MeanShiftClusterer extends Clusterer {
         float bandwidth = sumDistanceKNearestNeighbor / numLines;
 
         Logs.finer("MeanShift estimated bandwidth: "+bandwidth+". After "+timeWatcher);
+        Metrics.histogram("meanshift.bandwidthEstimation").record(timeWatcher.getTimeInNanoSecs());
 
         return bandwidth;
     }
@@ -77,11 +79,15 @@ public class MeanShiftClusterer extends Clusterer {
 
 		    // For each seed, climb gradient until convergence or max_iterations
 		    final int numElements = seeds.size();
+		    Metrics.setGauge("meanshift.bandwidth", bandwidth);
+		    Metrics.counter("meanshift.seeds").add(numElements);
 		    Stream<Integer> forSeeds = distanceMatrix.isParallelSupported() ? seeds.parallelStream() : seeds.stream();
 		    TimeWatcher logPooler = new TimeWatcher(0);
 	        AtomicInteger completed = new AtomicInteger(0);
 		    forSeeds.forEach(seed -> {
+		        long start = System.nanoTime();
 		        converge(stop_thresh, centersWithIntensities, seed);
+		        Metrics.recordSince("meanshift.seedConvergence", start);
 		        completed.incrementAndGet();
 		        if(logPooler.checkSecondsSpent(60))
 		            Logs.finest("[MeanShiftClusterer] concluded for " + completed + " of " + numElements + " seeds");
@@ -102,7 +108,10 @@ public class MeanShiftClusterer extends Clusterer {
 				uniqueCenters[i] = true; // leave the current point as unique
 			}
 		}
-		return DataStructureUtils.collect(sortedCenters, uniqueCenters);
+		List<Integer> centers = DataStructureUtils.collect(sortedCenters, uniqueCenters);
+		Metrics.counter("meanshift.centersBeforeDeduplication").add(sortedCenters.size());
+		Metrics.counter("meanshift.centers").add(centers.size());
+		return centers;
 	}
 
     private void converge(float stop_thresh, Map<Integer, Integer> intensityByCenter, int seed) {
@@ -120,6 +129,9 @@ public class MeanShiftClusterer extends Clusterer {
 
         	// If converged or at max_iterations, add the cluster
         	if(distanceMatrix.getValue(seed, previousMeanPoint) < stop_thresh || completedIterations == maxIterations){
+        	    Metrics.counter("meanshift.iterations").add(completedIterations + 1);
+        	    if(completedIterations == maxIterations)
+        	        Metrics.counter("meanshift.maxIterationsReached").increment();
         	    int intensity = pointsWithinRadius.size();
                 synchronized (intensityByCenter) {
                     Integer previousIntensity = intensityByCenter.putIfAbsent(seed, intensity);
@@ -153,6 +165,7 @@ public class MeanShiftClusterer extends Clusterer {
                 Logs.finest("Completed for " + completed + " of " + seeds.size() + " elements");
         });
         Logs.finest("[computeInitialIndicesOfNeighborsWithinRadius] ended after "+time);
+        Metrics.histogram("meanshift.neighborsPrecomputation").record(time.getTimeInNanoSecs());
     }
 
     private Pair<ArrayList<Integer>,Integer> computeIndicesOfNeighborsWithinRadius(Integer elementIdx) {
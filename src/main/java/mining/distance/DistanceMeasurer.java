@@ -5,6 +5,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 import mining.Sample;
 import util.Logs;
+import util.Metrics;
 import util.QuintupleConsumer;
 import util.dataStructure.SymmetricDistanceFlexibleMatrix;
 import util.dataStructure.SymmetricDistanceFlexibleMatrixHashLong;
@@ -47,13 +48,16 @@ public interface DistanceMeasurer<T> {
 				if(currentIdx % reportStep == 0)
 					Logs.finest("[computeDistanceMatrix] progress: now on sample " + currentIdx + " of " + numElements);
 			}
+		    long start = System.nanoTime();
 		    T elementI = elements.get(i);
 		    for (int j = i + 1; j < numElements; j++) {
 		    	T elementJ = elements.get(j);
 				float distance = getDistance(elementI, elementJ);
 		    	consumer.accept(i, j, elementI, elementJ, distance);
 		    }
+		    Metrics.recordSince("distance.matrixRow", start);
 		});
+		Metrics.counter("distance.computed").add((long) numElements * (numElements - 1) / 2);
 	}
 	/** compute distances considering queries and responses from different collections */
     public default void computeDistanceMatrix_(List<T> queryElements, List<T> responseElements, QuintupleConsumer<Integer,Integer,T,T,Float> consumer, boolean parallel) {
@@ -62,13 +66,16 @@ public interface DistanceMeasurer<T> {
             queryIndexRange = queryIndexRange.parallel();
         }
         queryIndexRange.forEach(i -> {
+            long start = System.nanoTime();
             T elementI = queryElements.get(i);
             for (int j = 0; j < responseElements.size(); j++) {
                 T elementJ = responseElements.get(j);
                 float distance = getDistance(elementI, elementJ);
                 consumer.accept(i, j, elementI, elementJ, distance);
             }
+            Metrics.recordSince("distance.matrixRow", start);
         });
+        Metrics.counter("distance.computed").add((long) queryElements.size() * responseElements.size());
     }
 
 
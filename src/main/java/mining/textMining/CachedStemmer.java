@@ -0,0 +1,60 @@
+package mining.textMining;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Stemmer that memoizes the stems computed by another one, up to a maximum number of terms (least recently used ones are evicted first).
+ * As few terms account for most of the occurrences in a text collection, most stemming calls become a lookup.
+ * Thread-safe, as long as the wrapped stemmer is.
+ */
+public class CachedStemmer implements Stemmer {
+
+    private static final String NULL_STEM = new String(); //cache nao aceita valores nulos
+
+    private final Stemmer stemmer;
+    private final LoadingCache<String, String> stems;
+
+    public CachedStemmer(Stemmer stemmer, int maxCachedTerms) {
+        Preconditions.checkArgument(maxCachedTerms > 0);
+        this.stemmer = stemmer;
+        this.stems = CacheBuilder.newBuilder().maximumSize(maxCachedTerms).recordStats().build(new CacheLoader<String, String>() {
+            public String load(String term) {
+                String stem = stemmer.getStem(term);
+                return stem != null ? stem : NULL_STEM;
+            }
+        });
+    }
+
+    @Override
+    public String getStem(String term) {
+        String stem = stems.getUnchecked(term);
+        return stem == NULL_STEM ? null : stem;
+    }
+
+    @Override
+    public boolean stemOnlyToValidWords() {
+        return stemmer.stemOnlyToValidWords();
+    }
+
+    public Stemmer getStemmer() {
+        return stemmer;
+    }
+
+    public long getHitCount() {
+        return stems.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return stems.stats().missCount();
+    }
+
+    public String toString() {
+        CacheStats stats = stems.stats();
+        return getClass().getSimpleName() + "[" + stemmer.getClass().getSimpleName() + ", size=" + stems.size() + ", hits=" + stats.hitCount()
+            + ", misses=" + stats.missCount() + "]";
+    }
+}
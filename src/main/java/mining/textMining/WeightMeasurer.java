@@ -2,6 +2,7 @@ package mining.textMining;
 
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.ToIntFunction;
 import org.apache.commons.lang3.mutable.MutableDouble;
 import org.apache.commons.lang3.mutable.MutableInt;
 import util.MathUtils;
@@ -22,13 +23,16 @@ public class WeightMeasurer {
     }
 
 	public static void convertTFToTFIDF(int nDocuments, Map<String, MutableInt> termsDFs, Map<String, MutableDouble> elementsWeights) {
+		convertTFToTFIDF(nDocuments, term -> termsDFs.get(term).intValue(), elementsWeights);
+	}
+	public static void convertTFToTFIDF(int nDocuments, ToIntFunction<String> termDF, Map<String, MutableDouble> elementsWeights) {
 		final int maxTermFrequency = (int) getMaxTermWeight(elementsWeights);
         for (Entry<String, MutableDouble> termWeight : elementsWeights.entrySet()) {
             String term = termWeight.getKey();
             MutableDouble weight = termWeight.getValue();
 
             int termFrequency = weight.intValue();
-            int documentFrequency = termsDFs.get(term).intValue();
+            int documentFrequency = termDF.applyAsInt(term);
             double tfIdf = tfIdf(termFrequency, maxTermFrequency, documentFrequency, nDocuments);
 
             weight.setValue(tfIdf);
@@ -6,14 +6,35 @@ import mining.DatasetReader;
 import mining.textMining.TextSample;
 import mining.textMining.bagOfWord.BagOfWordDataset;
 import mining.textMining.bagOfWord.TextSampleToBagOfWordSampleConverter;
+import mining.textMining.gram.GramHasher;
+import mining.textMining.gram.HashedGramDataset;
 import mining.textMining.gram.TextSampleToGramConverter;
 import mining.textMining.parsing.TokenExtractor;
+import mining.textMining.parsing.TokenStore;
 import util.Collector;
 import util.Filter;
 import util.Logs;
 
 public class DatasetToBagOfWordsReducer {
 
+    private TokenStore tokenStore;
+    private boolean hashedGrams;
+    private int gramHashingDimensions;
+
+    /** @param tokenStore optional store of tokenized samples, shared with the other representations of the corpus */
+    public void setTokenStore(TokenStore tokenStore) {
+        this.tokenStore = tokenStore;
+    }
+
+    /**
+     * @param hashedGrams for gramSize > 1, true represents the grams by hashes of their terms ({@link GramHasher}), creating their strings only for the output
+     * @param gramHashingDimensions when > 0, the grams are hashed into this number of features, instead of one feature per gram
+     */
+    public void setHashedGrams(boolean hashedGrams, int gramHashingDimensions) {
+        this.hashedGrams = hashedGrams;
+        this.gramHashingDimensions = gramHashingDimensions;
+    }
+
     public void execute(DatasetReader<TextSample> datasetReader, TokenExtractor tokenExtractor, int gramSize,
     	DatasetCrossFold datasetCrossFold, Filter<TextSample> textSampleFilter,
     	boolean discardUnitaryTerms, boolean useTfIdf, File destineFile) {
@@ -27,9 +48,23 @@ public class DatasetToBagOfWordsReducer {
 			textSampleFilter = sample -> datasetCrossFold.containsSample(sample.getId());
     	}
 
+        if (gramSize > 1 && hashedGrams) {
+            executeHashed(datasetReader, tokenExtractor, gramSize, datasetCrossFold, textSampleFilter, discardUnitaryTerms, useTfIdf, destineFile);
+            return;
+        }
+
         BagOfWordDataset dataset = new BagOfWordDataset();
 
-        Collector<TextSample> textSampleCollector = gramSize == 1 ? new TextSampleToBagOfWordSampleConverter(tokenExtractor, null, dataset) : new TextSampleToGramConverter(tokenExtractor, null, gramSize, dataset);
+        Collector<TextSample> textSampleCollector;
+        if (gramSize == 1) {
+            TextSampleToBagOfWordSampleConverter converter = new TextSampleToBagOfWordSampleConverter(tokenExtractor, null, dataset);
+            converter.setTokenStore(tokenStore);
+            textSampleCollector = converter;
+        } else {
+            TextSampleToGramConverter converter = new TextSampleToGramConverter(tokenExtractor, null, gramSize, dataset);
+            converter.setTokenStore(tokenStore);
+            textSampleCollector = converter;
+        }
         datasetReader.readSamples(textSampleFilter, textSampleCollector);
 
 		if (datasetCrossFold != null) {
@@ -47,4 +82,31 @@ public class DatasetToBagOfWordsReducer {
         dataset.discardCachedData();
         dataset.writeToFile(destineFile, true);
     }
+
+    private void executeHashed(DatasetReader<TextSample> datasetReader, TokenExtractor tokenExtractor, int gramSize,
+        DatasetCrossFold datasetCrossFold, Filter<TextSample> textSampleFilter,
+        boolean discardUnitaryTerms, boolean useTfIdf, File destineFile) {
+
+        GramHasher hasher = new GramHasher(gramHashingDimensions);
+        HashedGramDataset dataset = new HashedGramDataset(hasher);
+
+        TextSampleToGramConverter converter = new TextSampleToGramConverter(tokenExtractor, null, gramSize, hasher, dataset);
+        converter.setTokenStore(tokenStore);
+        datasetReader.readSamples(textSampleFilter, converter);
+        Logs.finer(hasher.toString());
+
+        if (datasetCrossFold != null) {
+            datasetCrossFold.apply(dataset);
+        }
+
+        if (discardUnitaryTerms) {
+            dataset.removeUnitaryFeaturesFromSamples();
+        }
+
+        if (useTfIdf) {
+            dataset.convertTFtoTFIDF();
+        }
+
+        dataset.writeToFile(destineFile, true);
+    }
 }
@@ -1,9 +1,13 @@
 package mining.textMining.bagOfWord;
 
 import java.util.function.Predicate;
+import org.apache.commons.lang3.ArrayUtils;
 import mining.textMining.TextSample;
+import mining.textMining.parsing.TextSection;
 import mining.textMining.parsing.TokenCollector;
 import mining.textMining.parsing.TokenExtractor;
+import mining.textMining.parsing.TokenList;
+import mining.textMining.parsing.TokenStore;
 import util.Collector;
 import util.Logs;
 
@@ -16,6 +20,7 @@ public class TextSampleToBagOfWordSampleConverter implements Collector<TextSampl
     private TokenExtractor tokenExtractor;
     private Predicate<String> acceptedTerms;
     private Collector<BagOfWordSample> sampleCollector;
+    private TokenStore tokenStore;
 
     public TextSampleToBagOfWordSampleConverter(TokenExtractor tokenExtractor, Predicate<String> acceptedTerms, Collector<BagOfWordSample> sampleCollector) {
         this.tokenExtractor = tokenExtractor;
@@ -23,6 +28,14 @@ public class TextSampleToBagOfWordSampleConverter implements Collector<TextSampl
         this.sampleCollector = sampleCollector;
     }
 
+    /**
+     * @param tokenStore when set, the samples' tokens are read from (or added to) it, instead of always tokenizing them.
+     *  Samples with tags are still tokenized, as the stored sections include the tags, which are not part of the bag of words.
+     */
+    public void setTokenStore(TokenStore tokenStore) {
+        this.tokenStore = tokenStore;
+    }
+
     @Override
     public void collect(TextSample sample) {
         BagOfWordSample bowSample = new BagOfWordSample(sample.getId(), sample.getLabels());
@@ -36,8 +49,15 @@ public class TextSampleToBagOfWordSampleConverter implements Collector<TextSampl
             public void subSectionStarted() {}
         };
 
-        tokenExtractor.extract(sample.getTitle(), tokenCollector);
-        tokenExtractor.extract(sample.getBody(), tokenCollector);
+        if (tokenStore != null && ArrayUtils.isEmpty(sample.getTags())) {
+            //sem tags, as secoes guardadas contem exatamente os tokens de titulo e corpo
+            for (TextSection section : tokenStore.loadSections(sample))
+                for (TokenList subSection : section.getSubSections())
+                    subSection.getTokens().forEach(tokenCollector::collect);
+        } else {
+            tokenExtractor.extract(sample.getTitle(), tokenCollector);
+            tokenExtractor.extract(sample.getBody(), tokenCollector);
+        }
 
         if(!bowSample.getElementsWeights().isEmpty()){
         	sampleCollector.collect(bowSample);
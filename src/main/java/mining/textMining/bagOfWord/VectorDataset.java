@@ -28,6 +28,7 @@ import util.FloatVector;
 import util.FloatVectorFactory;
 import util.ListCollector;
 import util.Logs;
+import util.Metrics;
 import util.Pair;
 import util.Pointer;
 import util.StringUtils;
@@ -194,6 +195,8 @@ public class VectorDataset extends Dataset<VectorSample> {
     		return attributes;
     	} finally {
     		Logs.finest("VectorDataset loaded. #samples: "+read+". After " + timeWatcher);
+    		Metrics.histogram("load.vectorDataset").record(timeWatcher.getTimeInNanoSecs());
+    		Metrics.counter("load.vectorSamples").add(read);
     	}
     }
 
@@ -221,7 +224,7 @@ public class VectorDataset extends Dataset<VectorSample> {
         loadFromFile(datasetFile, sample -> ids.add(sample.getId()));
         return ids;
     }
-    private static VectorSample parseSampleLine(String sampleLine, int numAttributes) {
+    public static VectorSample parseSampleLine(String sampleLine, int numAttributes) {
         String[] sampleLineTokens = sampleLine.split(",");
         long id = Long.parseLong(sampleLineTokens[0]);
         String label = sampleLineTokens[1];
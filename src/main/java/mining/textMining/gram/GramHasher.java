@@ -0,0 +1,88 @@
+package mining.textMining.gram;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.google.common.base.Preconditions;
+
+/**
+ * Identifies n-grams by 64-bit hashes computed over the ids of their terms, each gram extending the hash of its prefix,
+ * so that no string is built per gram.
+ * Without a dimension, each gram is its own feature, and the terms of every gram are kept (as term ids) so that its string can be
+ * materialized for the vocabulary; with a dimension, the grams are hashed into that many features (feature hashing), named by their index.
+ * Not thread-safe.
+ */
+public class GramHasher {
+
+    static final long EMPTY_GRAM_HASH = 0x3C6EF372FE94F82AL;
+
+    private final int dimensions;
+    private final Map<String,Integer> termIds = new HashMap<>();
+    private final List<String> terms = new ArrayList<>();
+    private final Map<Long,int[]> gramsTerms = new HashMap<>();
+
+    /**
+     * @param dimensions number of features in which the grams are hashed, or 0 for one feature per gram
+     */
+    public GramHasher(int dimensions) {
+        Preconditions.checkArgument(dimensions >= 0);
+        this.dimensions = dimensions;
+    }
+
+    public boolean isFeatureHashing() {
+        return dimensions > 0;
+    }
+
+    public int getTermId(String term) {
+        Integer id = termIds.get(term);
+        if (id == null) {
+            id = terms.size();
+            terms.add(term);
+            termIds.put(term, id);
+        }
+        return id;
+    }
+
+    /** the hash of the gram made of the gram with the given hash followed by the given term */
+    static long extend(long gramHash, int termId) {
+        long h = (gramHash ^ (termId + 1L)) * 0x9E3779B97F4A7C15L;
+        //finalizacao do murmur3, espalhando os bits
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    long getFeature(long gramHash) {
+        return isFeatureHashing() ? Math.floorMod(gramHash, (long) dimensions) : gramHash;
+    }
+
+    /** keeps the terms of the gram made of termIds[from, to), if it is new; only needed without feature hashing */
+    void register(long gramHash, int[] termIds, int from, int to) {
+        if (!gramsTerms.containsKey(gramHash)) {
+            int[] gramTerms = new int[to - from];
+            System.arraycopy(termIds, from, gramTerms, 0, gramTerms.length);
+            gramsTerms.put(gramHash, gramTerms);
+        }
+    }
+
+    /** the name of the feature in the vocabulary: the gram itself, or the feature index when hashing */
+    public String getFeatureName(long feature) {
+        if (isFeatureHashing()) {
+            return String.valueOf(feature);
+        }
+        int[] gramTerms = gramsTerms.get(feature);
+        StringBuilder gram = new StringBuilder(terms.get(gramTerms[0]));
+        for (int i = 1; i < gramTerms.length; i++) {
+            gram.append(TextSampleToGramConverter.TOKEN_JOINER).append(terms.get(gramTerms[i]));
+        }
+        return gram.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "GramHasher [dimensions=" + dimensions + ", terms=" + terms.size() + ", grams=" + (isFeatureHashing() ? "-" : gramsTerms.size()) + "]";
+    }
+}
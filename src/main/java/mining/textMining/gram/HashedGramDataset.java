@@ -0,0 +1,124 @@
+package mining.textMining.gram;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import mining.Dataset;
+import mining.textMining.WeightMeasurer;
+import util.Logs;
+import util.Pair;
+import util.dataStructure.LongDoubleMap;
+import util.io.FileUtils;
+import util.io.MatrixWriter;
+
+/**
+ * Dataset of {@link HashedGramSample}, with the same processing and output of a {@link mining.textMining.bagOfWord.BagOfWordDataset} of n-grams.
+ * The strings of the features are only created for the vocabulary written in the header.
+ */
+public class HashedGramDataset extends Dataset<HashedGramSample> {
+
+    private final GramHasher hasher;
+
+    public HashedGramDataset(GramHasher hasher) {
+        this.hasher = hasher;
+    }
+
+    private LongDoubleMap getDocumentFrequencyFromFeatures() {
+        LongDoubleMap featuresDFs = new LongDoubleMap();
+        for (HashedGramSample sample : samples) {
+            sample.getFeaturesWeights().forEach((feature, weight) -> featuresDFs.increment(feature, 1));
+        }
+        return featuresDFs;
+    }
+
+    public void removeUnitaryFeaturesFromSamples() {
+        LongDoubleMap featuresDFs = getDocumentFrequencyFromFeatures();
+        for (HashedGramSample sample : samples) {
+            sample.getFeaturesWeights().removeIf((feature, weight) -> featuresDFs.get(feature) == 1);
+        }
+    }
+
+    public void convertTFtoTFIDF() {
+        LongDoubleMap featuresDFs = getDocumentFrequencyFromFeatures();
+        int nDocuments = samples.size();
+        for (HashedGramSample sample : samples) {
+            LongDoubleMap weights = sample.getFeaturesWeights();
+            if (weights.isEmpty())
+                continue;
+            int maxTermFrequency = (int) weights.getMaxValue();
+            weights.replaceAll((feature, weight) -> WeightMeasurer.tfIdf((int) weight, maxTermFrequency, (int) featuresDFs.get(feature), nDocuments));
+        }
+    }
+
+    /**
+     * Writes the dataset in the format of {@link mining.textMining.bagOfWord.BagOfWordDataset#writeToFile(File, boolean)}.
+     * The features are sorted by their names (by their indexes, when hashing).
+     */
+    public void writeToFile(File resultFile, boolean sparse) {
+        LongDoubleMap allFeatures = new LongDoubleMap();
+        for (HashedGramSample sample : samples) {
+            sample.getFeaturesWeights().forEach((feature, weight) -> allFeatures.put(feature, 0));
+        }
+        List<Pair<Long,String>> features = new ArrayList<>(allFeatures.size());
+        allFeatures.forEach((feature, ignored) -> features.add(Pair.get(feature, hasher.getFeatureName(feature))));
+        features.sort(hasher.isFeatureHashing() ? Comparator.comparing(Pair::getA) : Comparator.comparing(Pair::getB));
+
+        final int dimensions = features.size();
+        LongDoubleMap columns = allFeatures;
+        List<String> names = new ArrayList<>(dimensions);
+        for (int j = 0; j < dimensions; j++) {
+            columns.put(features.get(j).getA(), j);
+            names.add(features.get(j).getB());
+        }
+
+        logSampleCountByClass();
+        Logs.info("terms ("+dimensions+"): " + names);
+
+        FileUtils.deleteQuietly(resultFile);
+        FileUtils.mkDirsForFile(resultFile);
+
+        try( MatrixWriter writer = new MatrixWriter(resultFile) ){
+            //header:
+            writer.add(ID_COLUMN_NAME);
+            writer.separateAndAdd(LABEL_COLUMN_NAME);
+            for(String name : names)
+                writer.separateAndAdd(name);
+
+            double[] row = new double[dimensions];
+            for (HashedGramSample sample : samples) {
+                writer.newLine();
+                writer.add(sample.getId());
+
+                int numLabels = sample.getNumberLabels();
+                if(numLabels > 1)
+                    throw new UnsupportedOperationException("multi-labeled samples are not supported yet");
+                writer.separateAndAdd(numLabels == 1 ? sample.getFirstLabel() : "");
+
+                if(sparse){
+                    LongDoubleMap weights = sample.getFeaturesWeights();
+                    int[] sampleColumns = new int[weights.size()];
+                    int[] n = {0};
+                    weights.forEach((feature, weight) -> {
+                        int j = (int) columns.get(feature);
+                        sampleColumns[n[0]++] = j;
+                        row[j] = weight;
+                    });
+                    Arrays.sort(sampleColumns);
+                    for (int j : sampleColumns) {
+                        if(row[j] != 0.0)
+                            writer.separateAndAdd(j+"=").addFormattedDecimal(row[j]);
+                        row[j] = 0;
+                    }
+                }else{
+                    sample.getFeaturesWeights().forEach((feature, weight) -> row[(int) columns.get(feature)] = weight);
+                    for (int j = 0; j < dimensions; j++) {
+                        writer.separateAndAddFormattedDecimal(row[j]);
+                        row[j] = 0;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package mining.textMining.gram;
+
+import java.util.Set;
+import mining.Sample;
+import util.dataStructure.LongDoubleMap;
+
+/**
+ * Bag of n-grams whose features are given by a {@link GramHasher}, instead of the strings of the grams.
+ */
+public class HashedGramSample extends Sample {
+
+    private static final long serialVersionUID = 1;
+
+    private final LongDoubleMap featuresWeights = new LongDoubleMap();
+
+    public HashedGramSample(long id, Set<String> labels) {
+        super(id, labels);
+    }
+
+    public LongDoubleMap getFeaturesWeights() {
+        return featuresWeights;
+    }
+
+    /** @return true if the feature was not in the sample */
+    public boolean incrementWeightToFeature(long feature) {
+        return featuresWeights.increment(feature, 1);
+    }
+
+    public double getFeatureWeight(long feature) {
+        return featuresWeights.get(feature);
+    }
+}
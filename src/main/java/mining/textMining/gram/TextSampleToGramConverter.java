@@ -9,6 +9,7 @@ import mining.textMining.bagOfWord.TextSampleToBagOfWordSampleConverter;
 import mining.textMining.parsing.TextSection;
 import mining.textMining.parsing.TokenExtractor;
 import mining.textMining.parsing.TokenList;
+import mining.textMining.parsing.TokenStore;
 import util.Collector;
 import util.DataStructureUtils;
 import util.Logs;
@@ -16,28 +17,57 @@ import util.Logs;
 /**
  * {@link Collector} of {@link TextSample} that, for each received {@link TextSample}, produces a {@link BagOfWordSample}
  * considering the specified n-gram size, and handles it to the supplied {@link Collector} of {@link BagOfWordSample}.
+ * When created with a {@link GramHasher}, {@link HashedGramSample}s are produced instead, with no string created per gram.
  */
 public class TextSampleToGramConverter implements Collector<TextSample> {
 
-    private static final String TOKEN_JOINER = "§";
+    static final String TOKEN_JOINER = "§";
 
     private final TokenExtractor tokenExtractor;
     private Predicate<String> filteredTerms;
     private final int maxGramSize;
     private final Collector<BagOfWordSample> sampleCollector;
+    private final GramHasher hasher;
+    private final Collector<HashedGramSample> hashedSampleCollector;
+    private TokenStore tokenStore;
+    private int[] termIds = new int[64];
 
     public TextSampleToGramConverter(TokenExtractor tokenExtractor, Predicate<String> filteredTerms, int maxGramSize, Collector<BagOfWordSample> sampleCollector)
+    {
+        this(tokenExtractor, filteredTerms, maxGramSize, sampleCollector, null, null);
+    }
+
+    public TextSampleToGramConverter(TokenExtractor tokenExtractor, Predicate<String> filteredTerms, int maxGramSize,
+        GramHasher hasher, Collector<HashedGramSample> hashedSampleCollector)
+    {
+        this(tokenExtractor, filteredTerms, maxGramSize, null, hasher, hashedSampleCollector);
+    }
+
+    private TextSampleToGramConverter(TokenExtractor tokenExtractor, Predicate<String> filteredTerms, int maxGramSize, Collector<BagOfWordSample> sampleCollector,
+        GramHasher hasher, Collector<HashedGramSample> hashedSampleCollector)
     {
         Preconditions.checkArgument(maxGramSize >= 2, "maxGramSize must be >= 2. For size 1, use " + TextSampleToBagOfWordSampleConverter.class.getSimpleName());
         this.tokenExtractor = tokenExtractor;
         this.filteredTerms = filteredTerms;
         this.maxGramSize = maxGramSize;
         this.sampleCollector = sampleCollector;
+        this.hasher = hasher;
+        this.hashedSampleCollector = hashedSampleCollector;
+    }
+
+    /** @param tokenStore when set, the samples' tokens are read from (or added to) it, instead of always tokenizing them */
+    public void setTokenStore(TokenStore tokenStore) {
+        this.tokenStore = tokenStore;
     }
 
     @Override
     public void collect(TextSample sample) {
-        List<TextSection> sections = TextSection.loadSections(tokenExtractor, sample);
+        List<TextSection> sections = tokenStore != null ? tokenStore.loadSections(sample) : TextSection.loadSections(tokenExtractor, sample);
+
+        if (hasher != null) {
+            collectHashed(sample, sections);
+            return;
+        }
 
         BagOfWordSample bowSample = new BagOfWordSample(sample.getId(), sample.getLabels());
 
@@ -67,4 +97,43 @@ public class TextSampleToGramConverter implements Collector<TextSample> {
             Logs.finer("Sample discarded due empty terms: " + bowSample.getId());
         }
     }
+
+    private void collectHashed(TextSample sample, List<TextSection> sections) {
+        HashedGramSample gramSample = new HashedGramSample(sample.getId(), sample.getLabels());
+        boolean registerGrams = !hasher.isFeatureHashing();
+
+        for (TextSection section : sections) {
+            for (TokenList subSection : section.getSubSections()) {
+                List<String> terms = subSection.getTokens();
+                if(filteredTerms != null) {
+                    DataStructureUtils.removeAll(terms, t -> !filteredTerms.test(t));
+                }
+
+                int nTerms = terms.size();
+                if (termIds.length < nTerms) {
+                    termIds = new int[Math.max(nTerms, 2 * termIds.length)];
+                }
+                for (int i = 0; i < nTerms; i++) {
+                    termIds[i] = hasher.getTermId(terms.get(i));
+                }
+                for (int termIdx = 0; termIdx < nTerms; termIdx++) {
+                    long gramHash = GramHasher.EMPTY_GRAM_HASH;
+                    int maxIdx = Math.min(termIdx + maxGramSize - 1, nTerms - 1);
+                    for (int idx = termIdx; idx <= maxIdx; idx++) {
+                        gramHash = GramHasher.extend(gramHash, termIds[idx]);
+                        //os termos de um gram só são guardados na sua primeira ocorrencia na amostra
+                        if (gramSample.incrementWeightToFeature(hasher.getFeature(gramHash)) && registerGrams) {
+                            hasher.register(gramHash, termIds, termIdx, idx + 1);
+                        }
+                    }
+                }
+            }
+        }
+
+        if(!gramSample.getFeaturesWeights().isEmpty()){
+            hashedSampleCollector.collect(gramSample);
+        }else{
+            Logs.finer("Sample discarded due empty terms: " + gramSample.getId());
+        }
+    }
 }
@@ -1,14 +1,31 @@
 package mining.textMining.parsing;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
+import java.util.TreeSet;
 import org.apache.commons.lang3.mutable.MutableBoolean;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
+import com.google.common.hash.Hashing;
+import mining.textMining.CachedStemmer;
 import mining.textMining.Stemmer;
 import util.StringUtils;
 
 public class TokenExtractor {
 
     public static final String TOKEN_SEPARATORS_LIST_EXTENDED   = "\\s+|\u00A0|,|;|:|\\+|<|>|\\(|\\)|\"|'|´|`|/|\\[|\\]|\\||\\{|\\}|=|#|&|@|\\$|%|_|-|~|\\^|\\*|\\\\";
+    private static final boolean[] ASCII_TOKEN_SEPARATORS = new boolean[128];
+    static {
+        for (char c : " \t\n\u000B\f\r,;:+<>()\"'`/[]|{}=#&@$%_-~^*\\".toCharArray()) {
+            ASCII_TOKEN_SEPARATORS[c] = true;
+        }
+    }
+
 	private boolean removeEmails;
     private final Stemmer stemmer;
     private final Set<String> stopList;
@@ -37,24 +54,155 @@ public class TokenExtractor {
         this.removeEmails = removeEmails;
     }
 
+    public Stemmer getStemmer() {
+        return stemmer;
+    }
+
+    /** describes the options that affect the extracted tokens */
+    public String getConfigurationDescription() {
+        Stemmer baseStemmer = stemmer instanceof CachedStemmer ? ((CachedStemmer) stemmer).getStemmer() : stemmer;
+        return "version=1" //incrementar quando a extracao de tokens mudar
+            + "\nstemmer=" + (baseStemmer != null ? baseStemmer.getClass().getName() : "none")
+            + "\nstopList=" + stopList.size() + " terms, hash " + Hashing.murmur3_128().hashString(String.join("\n", new TreeSet<>(stopList)), StandardCharsets.UTF_8)
+            + "\ntokenSeparators=" + tokenSeparators
+            + "\nretainAcronyms=" + retainAcronyms
+            + "\ndiscardSequencesOfSingleChar=" + discardSequencesOfSingleChar
+            + "\nremoveEmails=" + removeEmails;
+    }
+
+    /** short key identifying {@link #getConfigurationDescription()} */
+    public String getConfigurationKey() {
+        return Hashing.murmur3_128().hashString(getConfigurationDescription(), StandardCharsets.UTF_8).toString().substring(0, 16);
+    }
+
     public void extract(String text, TokenCollector tokenCollector) {
         if (text == null) {
             return;
         }
 
         //interessante remover acentos pois: termos iguais a menos dos acentos tornam-se iguais, facilita stemming, ...
-        text = StringUtils.replaceAccents(text);
+        char[] chars = text.toCharArray();
+        int length = chars.length;
+        for (int i = 0; i < length; i++) {
+            if (chars[i] >= '\u0080') {
+                char[] output = new char[ArrayUtil.oversize(4 * length, RamUsageEstimator.NUM_BYTES_CHAR)];
+                length = ASCIIFoldingFilter.foldToASCII(chars, 0, output, 0, length);
+                chars = output;
+                break;
+            }
+        }
 
         if (removeEmails) {
-            text = removeEmails(text);
+            chars = removeEmails(new String(chars, 0, length)).toCharArray();
+            length = chars.length;
         }
 
-        String[] tokens = splitInTokens(text);
-
         MutableBoolean firedNewSubSectionAsLastEvent = new MutableBoolean(false);
-        for (String token : tokens) {
-            analyzeToken(token, firedNewSubSectionAsLastEvent, tokenCollector);
+        if (TOKEN_SEPARATORS_LIST_EXTENDED.equals(tokenSeparators)) {
+            scanTokens(chars, length, firedNewSubSectionAsLastEvent, tokenCollector);
+        } else {
+            for (String token : splitInTokens(new String(chars, 0, length))) {
+                analyzeToken(token, firedNewSubSectionAsLastEvent, tokenCollector);
+            }
+        }
+    }
+
+    /**
+     * Equivalente a remover numeros e quebrar o texto por {@link #TOKEN_SEPARATORS_LIST_EXTENDED}, analisando cada token, mas numa unica varredura
+     * sobre os caracteres, sem expressoes regulares.
+     */
+    private void scanTokens(char[] chars, int length, MutableBoolean firedNewSubSectionAsLastEvent, TokenCollector tokenCollector) {
+        boolean asciiLowerCase = isAsciiLowerCaseDefault(Locale.getDefault());
+        int tokenStart = -1;
+        int i = 0;
+        while (i < length) {
+            char c = chars[i];
+            boolean digit = c >= '0' && c <= '9';
+            if (digit || isTokenSeparator(c)) {
+                if (tokenStart >= 0) {
+                    scannedToken(chars, tokenStart, i, asciiLowerCase, firedNewSubSectionAsLastEvent, tokenCollector);
+                    tokenStart = -1;
+                }
+                //numeros (inclusive com separadores de milhar e decimais) sao descartados como se fossem separadores, vide StringUtils.removeNumbers()
+                i = digit ? skipNumber(chars, i, length) : i + 1;
+            } else {
+                if (tokenStart < 0) {
+                    tokenStart = i;
+                }
+                i++;
+            }
+        }
+        if (tokenStart >= 0) {
+            scannedToken(chars, tokenStart, length, asciiLowerCase, firedNewSubSectionAsLastEvent, tokenCollector);
+        }
+    }
+
+    private void scannedToken(char[] chars, int start, int end, boolean asciiLowerCase, MutableBoolean firedNewSubSectionAsLastEvent, TokenCollector tokenCollector) {
+        //trim:
+        while (start < end && chars[start] <= ' ') {
+            start++;
+        }
+        while (start < end && chars[end - 1] <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return;
         }
+
+        String token = null;
+        if (asciiLowerCase) {
+            char[] lowerCase = new char[end - start];
+            for (int i = start; i < end; i++) {
+                char c = chars[i];
+                if (c >= '\u0080') {
+                    lowerCase = null;
+                    break;
+                }
+                lowerCase[i - start] = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+            }
+            if (lowerCase != null) {
+                token = new String(lowerCase);
+            }
+        }
+        if (token == null) {
+            token = new String(chars, start, end - start).toLowerCase();
+        }
+
+        analyzeTrimmedToken(token, firedNewSubSectionAsLastEvent, tokenCollector);
+    }
+
+    /** returns the position after the match of "\\d+(,\\d+)*(\\.\\d+)*" starting at the given digit */
+    private static int skipNumber(char[] chars, int i, int length) {
+        i = skipDigits(chars, i, length);
+        while (i + 1 < length && chars[i] == ',' && isDigit(chars[i + 1])) {
+            i = skipDigits(chars, i + 1, length);
+        }
+        while (i + 1 < length && chars[i] == '.' && isDigit(chars[i + 1])) {
+            i = skipDigits(chars, i + 1, length);
+        }
+        return i;
+    }
+
+    private static int skipDigits(char[] chars, int i, int length) {
+        while (i < length && isDigit(chars[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /** same characters as {@link #TOKEN_SEPARATORS_LIST_EXTENDED} */
+    private static boolean isTokenSeparator(char c) {
+        return c < 128 ? ASCII_TOKEN_SEPARATORS[c] : c == '\u00A0' || c == '\u00B4';
+    }
+
+    /** whether String.toLowerCase(), on the given locale, maps ASCII letters the same way as plain ASCII lowercasing does (not so for turkish/azeri) */
+    private static boolean isAsciiLowerCaseDefault(Locale locale) {
+        String language = locale.getLanguage();
+        return !"tr".equals(language) && !"az".equals(language);
     }
 
     private static String removeEmails(String text) {
@@ -68,6 +216,10 @@ public class TokenExtractor {
             return;
         }
 
+        analyzeTrimmedToken(token, firedNewSubSectionAsLastEvent, tokenCollector);
+    }
+
+    private void analyzeTrimmedToken(String token, MutableBoolean firedNewSubSectionAsLastEvent, TokenCollector tokenCollector) {
         //detecta inicio/termino de subSecoes no começo/termino do token, mas tratando de nao confundir ultimo ponto de sigla como indicativo de sub-secao
         //quebras de sub-secao: ponto/interrogação/exclamação
         boolean subSectionStarted = false;
@@ -106,7 +258,7 @@ public class TokenExtractor {
         if (keepAcronym) {
             subTokens = new String[] { token };
         } else {
-            subTokens = token.split("\\.|!|\\?");
+            subTokens = splitInSubTokens(token);
         }
 
         for (int i = 0; i < subTokens.length; i++) {
@@ -151,6 +303,31 @@ public class TokenExtractor {
         }
     }
 
+    /** same as token.split("\\.|!|\\?") */
+    private static String[] splitInSubTokens(String token) {
+        List<String> subTokens = null;
+        int start = 0;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '.' || c == '!' || c == '?') {
+                if (subTokens == null) {
+                    subTokens = new ArrayList<>();
+                }
+                subTokens.add(token.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (subTokens == null) {
+            return new String[] { token };
+        }
+        subTokens.add(token.substring(start));
+        int size = subTokens.size();
+        while (size > 0 && subTokens.get(size - 1).isEmpty()) { //como no split, descarta vazios ao final
+            size--;
+        }
+        return subTokens.subList(0, size).toArray(new String[size]);
+    }
+
     private void announceNewSubSection(TokenCollector tokenCollector, MutableBoolean firedNewSubSectionAsLastEvent) {
         if (firedNewSubSectionAsLastEvent.isFalse()) {
             tokenCollector.subSectionStarted();
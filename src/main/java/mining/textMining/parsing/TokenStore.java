@@ -0,0 +1,252 @@
+package mining.textMining.parsing;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.CountingInputStream;
+import mining.textMining.TextSample;
+import util.Logs;
+import util.io.FileUtils;
+
+/**
+ * On-disk store of tokenized samples, so that a corpus is tokenized only once for all the representations created from it.
+ * Each sample keeps its sections (as created by {@link TextSection#loadSections}) with their sub-sections as arrays of term ids,
+ * whose terms are kept in a dictionary shared by all samples.
+ * A store is bound to the configuration of the {@link TokenExtractor} that filled it, having its own folder within the root folder.
+ * Each sample is kept with a fingerprint of its text (see {@link #fingerprint(TextSample)}), so that a sample whose text changed (e.g. an edited
+ * corpus, or another dataset with the same ids under the same root folder) is tokenized again instead of taken from the store.
+ * <p>
+ * The data is kept in a single append-only file of records, either a new dictionary term or a tokenized sample, so that an interrupted
+ * execution loses at most the last record. Samples not in the store are tokenized and added to it on demand. Thread-safe.
+ */
+public class TokenStore implements AutoCloseable {
+
+    private static final byte RECORD_TERM = 'T';
+    private static final byte RECORD_SAMPLE = 'F';
+    /** sample of the first format, without fingerprint: skipped, so that the sample is tokenized again */
+    private static final byte RECORD_SAMPLE_WITHOUT_FINGERPRINT = 'S';
+
+    private final TokenExtractor tokenExtractor;
+    private final RandomAccessFile file;
+    private final List<String> terms = new ArrayList<>();
+    private final Map<String,Integer> termIds = new HashMap<>();
+    private final Map<Long,Long> samplePositions = new HashMap<>();
+    private final Map<Long,Long> sampleFingerprints = new HashMap<>();
+    private long hits, misses, stale;
+
+    private TokenStore(TokenExtractor tokenExtractor, File storeFile) throws IOException {
+        this.tokenExtractor = tokenExtractor;
+        this.file = new RandomAccessFile(storeFile, "rw");
+        loadIndex(storeFile);
+    }
+
+    public static TokenStore open(File rootFolder, TokenExtractor tokenExtractor) {
+        File folder = new File(rootFolder, "tokens_" + tokenExtractor.getConfigurationKey());
+        FileUtils.mkDirs(folder);
+        File descriptionFile = new File(folder, "tokenExtractor.txt");
+        try {
+            if (!descriptionFile.exists()) {
+                FileUtils.writeStringToFile(descriptionFile, tokenExtractor.getConfigurationDescription());
+            }
+            TokenStore store = new TokenStore(tokenExtractor, new File(folder, "tokens"));
+            Logs.fine("TokenStore opened at " + folder + " with " + store.samplePositions.size() + " samples and " + store.terms.size() + " terms");
+            return store;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** reads the dictionary and the positions of the samples, discarding an incomplete record at the end of the file */
+    private void loadIndex(File storeFile) throws IOException {
+        long position = 0;
+        try (CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(storeFile)))) {
+            DataInputStream in = new DataInputStream(counter);
+            long length = storeFile.length();
+            while (position < length) {
+                byte type = in.readByte();
+                if (type == RECORD_TERM) {
+                    addTerm(in.readUTF());
+                } else if (type == RECORD_SAMPLE) { //o ultimo registro da amostra prevalece
+                    long id = in.readLong();
+                    long fingerprint = in.readLong();
+                    int size = in.readInt();
+                    if (counter.getCount() + size > length)
+                        throw new EOFException();
+                    samplePositions.put(id, counter.getCount());
+                    sampleFingerprints.put(id, fingerprint);
+                    in.skipBytes(size);
+                } else if (type == RECORD_SAMPLE_WITHOUT_FINGERPRINT) {
+                    in.readLong();
+                    int size = in.readInt();
+                    if (counter.getCount() + size > length)
+                        throw new EOFException();
+                    in.skipBytes(size);
+                } else {
+                    throw new IOException("corrupted token store at position " + position);
+                }
+                position = counter.getCount();
+            }
+        } catch (EOFException e) {
+            Logs.warn("Discarding incomplete record at the end of the token store, at position " + position);
+            file.setLength(position);
+        }
+    }
+
+    private int addTerm(String term) {
+        int id = terms.size();
+        terms.add(term);
+        termIds.put(term, id);
+        return id;
+    }
+
+    /**
+     * Returns the sections of the given sample, from the store when available with the same text; otherwise the sample is tokenized and added
+     * to the store.
+     */
+    public List<TextSection> loadSections(TextSample textSample) {
+        long fingerprint = fingerprint(textSample);
+        List<TextSection> sections = getSections(textSample.getId(), fingerprint);
+        if (sections == null) {
+            sections = TextSection.loadSections(tokenExtractor, textSample);
+            add(textSample.getId(), fingerprint, sections);
+        }
+        return sections;
+    }
+
+    /** hash of the texts of the sample which are tokenized (see {@link TextSection#loadSections}) */
+    public static long fingerprint(TextSample textSample) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        putText(hasher, textSample.getTitle());
+        putText(hasher, textSample.getBody());
+        String[] tags = textSample.getTags();
+        hasher.putInt(tags == null ? -1 : tags.length);
+        if (tags != null) {
+            for (String tag : tags)
+                putText(hasher, tag);
+        }
+        return hasher.hash().asLong();
+    }
+
+    private static void putText(Hasher hasher, String text) {
+        hasher.putInt(text == null ? -1 : text.length()); //delimita os textos, distinguindo null de vazio
+        if (text != null)
+            hasher.putUnencodedChars(text);
+    }
+
+    /** the stored sections of the given sample, or null when it is not in the store or was stored from another text */
+    private synchronized List<TextSection> getSections(long sampleId, long fingerprint) {
+        Long position = samplePositions.get(sampleId);
+        if (position == null || sampleFingerprints.get(sampleId) != fingerprint) {
+            if (position != null)
+                stale++;
+            misses++;
+            return null;
+        }
+        hits++;
+        try {
+            file.seek(position - 4);
+            byte[] data = new byte[file.readInt()];
+            file.readFully(data);
+            return decode(new DataInputStream(new ByteArrayInputStream(data)));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private synchronized void add(long sampleId, long fingerprint, List<TextSection> sections) {
+        Long storedFingerprint = sampleFingerprints.get(sampleId);
+        if (storedFingerprint != null && storedFingerprint == fingerprint) {
+            return;
+        }
+        try {
+            //os termos novos sao gravados antes da amostra, e ambos numa unica escrita:
+            ByteArrayOutputStream newTerms = new ByteArrayOutputStream();
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            encode(sections, new DataOutputStream(data), new DataOutputStream(newTerms));
+            ByteArrayOutputStream records = new ByteArrayOutputStream(newTerms.size() + 21 + data.size());
+            newTerms.writeTo(records);
+            DataOutputStream out = new DataOutputStream(records);
+            out.writeByte(RECORD_SAMPLE);
+            out.writeLong(sampleId);
+            out.writeLong(fingerprint);
+            out.writeInt(data.size());
+            long position = file.length();
+            samplePositions.put(sampleId, position + records.size());
+            sampleFingerprints.put(sampleId, fingerprint);
+            data.writeTo(records);
+            file.seek(position);
+            file.write(records.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void encode(List<TextSection> sections, DataOutputStream out, DataOutputStream newTermsOut) throws IOException {
+        out.writeInt(sections.size());
+        for (TextSection section : sections) {
+            out.writeUTF(section.getId());
+            out.writeInt(section.getSubSections().size());
+            for (TokenList subSection : section.getSubSections()) {
+                List<String> tokens = subSection.getTokens();
+                out.writeInt(tokens.size());
+                for (String token : tokens) {
+                    Integer id = termIds.get(token);
+                    if (id == null) {
+                        id = addTerm(token);
+                        newTermsOut.writeByte(RECORD_TERM);
+                        newTermsOut.writeUTF(token);
+                    }
+                    out.writeInt(id);
+                }
+            }
+        }
+    }
+
+    private List<TextSection> decode(DataInputStream in) throws IOException {
+        int nSections = in.readInt();
+        List<TextSection> sections = new ArrayList<>(nSections);
+        for (int s = 0; s < nSections; s++) {
+            String sectionId = in.readUTF();
+            int nSubSections = in.readInt();
+            List<TokenList> subSections = new ArrayList<>(nSubSections);
+            for (int ss = 0; ss < nSubSections; ss++) {
+                int nTokens = in.readInt();
+                List<String> tokens = new ArrayList<>(nTokens);
+                for (int t = 0; t < nTokens; t++) {
+                    tokens.add(terms.get(in.readInt()));
+                }
+                subSections.add(new TokenList(tokens));
+            }
+            sections.add(new TextSection(sectionId, subSections));
+        }
+        return sections;
+    }
+
+    public synchronized int size() {
+        return samplePositions.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        Logs.fine("TokenStore closed with " + samplePositions.size() + " samples and " + terms.size() + " terms. Hits: " + hits + ", misses: " + misses
+            + " (" + stale + " stored from another text)");
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -1,29 +1,40 @@
 package mining.textMining.textToGraph;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.apache.commons.lang3.mutable.MutableInt;
+import com.google.common.base.Preconditions;
 import mining.Dataset;
 import mining.Sample;
 import mining.SamplePathResolver;
 import mining.SamplePathResolverSimple;
 import mining.textMining.textToGraph.model.GraphSample;
+import util.ConcurrencyUtils;
 import util.DataStructureUtils;
 import util.Logs;
+import util.Metrics;
 import util.Pair;
+import util.Pointer;
 import util.StringUtils;
 import util.TimeWatcher;
 import util.graph.DirectedWeightedLabeledGraph;
@@ -33,6 +44,8 @@ import util.io.FileUtils;
 
 public class GraphDataset extends Dataset<GraphSample> {
 
+    private int parallelism = 1;
+
     public GraphDataset() {
     }
 
@@ -40,27 +53,45 @@ public class GraphDataset extends Dataset<GraphSample> {
         super(samples);
     }
 
+    /**
+     * Number of threads used by the transforms of the dataset (pruning, TF-IDF, normalization and statistics), applied to each graph in isolation.
+     * The results do not depend on it.
+     */
+    public void setParallelism(int parallelism) {
+        Preconditions.checkArgument(parallelism > 0);
+        this.parallelism = parallelism;
+    }
+
+    /** runs the task with a stream of the samples, parallel when parallelism > 1 */
+    private void withSamplesStream(Consumer<Stream<GraphSample>> task) {
+        if (parallelism > 1 && samples.size() > 1) {
+            ConcurrencyUtils.runWithParallelism(parallelism, () -> task.accept(samples.parallelStream()));
+        } else {
+            task.accept(samples.stream());
+        }
+    }
+
     private Map<String,MutableInt> getDocumentFrequencyFromTerms() {
-        Map<String, MutableInt> termsDFs = new HashMap<>();
-        for (GraphSample sample : samples) {
-            Set<String> terms = sample.getGraph().vertexSet();
-            for(String term : terms){
-                DataStructureUtils.incrementMapValue(termsDFs, term);
+        Pointer<Map<String,MutableInt>> termsDFs = new Pointer<>();
+        //collect ordenado: as contagens parciais mantem a ordem em que os termos aparecem e sao juntadas na ordem das amostras,
+        //de modo que os termos ficam na ordem da primeira ocorrencia, qualquer que seja o paralelismo
+        withSamplesStream(stream -> termsDFs.set(stream.collect(LinkedHashMap::new, (dfs, sample) -> {
+            for(String term : sample.getGraph().vertexSet()){
+                DataStructureUtils.incrementMapValue(dfs, term);
             }
-        }
-        return termsDFs;
+        }, (dfs, dfs2) -> {
+            dfs2.forEach((term, df) -> DataStructureUtils.incrementMapValue(dfs, term, df.intValue()));
+        })));
+        //inseridos nessa ordem, como na contagem sequencial, resultam no mesmo HashMap (e na mesma ordem de iteracao) que ela
+        Map<String,MutableInt> dfs = new HashMap<>();
+        termsDFs.get().forEach(dfs::put);
+        return dfs;
     }
 
     public GraphDatasetStats computeStatistics() {
-        GraphDatasetStats stats = new GraphDatasetStats();
-        for (GraphSample sample : samples) {
-            LabeledMeasurableGraph graph = sample.getGraph();
-            for(String term : graph.vertexSet())
-                stats.incrementTermDF(term);
-            for(LabeledWeightedEdge edge : graph.edgeSet())
-                stats.incrementPairTermDF(edge.getSourceTarget());
-        }
-        return stats;
+        Pointer<GraphDatasetStats> stats = new Pointer<>();
+        withSamplesStream(stream -> stats.set(stream.collect(GraphDatasetStats::new, (s, sample) -> s.addGraph(sample.getGraph()), GraphDatasetStats::merge)));
+        return stats.get();
     }
 
     private Set<String> getTermsDFLessThan(int minimumDF) {
@@ -75,7 +106,12 @@ public class GraphDataset extends Dataset<GraphSample> {
     }
 
     public void normalizeWeights(float min, float max) {
-        normalizeWeights(min, max, samples);
+        if (parallelism > 1) {
+            Logs.finer("Normalizing graph weights by dividing values for their max within each graph");
+            withSamplesStream(stream -> stream.forEach(s -> s.getGraph().normalizeWeights(min, max)));
+        } else {
+            normalizeWeights(min, max, samples);
+        }
 	}
 	public static void normalizeWeights(float min, float max, ArrayList<GraphSample>... datasets) {
 	    Logs.finer("Normalizing graph weights by dividing values for their max within each graph");
@@ -86,16 +122,15 @@ public class GraphDataset extends Dataset<GraphSample> {
         }
     }
 
-    public void convertTFtoTFIDF() {
+    /** @return the stats used in the conversion */
+    public GraphDatasetStats convertTFtoTFIDF() {
 		Logs.fine("Converting graph dataset weight from TF to TF-IDF");
 
 		GraphDatasetStats stats = computeStatistics();
 
 		int nDocuments = samples.size();
-		for (GraphSample sample : samples) {
-		    LabeledMeasurableGraph graph = sample.getGraph();
-			graph.convertTFtoTFIDF(nDocuments, stats);
-		}
+		withSamplesStream(stream -> stream.forEach(sample -> sample.getGraph().convertTFtoTFIDF(nDocuments, stats)));
+		return stats;
 	}
 
     public void logStats() {
@@ -106,8 +141,11 @@ public class GraphDataset extends Dataset<GraphSample> {
             terms.addAll(graphTerms);
 	    	sumVertices += graphTerms.size();
 	    }
+	    logStats(terms, sumVertices, size());
+	}
+	public static void logStats(Set<String> terms, int sumVertices, int nSamples) {
 	    Logs.info("terms (" + terms.size() +"): " + terms);
-	    Logs.info("Avg. #vertices per graph: " + (float)sumVertices/size());
+	    Logs.info("Avg. #vertices per graph: " + (float)sumVertices/nSamples);
 	}
 
 	public void pruneTermsFromSamplesByDF(int minimumTermDF, boolean reconnectOrphanEdges) {
@@ -115,30 +153,63 @@ public class GraphDataset extends Dataset<GraphSample> {
 	        Set<String> termsToPrune = getTermsDFLessThan(minimumTermDF);
 	        if (!termsToPrune.isEmpty()) {
 	            Logs.fine("Pruning " + termsToPrune.size() + " terms with DF<"+minimumTermDF+" from graph samples, with reconnectOrphanEdges=" + reconnectOrphanEdges);
-	            for (Iterator<GraphSample> it = samples.iterator(); it.hasNext(); ) {
-                    GraphSample sample = it.next();
-                    LabeledMeasurableGraph graph = sample.getGraph();
-                    boolean becameEmpty = graph.prune(termsToPrune, reconnectOrphanEdges);
-                    if(becameEmpty){
-                        Logs.fine("Discarding sample "+ sample.getId() +" due it became empty after term prunning");
-                        it.remove();
-                    }
-                }
+	            Map<String,Integer> termsToPruneRanks = rankTerms(termsToPrune);
+	            pruneSamples(graph -> pruneTerms(graph, termsToPruneRanks, reconnectOrphanEdges));
 	        }
 	    }
     }
 
+	/** the position of each term within the given ones */
+	public static Map<String,Integer> rankTerms(Collection<String> terms) {
+	    Map<String,Integer> ranks = new HashMap<>(2 * terms.size());
+	    for (String term : terms) {
+	        ranks.putIfAbsent(term, ranks.size());
+	    }
+	    return ranks;
+	}
+
+	/**
+	 * Prunes from the graph the terms it contains among the ones to prune, in the order of their ranks (which determines the edges induced by the reconnection).
+	 * Only the vertices of the graph are looked up, instead of all the terms to prune of the dataset.
+	 * @return true if graph became empty (0 vertices)
+	 */
+	public static boolean pruneTerms(LabeledMeasurableGraph graph, Map<String,Integer> termsToPruneRanks, boolean reconnectOrphanEdges) {
+	    List<String> graphTermsToPrune = new ArrayList<>();
+	    for (String term : graph.vertexSet()) {
+	        if (termsToPruneRanks.containsKey(term))
+	            graphTermsToPrune.add(term);
+	    }
+	    if (graphTermsToPrune.isEmpty())
+	        return false;
+	    if (reconnectOrphanEdges)
+	        graphTermsToPrune.sort(Comparator.comparing(termsToPruneRanks::get));
+	    return graph.prune(graphTermsToPrune, reconnectOrphanEdges);
+	}
+
 	public void pruneWorstWeightedTerms(int maxNodesToRetain) {
         Logs.fine("Pruning graphs to max " + maxNodesToRetain + " nodes each.");
-        for (Iterator<GraphSample> it = samples.iterator(); it.hasNext(); ) {
-            GraphSample sample = it.next();
-            LabeledMeasurableGraph graph = sample.getGraph();
-            boolean becameEmpty = graph.pruneWorstWeightedTerms(maxNodesToRetain);
-            if(becameEmpty){
-                Logs.fine("Discarding sample "+ sample.getId() +" due it became empty after term prunning");
-                it.remove();
-            }
-        }
+        pruneSamples(graph -> graph.pruneWorstWeightedTerms(maxNodesToRetain));
+	}
+
+	/** applies the pruning to each graph, then discards the samples whose graph became empty */
+	private void pruneSamples(Predicate<LabeledMeasurableGraph> pruning) {
+	    boolean[] becameEmpty = new boolean[samples.size()];
+	    if (parallelism > 1 && samples.size() > 1) {
+	        ConcurrencyUtils.runWithParallelism(parallelism, () -> {
+	            IntStream.range(0, samples.size()).parallel().forEach(i -> becameEmpty[i] = pruning.test(samples.get(i).getGraph()));
+	        });
+	    } else {
+	        for (int i = 0; i < samples.size(); i++)
+	            becameEmpty[i] = pruning.test(samples.get(i).getGraph());
+	    }
+	    int i = 0;
+	    for (Iterator<GraphSample> it = samples.iterator(); it.hasNext(); i++) {
+	        GraphSample sample = it.next();
+	        if(becameEmpty[i]){
+	            Logs.fine("Discarding sample "+ sample.getId() +" due it became empty after term prunning");
+	            it.remove();
+	        }
+	    }
 	}
 
 	public void writeToFolder(SamplePathResolver resultFolder) {
@@ -209,39 +280,54 @@ public class GraphDataset extends Dataset<GraphSample> {
         }
     }
 	public static GraphSample loadSampleFromFile(File file) {
-        try(Scanner in = FileUtils.createScannerFromFile(file)){
-            long id = Long.parseLong(in.nextLine());
+	    Pointer<GraphSample> sample = new Pointer<>();
+	    readSampleFromFile(file, new GraphSampleFileHandler() {
+	        DirectedWeightedLabeledGraph g;
+	        public void header(long id, Set<String> labels, int nVertices, int nEdges, boolean weighted) {
+	            g = new DirectedWeightedLabeledGraph(weighted);
+	            sample.set(new GraphSample(id, labels, g));
+	        }
+	        public void vertex(String vertex, double weight) {
+	            g.addVertex(vertex, weight);
+	        }
+	        public void edge(String source, String target, double weight, String label) {
+	            LabeledWeightedEdge edge = g.addEdge(source, target);
+	            edge.setWeight(weight);
+	            edge.setLabel(label);
+	        }
+	    });
+	    return sample.get();
+	}
+
+	/**
+	 * Reads a GraphSample file (see {@link #writeSample(GraphSample, File)} for its format), handing its content to the handler
+	 * as it is parsed, without instantiating any graph.
+	 */
+	public static void readSampleFromFile(File file, GraphSampleFileHandler handler) {
+        try(BufferedReader in = FileUtils.createReaderFromFile(file)){
+            long id = Long.parseLong(in.readLine());
             Set<String> labels = null;
             {
-                String s = in.nextLine();
+                String s = in.readLine();
                 if(!s.isEmpty())
                     labels = DataStructureUtils.asSet(s.split("\t"));
             }
-            String[] tmp = in.nextLine().split("\t");
+            String[] tmp = in.readLine().split("\t");
             int nVertices = Integer.parseInt(tmp[0]);
             int nEdges = Integer.parseInt(tmp[1]);
             boolean weighted = Integer.parseInt(tmp[2])==1;
-            DirectedWeightedLabeledGraph g = new DirectedWeightedLabeledGraph(weighted);
+            handler.header(id, labels, nVertices, nEdges, weighted);
             for (int i = 1; i <= nVertices; i++) {
-                tmp = in.nextLine().split("\t");
-                String vertex = tmp[0];
-                double weight = Double.parseDouble(tmp[1]);
-                g.addVertex(vertex, weight);
+                tmp = in.readLine().split("\t");
+                handler.vertex(tmp[0], Double.parseDouble(tmp[1]));
             }
             for (int i = 1; i <= nEdges; i++) {
-                tmp = StringUtils.splitPreserveAllTokens(in.nextLine(), '\t');
-                String source = tmp[0];
-                String target = tmp[1];
-                double weight = Double.parseDouble(tmp[2]);
-                String label = tmp[3];
-                LabeledWeightedEdge edge = g.addEdge(source, target);
-                edge.setWeight(weight);
-                edge.setLabel(label);
+                tmp = StringUtils.splitPreserveAllTokens(in.readLine(), '\t');
+                handler.edge(tmp[0], tmp[1], Double.parseDouble(tmp[2]), tmp[3]);
             }
-            return new GraphSample(id, labels, g);
-        }catch (RuntimeException e) {
+        }catch (IOException | RuntimeException e) {
             Logs.severe("Error while reading GraphSample from file " + file);
-            throw e;
+            throw e instanceof RuntimeException ? (RuntimeException)e : new RuntimeException(e);
         }
     }
 
@@ -258,6 +344,11 @@ public class GraphDataset extends Dataset<GraphSample> {
         return Sample.getIdFromFile_(graphSampleFile);
     }
 
+    /** file, beside the graphs folder, with the stats of the graphs after the term pruning, used to weight new documents alike */
+    public static File getStatsFile(File graphsFolder) {
+        return new File(graphsFolder.getParentFile(), graphsFolder.getName() + ".stats");
+    }
+
     public static GraphDataset loadFromFolder(String folder) {
         return loadFromFolder(new File(folder));
     }
@@ -271,6 +362,8 @@ public class GraphDataset extends Dataset<GraphSample> {
 	    forEachSampleInFolder(pathResolver, s -> samples.add(s));
 	    Collections.sort(samples, Sample.COMPARATOR_BY_ID);
 	    Logs.finest("GraphDataset was read after " + timeWatcher);
+	    Metrics.histogram("load.graphDataset").record(timeWatcher.getTimeInNanoSecs());
+	    Metrics.counter("load.graphSamples").add(samples.size());
 	    return new GraphDataset(samples);
 	}
     public static void forEachSampleInFolder(File folder, Consumer<GraphSample> collector) {
@@ -1,21 +1,47 @@
 package mining.textMining.textToGraph;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.commons.lang3.mutable.MutableInt;
 import util.DataStructureUtils;
 import util.Pair;
+import util.StringUtils;
+import util.graph.LabeledMeasurableGraph;
+import util.graph.LabeledWeightedEdge;
+import util.io.FileUtils;
 
 public class GraphDatasetStats {
 
     private Map<String, MutableInt> termsDFs;
     private Map<Pair<String, String>, MutableInt> pairTermDFs;
+    private int nDocuments; //graphs accounted by addGraph
+    private int unseenDF;
 
     public GraphDatasetStats() {
         this.termsDFs = new HashMap<>();
         this.pairTermDFs = new HashMap<>();
     }
 
+    /** accounts the terms and term pairs of one more document */
+    public void addGraph(LabeledMeasurableGraph graph) {
+        for(String term : graph.vertexSet())
+            incrementTermDF(term);
+        for(LabeledWeightedEdge edge : graph.edgeSet())
+            incrementPairTermDF(edge.getSourceTarget());
+        nDocuments++;
+    }
+
+    /** adds the counts of the other stats, whose new terms and pairs are put after the ones of this */
+    public void merge(GraphDatasetStats other) {
+        other.termsDFs.forEach((term, df) -> DataStructureUtils.incrementMapValue(termsDFs, term, df.intValue()));
+        other.pairTermDFs.forEach((pair, df) -> DataStructureUtils.incrementMapValue(pairTermDFs, pair, df.intValue()));
+        nDocuments += other.nDocuments;
+    }
+
     public void incrementTermDF(String term) {
         DataStructureUtils.incrementMapValue(termsDFs, term);
     }
@@ -28,11 +54,79 @@ public class GraphDatasetStats {
         return termsDFs;
     }
 
+    public int getNumDocuments() {
+        return nDocuments;
+    }
+
+    public boolean containsTerm(String term) {
+        return termsDFs.containsKey(term);
+    }
+
+    /**
+     * DF given to the terms and term pairs absent from the stats, as needed to weight documents from outside the corpus.
+     * By default (0) asking for the DF of an absent one is an error.
+     */
+    public void setUnseenDF(int unseenDF) {
+        this.unseenDF = unseenDF;
+    }
+
     public int getTermDF(String term) {
-        return termsDFs.get(term).intValue();
+        MutableInt df = termsDFs.get(term);
+        return df != null ? df.intValue() : getUnseenDF(term);
     }
 
     public int getEdgeDF(String termA, String termB) {
-        return pairTermDFs.get(new Pair<>(termA, termB)).intValue();
+        MutableInt df = pairTermDFs.get(new Pair<>(termA, termB));
+        return df != null ? df.intValue() : getUnseenDF(termA + " " + termB);
+    }
+
+    private int getUnseenDF(String element) {
+        if (unseenDF <= 0)
+            throw new IllegalArgumentException("DF unknown for: " + element);
+        return unseenDF;
+    }
+
+    public void writeToFile(File file) {
+//  file format:
+//  #nDocuments=<n>
+//  term df [1 line per term]
+//  source target df [1 line per term pair]
+        try(PrintStream out = FileUtils.createPrintStreamToFile(file, true)){
+            out.print("#nDocuments=");
+            out.print(nDocuments);
+            out.print('\n');
+            for(Map.Entry<String, MutableInt> termDF : termsDFs.entrySet()){
+                out.print(termDF.getKey());
+                out.print('\t');
+                out.print(termDF.getValue().intValue());
+                out.print('\n');
+            }
+            for(Map.Entry<Pair<String, String>, MutableInt> pairDF : pairTermDFs.entrySet()){
+                out.print(pairDF.getKey().getA());
+                out.print('\t');
+                out.print(pairDF.getKey().getB());
+                out.print('\t');
+                out.print(pairDF.getValue().intValue());
+                out.print('\n');
+            }
+        }
+    }
+
+    public static GraphDatasetStats loadFromFile(File file) {
+        GraphDatasetStats stats = new GraphDatasetStats();
+        try(BufferedReader in = FileUtils.createReaderFromFile(file)){
+            String line = in.readLine();
+            stats.nDocuments = Integer.parseInt(StringUtils.substringAfter(line, "#nDocuments="));
+            while((line = in.readLine()) != null){
+                String[] tmp = StringUtils.splitPreserveAllTokens(line, '\t');
+                if(tmp.length == 2)
+                    stats.termsDFs.put(tmp[0], new MutableInt(Integer.parseInt(tmp[1])));
+                else
+                    stats.pairTermDFs.put(new Pair<>(tmp[0], tmp[1]), new MutableInt(Integer.parseInt(tmp[2])));
+            }
+        }catch (IOException | RuntimeException e) {
+            throw new RuntimeException("Error while reading GraphDatasetStats from file " + file, e);
+        }
+        return stats;
     }
 }
@@ -0,0 +1,15 @@
+package mining.textMining.textToGraph;
+
+import java.util.Set;
+
+/**
+ * Receives the content of a GraphSample file while it is parsed, in file order: header first, then each vertex, then each edge.
+ */
+public interface GraphSampleFileHandler {
+
+    void header(long id, Set<String> labels, int nVertices, int nEdges, boolean weighted);
+
+    void vertex(String vertex, double weight);
+
+    void edge(String source, String target, double weight, String label);
+}
@@ -0,0 +1,68 @@
+package mining.textMining.textToGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import com.google.common.base.Preconditions;
+import mining.textMining.textToGraph.model.GraphType;
+import util.graph.LabeledMeasurableGraph;
+
+/**
+ * Applies to a single graph the transforms that the graph generation applies to the whole dataset (term pruning by DF, TF-IDF,
+ * normalization and pruning of the worst weighted terms), taking the DFs from precomputed corpus stats instead of from the dataset.
+ * So documents can be transformed one at a time, including new ones: terms and term pairs absent from the corpus get DF 1,
+ * and the terms absent from the stats are pruned when pruning by DF.
+ * Given the stats written by the graph generation, a corpus graph gets the same weights it got there, except for the order in which
+ * pruned terms are reconnected.
+ * Does not change its state, so it can be called concurrently.
+ */
+public class GraphTransformer {
+
+    private final GraphDatasetStats stats;
+    private final int minimumTermDF;
+    private final boolean induceEdgesAfterTermPrunning;
+    private final boolean tfIdf;
+    private final boolean normalize;
+    private final int maxNodesByGraphToRetain;
+
+    /**
+     * @param stats stats of the corpus graphs after the term pruning (see {@link GraphDataset#getStatsFile}); may be null when
+     * neither pruning by DF nor TF-IDF is applied
+     */
+    public GraphTransformer(GraphType graphType, GraphDatasetStats stats, int minimumTermDF, boolean induceEdgesAfterTermPrunning,
+        boolean useTfIdf, int maxNodesByGraphToRetain)
+    {
+        this.minimumTermDF = minimumTermDF >= 2 ? minimumTermDF : 0; // menos que 2 não requer filtrarmos
+        this.induceEdgesAfterTermPrunning = induceEdgesAfterTermPrunning;
+        this.tfIdf = graphType.isCountingRequired() && useTfIdf;
+        this.normalize = graphType.isCountingRequired() && (useTfIdf || graphType.isCountingRequiredAsRelative());
+        this.maxNodesByGraphToRetain = maxNodesByGraphToRetain;
+        Preconditions.checkArgument(stats != null || (this.minimumTermDF == 0 && !tfIdf), "corpus stats are required for pruning by DF and TF-IDF");
+        if (stats != null) { //copia, para nao mudar o DF de ausentes nas stats de quem chama
+            this.stats = new GraphDatasetStats();
+            this.stats.merge(stats);
+            this.stats.setUnseenDF(1);
+        } else {
+            this.stats = null;
+        }
+    }
+
+    /** @return false if the graph became empty */
+    public boolean transform(LabeledMeasurableGraph graph) {
+        if (minimumTermDF > 0) {
+            List<String> termsToPrune = new ArrayList<>();
+            for (String term : graph.vertexSet()) {
+                if (!stats.containsTerm(term) || stats.getTermDF(term) < minimumTermDF)
+                    termsToPrune.add(term);
+            }
+            if (!termsToPrune.isEmpty() && graph.prune(termsToPrune, induceEdgesAfterTermPrunning))
+                return false;
+        }
+        if (tfIdf)
+            graph.convertTFtoTFIDF(stats.getNumDocuments(), stats);
+        if (normalize)
+            graph.normalizeWeights(0,1);
+        if (maxNodesByGraphToRetain > 0 && graph.pruneWorstWeightedTerms(maxNodesByGraphToRetain))
+            return false;
+        return true;
+    }
+}
@@ -5,6 +5,7 @@ import mining.textMining.TextSample;
 import mining.textMining.parsing.TextSection;
 import mining.textMining.parsing.TokenExtractor;
 import mining.textMining.parsing.TokenList;
+import mining.textMining.parsing.TokenStore;
 import mining.textMining.textToGraph.model.GraphSample;
 import mining.textMining.textToGraph.model.GraphType;
 import util.Collector;
@@ -18,6 +19,7 @@ public class TextSampleToGraphSampleConverter implements Collector<TextSample> {
     private final boolean forceReach;
     private final int maxReach;
     private final Collector<GraphSample> sampleCollector;
+    private TokenStore tokenStore;
 
     public TextSampleToGraphSampleConverter(TokenExtractor tokenExtractor, GraphType graphType, boolean forceReach,
         int maxReach, Collector<GraphSample> graphSampleCollector)
@@ -29,14 +31,32 @@ public class TextSampleToGraphSampleConverter implements Collector<TextSample> {
         this.sampleCollector = graphSampleCollector;
     }
 
+    /** @param tokenStore when set, the samples' tokens are read from (or added to) it, instead of always tokenizing them */
+    public void setTokenStore(TokenStore tokenStore) {
+        this.tokenStore = tokenStore;
+    }
+
     @Override
     public void collect(TextSample textSample) {
-        List<TextSection> sections = TextSection.loadSections(tokenExtractor, textSample);
+        GraphSample graphSample = convert(textSample);
+        if (graphSample != null) {
+            sampleCollector.collect(graphSample);
+        }
+    }
+
+    /**
+     * Creates the graph of the given sample, or null when it has no terms. Does not change the state of this converter, so it can be called concurrently.
+     */
+    public GraphSample convert(TextSample textSample) {
+        return convert(textSample, tokenStore != null ? tokenStore.loadSections(textSample) : TextSection.loadSections(tokenExtractor, textSample));
+    }
 
+    /** Creates the graph of the given sample from its already tokenized sections, or null when it has no terms. */
+    public GraphSample convert(TextSample textSample, List<TextSection> sections) {
         if (!sections.isEmpty()) {
             DirectedWeightedLabeledGraph graph = createGraph(sections);
             if(graph != null){
-                sampleCollector.collect(new GraphSample(textSample.getId(), textSample.getLabels(), graph));
+                return new GraphSample(textSample.getId(), textSample.getLabels(), graph);
             }
 //          else{
 //              Logs.fine("Sample "+ textSample.getId() +" discarded due no vertices created!");
@@ -45,6 +65,7 @@ public class TextSampleToGraphSampleConverter implements Collector<TextSample> {
 //      else {
 //          Logs.finer("Sample "+ textSample.getId() +" discarded due no terms!");
 //      }
+        return null;
     }
 
     private DirectedWeightedLabeledGraph createGraph(List<TextSection> sections) {
@@ -0,0 +1,39 @@
+package util;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+public class ConcurrencyUtils {
+
+    /**
+     * Runs the task within a dedicated ForkJoinPool, so that any parallel stream started by it is limited to the given parallelism
+     * (instead of sharing the common pool). Blocks until the task finishes.
+     */
+    public static void runWithParallelism(int parallelism, Runnable task) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw propagate(e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** the cause of the failure of a task, to be rethrown as is if unchecked (an Error is thrown right away) */
+    public static RuntimeException propagate(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if(cause instanceof RuntimeException)
+            return (RuntimeException) cause;
+        if(cause instanceof Error)
+            throw (Error) cause;
+        return new RuntimeException(cause);
+    }
+
+    public static int getAvailableProcessors() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
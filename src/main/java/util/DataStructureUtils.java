@@ -15,6 +15,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Random;
 import java.util.Set;
@@ -326,6 +327,14 @@ public class DataStructureUtils {
 		}
 		value.increment();
 	}
+	public static <T> void incrementMapValue(Map<T, MutableInt> map, T key, int increment) {
+		MutableInt value = map.get(key);
+		if (value == null) {
+			value = new MutableInt();
+			map.put(key, value);
+		}
+		value.add(increment);
+	}
 
 	public static <T> void incrementMapValueConc(ConcurrentHashMap<T, AtomicInteger> map, T key) {
 		AtomicInteger value = map.get(key);
@@ -435,6 +444,9 @@ public class DataStructureUtils {
 	    List<Entry<K, V>> mapEntries = new ArrayList<>(map.entrySet());
 
         Comparator<Entry<K, V>> valueMapComparator = getEntryMapComparatorByValue(asc);
+        if(limit > 0 && mapEntries.size() > limit){
+            return selectFirstSorted(mapEntries, valueMapComparator, limit);
+        }
         Collections.sort(mapEntries, valueMapComparator);
 
         if(limit > 0 && mapEntries.size() > limit){
@@ -444,6 +456,32 @@ public class DataStructureUtils {
         return mapEntries;
     }
 
+	/**
+	 * Same as sorting the list (stable) and keeping its first k elements, but with a bounded heap of k elements instead of sorting the whole list.
+	 */
+	public static <T> List<T> selectFirstSorted(List<T> list, Comparator<? super T> comparator, int k) {
+	    //desempate pela posicao na lista, como na ordenacao estavel; o heap tem o pior dos selecionados na cabeca
+	    Comparator<Integer> byPosition = (i, j) -> {
+	        int c = comparator.compare(list.get(i), list.get(j));
+	        return c != 0 ? c : Integer.compare(i, j);
+	    };
+	    PriorityQueue<Integer> heap = new PriorityQueue<>(k + 1, byPosition.reversed());
+	    for(int i = 0; i < list.size(); i++){
+	        if(heap.size() < k){
+	            heap.add(i);
+	        }else if(byPosition.compare(i, heap.peek()) < 0){
+	            heap.poll();
+	            heap.add(i);
+	        }
+	    }
+	    List<Integer> positions = new ArrayList<>(heap);
+	    positions.sort(byPosition);
+	    List<T> selected = new ArrayList<>(positions.size());
+	    for(int i : positions)
+	        selected.add(list.get(i));
+	    return selected;
+	}
+
 	public static <K, V extends Comparable<? super V>> Comparator<Entry<K, V>> getEntryMapComparatorByValue(boolean asc) {
 		if(asc)
 			return (o1,o2) -> o1.getValue().compareTo(o2.getValue());
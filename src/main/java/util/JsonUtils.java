@@ -0,0 +1,244 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON support, for the few places that read or write JSON (there is no JSON library among the dependencies).
+ * Objects are parsed to LinkedHashMap, arrays to ArrayList, numbers to Double (or Long, when integral and without exponent),
+ * and true/false/null to Boolean/null.
+ */
+public class JsonUtils {
+
+    public static Object parse(String json) {
+        Parser parser = new Parser(json);
+        Object value = parser.readValue();
+        parser.skipSpaces();
+        if (parser.pos < json.length())
+            throw parser.error("unexpected content");
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String,Object> parseObject(String json) {
+        Object value = parse(json);
+        if (!(value instanceof Map))
+            throw new IllegalArgumentException("JSON object expected: " + StringUtils.abbreviate(json, 100));
+        return (Map<String,Object>) value;
+    }
+
+    /** writes the value as JSON: maps, collections, arrays of primitives or objects, numbers, booleans, strings (any other object by its toString) */
+    public static StringBuilder write(Object value, StringBuilder sb) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?,?> entry : ((Map<?,?>) value).entrySet()) {
+                if (!first)
+                    sb.append(',');
+                first = false;
+                quote(String.valueOf(entry.getKey()), sb).append(':');
+                write(entry.getValue(), sb);
+            }
+            sb.append('}');
+        } else if (value instanceof Collection) {
+            sb.append('[');
+            boolean first = true;
+            for (Object item : (Collection<?>) value) {
+                if (!first)
+                    sb.append(',');
+                first = false;
+                write(item, sb);
+            }
+            sb.append(']');
+        } else if (value.getClass().isArray()) {
+            sb.append('[');
+            int n = java.lang.reflect.Array.getLength(value);
+            for (int i = 0; i < n; i++) {
+                if (i > 0)
+                    sb.append(',');
+                write(java.lang.reflect.Array.get(value, i), sb);
+            }
+            sb.append(']');
+        } else if (value instanceof Number) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d))
+                sb.append("null");
+            else
+                sb.append(value);
+        } else if (value instanceof Boolean) {
+            sb.append(value);
+        } else {
+            quote(value.toString(), sb);
+        }
+        return sb;
+    }
+
+    public static String toJson(Object value) {
+        return write(value, new StringBuilder()).toString();
+    }
+
+    public static StringBuilder quote(String s, StringBuilder sb) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20)
+                        sb.append(String.format("\\u%04x", (int) c));
+                    else
+                        sb.append(c);
+            }
+        }
+        return sb.append('"');
+    }
+
+    private static class Parser {
+        private final String s;
+        private int pos;
+
+        Parser(String s) {
+            this.s = s;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid JSON (" + message + " at " + pos + "): " + StringUtils.abbreviate(s, 100));
+        }
+
+        void skipSpaces() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos)))
+                pos++;
+        }
+
+        char next() {
+            skipSpaces();
+            if (pos >= s.length())
+                throw error("unexpected end");
+            return s.charAt(pos);
+        }
+
+        void expect(char c) {
+            if (next() != c)
+                throw error("'" + c + "' expected");
+            pos++;
+        }
+
+        Object readValue() {
+            char c = next();
+            switch (c) {
+                case '{': return readObject();
+                case '[': return readArray();
+                case '"': return readString();
+                case 't': return readLiteral("true", Boolean.TRUE);
+                case 'f': return readLiteral("false", Boolean.FALSE);
+                case 'n': return readLiteral("null", null);
+                default: return readNumber();
+            }
+        }
+
+        Object readLiteral(String literal, Object value) {
+            if (!s.startsWith(literal, pos))
+                throw error("unexpected value");
+            pos += literal.length();
+            return value;
+        }
+
+        Map<String,Object> readObject() {
+            Map<String,Object> object = new LinkedHashMap<>();
+            expect('{');
+            if (next() == '}') {
+                pos++;
+                return object;
+            }
+            while (true) {
+                if (next() != '"')
+                    throw error("field name expected");
+                String name = readString();
+                expect(':');
+                object.put(name, readValue());
+                if (next() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return object;
+                }
+            }
+        }
+
+        List<Object> readArray() {
+            List<Object> array = new ArrayList<>();
+            expect('[');
+            if (next() == ']') {
+                pos++;
+                return array;
+            }
+            while (true) {
+                array.add(readValue());
+                if (next() == ',') {
+                    pos++;
+                } else {
+                    expect(']');
+                    return array;
+                }
+            }
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (pos >= s.length())
+                    throw error("unterminated string");
+                char c = s.charAt(pos++);
+                if (c == '"')
+                    return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= s.length())
+                    throw error("unterminated string");
+                c = s.charAt(pos++);
+                switch (c) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > s.length())
+                            throw error("invalid escape");
+                        sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default: sb.append(c); // " \ /
+                }
+            }
+        }
+
+        Number readNumber() {
+            int start = pos;
+            while (pos < s.length() && "+-0123456789.eE".indexOf(s.charAt(pos)) >= 0)
+                pos++;
+            String number = s.substring(start, pos);
+            if (number.isEmpty())
+                throw error("unexpected character");
+            try {
+                if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0)
+                    return Long.parseLong(number);
+                return Double.parseDouble(number);
+            } catch (NumberFormatException e) {
+                throw error("invalid number");
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds, for percentiles of operations called concurrently.
+ * Values below 32 have their own buckets; above it, each power of 2 is split in 16 buckets, so percentiles are overestimated by at most 1/16.
+ * Recording is thread-safe and lock-free; reads made while recording may see a partial update.
+ */
+public class LatencyHistogram {
+
+    private static final int EXACT_BUCKETS = 32;
+    private static final int SUB_BUCKETS = 16;
+
+    private final AtomicLongArray counts = new AtomicLongArray(EXACT_BUCKETS + (63 - 5) * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    private static int bucket(long value) {
+        if (value < EXACT_BUCKETS)
+            return (int) Math.max(value, 0);
+        int exponent = 63 - Long.numberOfLeadingZeros(value); // >= 5
+        int sub = (int) (value >>> (exponent - 4)) & (SUB_BUCKETS - 1);
+        return EXACT_BUCKETS + (exponent - 5) * SUB_BUCKETS + sub;
+    }
+
+    /** the biggest value of the bucket */
+    private static long bucketValue(int bucket) {
+        if (bucket < EXACT_BUCKETS)
+            return bucket;
+        int exponent = (bucket - EXACT_BUCKETS) / SUB_BUCKETS + 5;
+        int sub = (bucket - EXACT_BUCKETS) % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1L) << (exponent - 4)) - 1;
+    }
+
+    public void record(long nanos) {
+        counts.incrementAndGet(bucket(nanos));
+        count.increment();
+        sum.add(nanos);
+        long m;
+        while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos));
+    }
+
+    /** records the time elapsed since the given System.nanoTime() */
+    public long recordSince(long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        record(nanos);
+        return nanos;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / (double) n;
+    }
+
+    /** @param percentile in [0, 100] */
+    public long getPercentile(double percentile) {
+        long n = 0;
+        for (int i = 0; i < counts.length(); i++)
+            n += counts.get(i);
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= rank)
+                return Math.min(bucketValue(i), getMax());
+        }
+        return 0;
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++)
+            counts.set(i, 0);
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    private static String millis(double nanos) {
+        return String.format("%.3fms", nanos / 1e6);
+    }
+
+    public String toString() {
+        return "n=" + getCount() + ", mean=" + millis(getMean()) + ", p50=" + millis(getPercentile(50)) + ", p90=" + millis(getPercentile(90))
+            + ", p99=" + millis(getPercentile(99)) + ", max=" + millis(getMax());
+    }
+}
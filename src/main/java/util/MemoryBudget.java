@@ -0,0 +1,67 @@
+package util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import com.google.common.base.Preconditions;
+
+/**
+ * Admission control of concurrent tasks by their estimated memory: a task is admitted once its bytes fit in the budget, besides the
+ * ones of the tasks admitted and not released yet. Tasks are admitted in the order they ask for it, so that a big task is not starved by
+ * smaller ones coming after it; a task bigger than the whole budget is admitted alone.
+ */
+public class MemoryBudget {
+
+    private final long budget;
+    private final Deque<Object> waiting = new ArrayDeque<>();
+    private long admitted;
+
+    public MemoryBudget(long budget) {
+        Preconditions.checkArgument(budget > 0, "budget must be positive");
+        this.budget = budget;
+    }
+
+    /** budget of the given fraction of the heap which can still be used, i.e. the max heap (-Xmx) but the one used now */
+    public static MemoryBudget ofFreeHeap(double fraction) {
+        Preconditions.checkArgument(fraction > 0 && fraction <= 1, "fraction must be in (0,1]");
+        Runtime runtime = Runtime.getRuntime();
+        long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return new MemoryBudget(Math.max((long) (free * fraction), 1));
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public synchronized long getAdmitted() {
+        return admitted;
+    }
+
+    /**
+     * Blocks until the bytes are admitted.
+     * @return the bytes reserved (the given ones, up to the budget), to be given back by {@link #release(long)} once the task finishes
+     */
+    public synchronized long acquire(long bytes) throws InterruptedException {
+        long reserved = Math.min(Math.max(bytes, 0), budget);
+        Object ticket = new Object();
+        waiting.add(ticket);
+        try {
+            while (waiting.peek() != ticket || admitted + reserved > budget)
+                wait();
+        } finally {
+            waiting.remove(ticket);
+            notifyAll(); //o proximo da fila pode caber tambem
+        }
+        admitted += reserved;
+        return reserved;
+    }
+
+    public synchronized void release(long reserved) {
+        admitted -= reserved;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MemoryBudget [budget=" + (budget >> 20) + " MB, admitted=" + (admitted >> 20) + " MB, waiting=" + waiting.size() + "]";
+    }
+}
@@ -0,0 +1,156 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import util.io.FileUtils;
+
+/**
+ * Process-wide registry of metrics of the pipeline: counters, gauges, latency histograms (in nanoseconds) and the stages of the run
+ * (see {@link StageTimer}), besides samplers of allocated bytes and heap. Metrics are created on their first use by name, as
+ * "component.metric", and can be updated concurrently; {@link #writeReport(File)} writes all of them as JSON.
+ * Instrumented code records per sample or per batch, not per distance, to keep the overhead negligible.
+ */
+public class Metrics {
+
+    public static class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long n) {
+            value.add(n);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    private static final Map<String,Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String,Supplier<Number>> gauges = new ConcurrentHashMap<>();
+    private static final Map<String,LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static volatile StageTimer stages = new StageTimer();
+
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, k -> new Counter());
+    }
+
+    /** the gauge is sampled when the report is made */
+    public static void gauge(String name, Supplier<Number> value) {
+        gauges.put(name, value);
+    }
+
+    public static void setGauge(String name, Number value) {
+        gauges.put(name, () -> value);
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    /** records, on the histogram, the time elapsed since the given System.nanoTime() */
+    public static long recordSince(String histogramName, long startNanos) {
+        return histogram(histogramName).recordSince(startNanos);
+    }
+
+    /** starts an execution of the stage of the run (see {@link StageTimer#start(String)}) */
+    public static StageTimer.Stage stage(String name) {
+        return stages.start(name);
+    }
+
+    public static StageTimer getStages() {
+        return stages;
+    }
+
+    public static synchronized void reset() {
+        counters.clear();
+        gauges.clear();
+        histograms.clear();
+        stages = new StageTimer();
+    }
+
+    /**
+     * Bytes allocated so far by the live threads, or -1 if the JVM does not account them.
+     * Allocations of threads which already finished are not included, so differences are a lower bound when threads come and go.
+     */
+    public static long getAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean))
+            return -1;
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        if (!allocations.isThreadAllocatedMemorySupported() || !allocations.isThreadAllocatedMemoryEnabled())
+            return -1;
+        long sum = 0;
+        for (long allocated : allocations.getThreadAllocatedBytes(threads.getAllThreadIds()))
+            sum += Math.max(allocated, 0); // -1 for threads finished meanwhile
+        return sum;
+    }
+
+    private static Map<String,Object> getJvmMetrics() {
+        Map<String,Object> jvm = new LinkedHashMap<>();
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        jvm.put("heapUsedBytes", heap.getUsed());
+        jvm.put("heapCommittedBytes", heap.getCommitted());
+        jvm.put("heapMaxBytes", heap.getMax());
+        long gcCount = 0, gcMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(gc.getCollectionCount(), 0);
+            gcMillis += Math.max(gc.getCollectionTime(), 0);
+        }
+        jvm.put("gcCount", gcCount);
+        jvm.put("gcSeconds", gcMillis / 1e3);
+        jvm.put("allocatedBytes", getAllocatedBytes());
+        jvm.put("uptimeSeconds", ManagementFactory.getRuntimeMXBean().getUptime() / 1e3);
+        return jvm;
+    }
+
+    public static Map<String,Object> toMap(LatencyHistogram latencies) {
+        Map<String,Object> map = new LinkedHashMap<>();
+        map.put("count", latencies.getCount());
+        map.put("meanMillis", latencies.getMean() / 1e6);
+        map.put("p50Millis", latencies.getPercentile(50) / 1e6);
+        map.put("p90Millis", latencies.getPercentile(90) / 1e6);
+        map.put("p99Millis", latencies.getPercentile(99) / 1e6);
+        map.put("maxMillis", latencies.getMax() / 1e6);
+        map.put("totalSeconds", latencies.getMean() * latencies.getCount() / 1e9);
+        return map;
+    }
+
+    public static synchronized Map<String,Object> toMap() {
+        Map<String,Object> map = new LinkedHashMap<>();
+        map.put("stages", stages.toMap());
+        Map<String,Object> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.get()));
+        map.put("counters", counterValues);
+        Map<String,Object> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.get()));
+        map.put("gauges", gaugeValues);
+        Map<String,Object> histogramValues = new TreeMap<>();
+        histograms.forEach((name, histogram) -> histogramValues.put(name, toMap(histogram)));
+        map.put("histograms", histogramValues);
+        map.put("jvm", getJvmMetrics());
+        return map;
+    }
+
+    public static void writeReport(File file) {
+        try (Writer writer = FileUtils.createWriterToFile(file)) {
+            writer.write(JsonUtils.toJson(toMap()));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        Logs.fine("Metrics written to " + file);
+    }
+}
@@ -0,0 +1,119 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import com.google.common.base.Preconditions;
+
+/**
+ * Groups the elements submitted by concurrent callers in batches, handed to a function by a single thread.
+ * A batch is closed when it reaches maxBatchSize elements, or maxWaitMillis after its first element was taken.
+ * Each caller gets a future of the result of its element; when the function fails, all the futures of the batch fail.
+ * Submitting and closing are mutually exclusive, so that every element accepted before the close is processed.
+ */
+public class MicroBatcher<T,R> implements AutoCloseable {
+
+    private static final class Pending<T,R> {
+        final T element;
+        final CompletableFuture<R> result = new CompletableFuture<>();
+
+        Pending(T element) {
+            this.element = element;
+        }
+    }
+
+    private final Function<List<T>,List<R>> batchFunction;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Pending<T,R>> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean closed;
+    private final AtomicLong batches = new AtomicLong(), elements = new AtomicLong();
+
+    /** @param batchFunction gives the results of the elements of a batch, in the same order */
+    public MicroBatcher(String name, Function<List<T>,List<R>> batchFunction, int maxBatchSize, long maxWaitMillis) {
+        Preconditions.checkArgument(maxBatchSize > 0 && maxWaitMillis >= 0);
+        this.batchFunction = batchFunction;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized CompletableFuture<R> submit(T element) {
+        Preconditions.checkState(!closed, "closed");
+        Pending<T,R> pending = new Pending<>(element);
+        queue.add(pending);
+        return pending.result;
+    }
+
+    /** elements submitted but not yet taken into a batch */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public double getAverageBatchSize() {
+        long n = batches.get();
+        return n == 0 ? 0 : elements.get() / (double) n;
+    }
+
+    private void run() {
+        List<Pending<T,R>> batch = new ArrayList<>(maxBatchSize);
+        List<T> batchElements = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Pending<T,R> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    Pending<T,R> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                if (batch.isEmpty())
+                    continue; //o fechamento e verificado no laco
+            }
+            for (Pending<T,R> pending : batch)
+                batchElements.add(pending.element);
+            try {
+                List<R> results = batchFunction.apply(batchElements);
+                for (int i = 0; i < batch.size(); i++)
+                    batch.get(i).result.complete(results.get(i));
+            } catch (Throwable t) {
+                for (Pending<T,R> pending : batch)
+                    pending.result.completeExceptionally(t);
+            }
+            batches.incrementAndGet();
+            elements.addAndGet(batch.size());
+            batch.clear();
+            batchElements.clear();
+        }
+    }
+
+    /** processes the elements already submitted, then stops */
+    @Override
+    public void close() {
+        synchronized (this) { //depois disso nenhum elemento entra na fila, e o laco so para com ela vazia
+            closed = true;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -5,6 +5,35 @@ import org.apache.commons.lang3.reflect.FieldUtils;
 
 public class ObjectUtils extends org.apache.commons.lang3.ObjectUtils {
 
+    /** the accessible field of the given class or of its superclasses, to be kept by callers that write it often */
+    public static Field getField(Class<?> clazz, String fieldName) {
+        Field field = null;
+        while(field == null && clazz != null){
+            field = FieldUtils.getDeclaredField(clazz, fieldName, true);
+            clazz = clazz.getSuperclass();
+        }
+        if(field == null)
+            throw new IllegalArgumentException("field not found: " + fieldName);
+        field.setAccessible(true);
+        return field;
+    }
+
+    public static void writeField(Field field, Object object, Object fieldValue) {
+        try {
+            field.set(object, fieldValue);
+        } catch (IllegalArgumentException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static void writeField(Field field, Object object, double fieldValue) {
+        try {
+            field.setDouble(object, fieldValue);
+        } catch (IllegalArgumentException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public static <T> T loadField(Object object, String fieldName) {
         try {
             Class<?> clazz = object.getClass();
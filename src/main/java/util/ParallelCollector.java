@@ -0,0 +1,115 @@
+package util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import com.google.common.base.Preconditions;
+
+/**
+ * Collector that applies a function to the collected elements using a pool of workers, passing the results (when not null) to another collector
+ * in the same order the elements were collected. The target collector is never called concurrently, so it does not need to be thread-safe.
+ * At most maxPending elements are kept in processing, so a producer faster than the workers gets blocked instead of filling the memory.
+ * {@link #close()} must be called after the last element, waiting for all of them to be delivered.
+ */
+public class ParallelCollector<T,R> implements Collector<T>, AutoCloseable {
+
+    private static final Object NO_RESULT = new Object();
+
+    private final Function<T,R> function;
+    private final Collector<R> collector;
+    private final ExecutorService workers;
+    private final int maxPending;
+    private final Semaphore pendingPermits;
+    private final Map<Long,Object> finished = new HashMap<>();
+    private long nextToCollect; //used only by the producer thread
+    private long nextToDeliver; //guarded by 'finished'
+    private volatile Throwable failure;
+    private boolean failureThrown; //used only by the producer thread
+
+    public ParallelCollector(Function<T,R> function, Collector<R> collector, int nWorkers) {
+        this(function, collector, nWorkers, 4 * nWorkers);
+    }
+
+    public ParallelCollector(Function<T,R> function, Collector<R> collector, int nWorkers, int maxPending) {
+        Preconditions.checkArgument(nWorkers > 0 && maxPending > 0);
+        this.function = function;
+        this.collector = collector;
+        this.workers = Executors.newFixedThreadPool(nWorkers);
+        this.maxPending = maxPending;
+        this.pendingPermits = new Semaphore(maxPending);
+    }
+
+    @Override
+    public void collect(T element) {
+        checkFailure();
+        acquire(1);
+        long seq = nextToCollect++;
+        workers.execute(() -> {
+            Object result = NO_RESULT;
+            try {
+                if(failure == null){
+                    R r = function.apply(element);
+                    if(r != null)
+                        result = r;
+                }
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                finished(seq, result);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void finished(long seq, Object result) {
+        synchronized (finished) {
+            finished.put(seq, result);
+            while(finished.containsKey(nextToDeliver)){
+                Object r = finished.remove(nextToDeliver++);
+                try {
+                    if(r != NO_RESULT && failure == null)
+                        collector.collect((R) r);
+                } catch (Throwable t) {
+                    failure = t;
+                } finally {
+                    pendingPermits.release();
+                }
+            }
+        }
+    }
+
+    /** Waits for all collected elements to be processed and delivered, then releases the workers. */
+    @Override
+    public void close() {
+        try {
+            acquire(maxPending);
+        } finally {
+            workers.shutdown();
+        }
+        checkFailure();
+    }
+
+    private void acquire(int permits) {
+        try {
+            pendingPermits.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void checkFailure() {
+        Throwable t = failure;
+        if(t == null || failureThrown) //failure is thrown once, so that close() does not rethrow it within a try-with-resources
+            return;
+        failureThrown = true;
+        if(t instanceof RuntimeException)
+            throw (RuntimeException) t;
+        if(t instanceof Error)
+            throw (Error) t;
+        throw new RuntimeException(t);
+    }
+}
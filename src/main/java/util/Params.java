@@ -29,6 +29,11 @@ public class Params {
     	return get(key) != null;
     }
 
+    /** the keys of the params, in the order they were given */
+    public Set<String> getKeys() {
+        return params.keySet();
+    }
+
     public String get(String key) {
         return params.get(key);
     }
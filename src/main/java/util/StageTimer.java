@@ -0,0 +1,159 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wall time, processed items, allocated bytes and peak heap of the stages of a run, accumulated by stage name over its executions.
+ * The peak heap of an execution is the sum of the peaks of the heap pools since its start (the peaks are reset on each start with no other
+ * execution running). The allocated bytes are the ones of the live threads (see {@link Metrics#getAllocatedBytes()}).
+ * Executions may overlap (e.g. of concurrent folds), but then each one accounts the allocations and the peak heap of the whole process
+ * since its start, not only its own, and the total time (summed over the executions) exceeds the wall time, from the first start to the last close,
+ * which is reported as well. Each execution is started and closed by the same thread.
+ */
+public class StageTimer {
+
+    public class Stage implements AutoCloseable {
+        private final String name;
+        private final long startNanos = System.nanoTime();
+        private final long startAllocated = Metrics.getAllocatedBytes();
+        private long items;
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        public Stage addItems(long n) {
+            items += n;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            long allocated = startAllocated < 0 ? 0 : Metrics.getAllocatedBytes() - startAllocated;
+            finish(this, System.nanoTime() - startNanos, items, allocated, getPeakHeap());
+        }
+    }
+
+    private static class Stats {
+        int runs;
+        long nanos;
+        long items;
+        long allocated;
+        long peakHeap;
+    }
+
+    private final Map<String,Stats> stages = new LinkedHashMap<>();
+    private long peakHeap;
+    private int running;
+    private boolean started;
+    private long firstStartNanos, lastCloseNanos;
+
+    /** starts an execution of the stage, accounted when the returned handle is closed */
+    public synchronized Stage start(String name) {
+        if (running++ == 0) //resetar com outra execucao em andamento perderia o pico dela
+            resetPeakHeap();
+        Stage stage = new Stage(name);
+        if (!started) {
+            started = true;
+            firstStartNanos = lastCloseNanos = stage.startNanos;
+        }
+        return stage;
+    }
+
+    private synchronized void finish(Stage stage, long nanos, long items, long allocated, long heap) {
+        running--;
+        lastCloseNanos = Math.max(lastCloseNanos, stage.startNanos + nanos);
+        Stats stats = stages.computeIfAbsent(stage.name, k -> new Stats());
+        stats.runs++;
+        stats.nanos += nanos;
+        stats.items += items;
+        stats.allocated += allocated;
+        stats.peakHeap = Math.max(stats.peakHeap, heap);
+        peakHeap = Math.max(peakHeap, heap);
+        Logs.finer("Stage " + stage.name + " finished in " + DateUtil.getTime(nanos) + (items > 0 ? ", items: " + items : "")
+            + ", allocated: " + toMB(allocated) + " MB, peak heap: " + toMB(heap) + " MB");
+    }
+
+    private static List<MemoryPoolMXBean> getHeapPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid())
+                pools.add(pool);
+        }
+        return pools;
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : getHeapPools())
+            pool.resetPeakUsage();
+    }
+
+    /** sum of the peaks of the heap pools since their last reset (an upper bound, as the pools may peak at different times) */
+    private static long getPeakHeap() {
+        long sum = 0;
+        for (MemoryPoolMXBean pool : getHeapPools())
+            sum += pool.getPeakUsage().getUsed();
+        return sum;
+    }
+
+    private static long toMB(long bytes) {
+        return bytes >> 20;
+    }
+
+    public synchronized long getTotalNanos() {
+        long sum = 0;
+        for (Stats stats : stages.values())
+            sum += stats.nanos;
+        return sum;
+    }
+
+    /** elapsed from the first start to the last close, less than the total when executions overlap */
+    public synchronized long getWallNanos() {
+        return started ? Math.max(lastCloseNanos - firstStartNanos, 0) : 0;
+    }
+
+    /** stage name to runs, seconds, items, items per second, allocated and peak heap bytes; plus "total", with the wall seconds too */
+    public synchronized Map<String,Object> toMap() {
+        Map<String,Object> map = new LinkedHashMap<>();
+        for (Map.Entry<String,Stats> entry : stages.entrySet()) {
+            Stats stats = entry.getValue();
+            Map<String,Object> stage = new LinkedHashMap<>();
+            stage.put("runs", stats.runs);
+            stage.put("seconds", stats.nanos / 1e9);
+            stage.put("items", stats.items);
+            stage.put("itemsPerSecond", stats.items > 0 ? stats.items / (stats.nanos / 1e9) : 0);
+            stage.put("allocatedBytes", stats.allocated);
+            stage.put("peakHeapBytes", stats.peakHeap);
+            map.put(entry.getKey(), stage);
+        }
+        Map<String,Object> total = new LinkedHashMap<>();
+        total.put("seconds", getTotalNanos() / 1e9);
+        total.put("wallSeconds", getWallNanos() / 1e9);
+        total.put("peakHeapBytes", peakHeap);
+        map.put("total", total);
+        return map;
+    }
+
+    public String toJson() {
+        return JsonUtils.toJson(toMap());
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder(String.format("%-16s %5s %12s %10s %12s %10s %10s%n", "stage", "runs", "time", "items", "items/s", "alloc(MB)", "heap(MB)"));
+        for (Map.Entry<String,Stats> entry : stages.entrySet()) {
+            Stats stats = entry.getValue();
+            sb.append(String.format("%-16s %5d %12s %10d %12.1f %10d %10d%n", entry.getKey(), stats.runs, DateUtil.getTime(stats.nanos), stats.items,
+                stats.items > 0 ? stats.items / (stats.nanos / 1e9) : 0, toMB(stats.allocated), toMB(stats.peakHeap)));
+        }
+        sb.append(String.format("%-16s %5s %12s %10s %12s %10s %10d", "total", "", DateUtil.getTime(getTotalNanos()), "", "", "", toMB(peakHeap)));
+        sb.append(String.format("%n%-16s %5s %12s", "wall", "", DateUtil.getTime(getWallNanos())));
+        return sb.toString();
+    }
+}
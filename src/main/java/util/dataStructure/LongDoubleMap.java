@@ -0,0 +1,176 @@
+package util.dataStructure;
+
+/**
+ * Map of primitive long keys to double values, by open addressing with linear probing, so that no object is created per entry.
+ * Not thread-safe.
+ */
+public class LongDoubleMap {
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, double value);
+    }
+
+    @FunctionalInterface
+    public interface EntryFunction {
+        double apply(long key, double value);
+    }
+
+    @FunctionalInterface
+    public interface EntryPredicate {
+        boolean test(long key, double value);
+    }
+
+    private long[] keys;
+    private double[] values;
+    private boolean[] used;
+    private int size;
+
+    public LongDoubleMap() {
+        this(16);
+    }
+
+    public LongDoubleMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new double[capacity];
+        used = new boolean[capacity];
+    }
+
+    private static int mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    /** the slot of the key, or the free slot where it should be put */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (used[i] && keys[i] != key)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return used[slot(key)];
+    }
+
+    /** @return the value of the key, 0 when absent */
+    public double get(long key) {
+        int i = slot(key);
+        return used[i] ? values[i] : 0;
+    }
+
+    public void put(long key, double value) {
+        int i = slot(key);
+        if (!used[i]) {
+            i = addAt(i, key);
+        }
+        values[i] = value;
+    }
+
+    /** @return true if the key was not in the map */
+    public boolean increment(long key, double delta) {
+        int i = slot(key);
+        boolean added = !used[i];
+        if (added) {
+            i = addAt(i, key);
+        }
+        values[i] += delta;
+        return added;
+    }
+
+    private int addAt(int i, long key) {
+        if ((size + 1) * 2 > keys.length) { //mantem ocupacao maxima de 50%
+            rehash(keys.length * 2);
+            i = slot(key);
+        }
+        used[i] = true;
+        keys[i] = key;
+        values[i] = 0;
+        size++;
+        return i;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new long[capacity];
+        values = new double[capacity];
+        used = new boolean[capacity];
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldUsed[j]) {
+                int i = slot(oldKeys[j]);
+                used[i] = true;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i])
+                consumer.accept(keys[i], values[i]);
+        }
+    }
+
+    public void replaceAll(EntryFunction function) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i])
+                values[i] = function.apply(keys[i], values[i]);
+        }
+    }
+
+    /** @return the number of removed entries */
+    public int removeIf(EntryPredicate predicate) {
+        int removed = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i] && predicate.test(keys[i], values[i])) {
+                used[i] = false;
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            size -= removed;
+            rehash(keys.length); //refaz as sequencias de sondagem interrompidas pelas remocoes
+        }
+        return removed;
+    }
+
+    /** @return the biggest value, NaN when empty */
+    public double getMaxValue() {
+        double max = Double.NaN;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i] && !(values[i] <= max))
+                max = values[i];
+        }
+        return max;
+    }
+
+    public long[] keys() {
+        long[] k = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i])
+                k[n++] = keys[i];
+        }
+        return k;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((key, value) -> sb.append(sb.length() > 1 ? ", " : "").append(key).append('=').append(value));
+        return sb.append('}').toString();
+    }
+}
@@ -1,5 +1,7 @@
 package util.graph;
 
+import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -28,6 +30,9 @@ import util.ObjectUtils;
  */
 public class DirectedWeightedLabeledGraph extends DirectedWeightedMultigraph<String, LabeledWeightedEdge> implements LabeledMeasurableGraph {
 
+    private static final Field UNMODIFIABLE_VERTEX_SET_FIELD = ObjectUtils.getField(DirectedWeightedMultigraph.class, "unmodifiableVertexSet");
+    private static final Field UNMODIFIABLE_EDGE_SET_FIELD = ObjectUtils.getField(DirectedWeightedMultigraph.class, "unmodifiableEdgeSet");
+
     private Map<String,MutableDouble> vertexesWeights;
 
     private DirectedWeightedLabeledGraph() {
@@ -126,11 +131,9 @@ public class DirectedWeightedLabeledGraph extends DirectedWeightedMultigraph<Str
 		Set<String> bestTerms = new HashSet<>();
 		if(vertexesWeights.size() < k || k < 0){
 			bestTerms.addAll(vertexesWeights.keySet());
-		}else{
-			List<Entry<String, MutableDouble>> verticesSortedByWeight = DataStructureUtils.getMapEntriesSortedByValue(vertexesWeights, false);
-			for (int i = 0; i < verticesSortedByWeight.size() && bestTerms.size() < k; i++) {
-				String term = verticesSortedByWeight.get(i).getKey();
-				bestTerms.add(term);
+		}else if(k > 0){
+			for (Entry<String, MutableDouble> vertexWeight : DataStructureUtils.getMapEntriesSortedByValue(vertexesWeights, false, k)) {
+				bestTerms.add(vertexWeight.getKey());
 			}
 		}
 		return bestTerms;
@@ -162,7 +165,7 @@ public class DirectedWeightedLabeledGraph extends DirectedWeightedMultigraph<Str
 
 	public void convertTFtoTFIDF(final int nDocuments, GraphDatasetStats stats) {
 		//for nodes:
-		WeightMeasurer.convertTFToTFIDF(nDocuments, stats.getTermsDFs(), vertexesWeights);
+		WeightMeasurer.convertTFToTFIDF(nDocuments, stats::getTermDF, vertexesWeights);
 
 		//for edges:
 		final int pairMaxTermFrequencyInSample = (int) getMaxEdgeWeight();
@@ -179,6 +182,9 @@ public class DirectedWeightedLabeledGraph extends DirectedWeightedMultigraph<Str
 	 * @return true if graph became empty (0 vertices)
 	 */
 	public boolean prune(Collection<String> verticesToDiscard, boolean reconnectOrphanEdges) {
+		if(!reconnectOrphanEdges)
+			return pruneAtOnce(verticesToDiscard);
+
 		for (String term : verticesToDiscard) {
             if (containsVertex(term)) {
 
@@ -211,13 +217,49 @@ public class DirectedWeightedLabeledGraph extends DirectedWeightedMultigraph<Str
 	        }
         }
 
-		//limpa caches locais do grafo, que ficam defasados apos remocao de nó!
-		ObjectUtils.writeField(this, "unmodifiableVertexSet", null);
-		ObjectUtils.writeField(this, "unmodifiableEdgeSet", null);
+		clearSetCaches();
 
 		return false;
 	}
 
+	/**
+	 * Prune without reconnection, whose result does not depend on the removal order: the edges of all the vertices are removed in a batch,
+	 * then the vertices. A big set of vertices to discard (e.g. the terms of low DF of a corpus) is matched against the vertices of the graph,
+	 * instead of the reverse.
+	 * @return true if graph became empty (0 vertices)
+	 */
+	private boolean pruneAtOnce(Collection<String> verticesToDiscard) {
+		List<String> vertices = new ArrayList<>();
+		if (verticesToDiscard instanceof Set && verticesToDiscard.size() > vertexSet().size()) {
+			for (String vertex : vertexSet())
+				if (verticesToDiscard.contains(vertex))
+					vertices.add(vertex);
+		} else {
+			for (String vertex : verticesToDiscard)
+				if (containsVertex(vertex))
+					vertices.add(vertex);
+		}
+		if (vertices.isEmpty())
+			return false;
+
+		Set<LabeledWeightedEdge> edges = new LinkedHashSet<>();
+		for (String vertex : vertices)
+			edges.addAll(edgesOf(vertex));
+		removeAllEdges(edges);
+		for (String vertex : vertices)
+			removeVertex(vertex, true);
+
+		clearSetCaches();
+
+		return vertexSet().isEmpty();
+	}
+
+	//limpa caches locais do grafo, que ficam defasados apos remocao de nó!
+	private void clearSetCaches() {
+		ObjectUtils.writeField(UNMODIFIABLE_VERTEX_SET_FIELD, this, null);
+		ObjectUtils.writeField(UNMODIFIABLE_EDGE_SET_FIELD, this, null);
+	}
+
 	/**
      * @return true if graph became empty (0 vertices)
      */
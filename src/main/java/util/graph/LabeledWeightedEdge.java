@@ -1,5 +1,6 @@
 package util.graph;
 
+import java.lang.reflect.Field;
 import java.math.RoundingMode;
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -13,14 +14,19 @@ public class LabeledWeightedEdge extends DefaultWeightedEdge {
 
     private static final long serialVersionUID = -4046507748499162165L;
 
+    //campos privados do jgrapht, localizados uma unica vez
+    private static final Field SOURCE_FIELD = ObjectUtils.getField(DefaultWeightedEdge.class, "source");
+    private static final Field TARGET_FIELD = ObjectUtils.getField(DefaultWeightedEdge.class, "target");
+    private static final Field WEIGHT_FIELD = ObjectUtils.getField(DefaultWeightedEdge.class, "weight");
+
     private String label = "";
 
     public LabeledWeightedEdge() {
     }
 
     public LabeledWeightedEdge(Object source, Object target, String label, double weight) {
-        ObjectUtils.writeField(this, "source", source);
-        ObjectUtils.writeField(this, "target", target);
+        ObjectUtils.writeField(SOURCE_FIELD, this, source);
+        ObjectUtils.writeField(TARGET_FIELD, this, target);
         setWeight(weight);
         this.label = label;
     }
@@ -37,7 +43,7 @@ public class LabeledWeightedEdge extends DefaultWeightedEdge {
         return super.getWeight();
     }
     public void setWeight(double weight) {
-        ObjectUtils.writeField(this, "weight", weight);
+        ObjectUtils.writeField(WEIGHT_FIELD, this, weight);
     }
     public void addWeight(double weight) {
         setWeight(getWeight() + weight);
@@ -3,7 +3,6 @@ package util.graph;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
@@ -123,11 +122,9 @@ public class WeightedLabeledGraph extends WeightedMultigraph<String, LabeledWeig
 		Set<String> bestTerms = new HashSet<>();
 		if(vertexesWeights.size() < k || k < 0){
 			bestTerms.addAll(vertexesWeights.keySet());
-		}else{
-			List<Entry<String, MutableDouble>> verticesSortedByWeight = DataStructureUtils.getMapEntriesSortedByValue(vertexesWeights, false);
-			for (int i = 0; i < verticesSortedByWeight.size() && bestTerms.size() < k; i++) {
-				String term = verticesSortedByWeight.get(i).getKey();
-				bestTerms.add(term);
+		}else if(k > 0){
+			for (Entry<String, MutableDouble> vertexWeight : DataStructureUtils.getMapEntriesSortedByValue(vertexesWeights, false, k)) {
+				bestTerms.add(vertexWeight.getKey());
 			}
 		}
 		return bestTerms;
@@ -159,7 +156,7 @@ public class WeightedLabeledGraph extends WeightedMultigraph<String, LabeledWeig
 
 	public void convertTFtoTFIDF(final int nDocuments, GraphDatasetStats stats) {
 		//for nodes:
-		WeightMeasurer.convertTFToTFIDF(nDocuments, stats.getTermsDFs(), vertexesWeights);
+		WeightMeasurer.convertTFToTFIDF(nDocuments, stats::getTermDF, vertexesWeights);
 
 		//for edges:
 		final int pairMaxTermFrequencyInSample = (int) getMaxEdgeWeight();